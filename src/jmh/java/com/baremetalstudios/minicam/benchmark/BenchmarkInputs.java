@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.benchmark;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import com.baremetalstudios.minicam.geometry.DrillGroup;
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+import com.baremetalstudios.minicam.parser.ExcellonParser;
+import com.baremetalstudios.minicam.parser.ParseException;
+import com.baremetalstudios.minicam.parser.Parser;
+import com.baremetalstudios.minicam.simulator.OutlinePlotter;
+
+/*
+ * Benchmark inputs. Names ending with .drd/.bor refer to files bundled with tests, "random-N"
+ * is a synthetic panel of N holes uniformly spread over 300x200mm, generated with fixed seed.
+ * Benchmarks must be started from the project directory.
+ */
+final class BenchmarkInputs {
+    static final String RESOURCES = "src/test/resources/";
+    private static final String RANDOM = "random-";
+    private static final double PANEL_WIDTH = 300;
+    private static final double PANEL_HEIGHT = 200;
+
+    private BenchmarkInputs() {
+    }
+
+    static List<DrillGroup> loadDrills(String input) throws IOException {
+        if (input.startsWith(RANDOM)) {
+            return List.of(randomPanel(Integer.parseInt(input.substring(RANDOM.length()))));
+        }
+
+        try (InputStream stream = new FileInputStream(RESOURCES + input)) {
+            return new ExcellonParser(stream).parse();
+        }
+    }
+
+    static List<Polygon> loadOutlines(String input) throws IOException, ParseException {
+        try (InputStream stream = new FileInputStream(RESOURCES + input)) {
+            Parser parser = new Parser(stream);
+            OutlinePlotter plotter = new OutlinePlotter();
+            parser.setSimulator(plotter);
+            parser.Input();
+            return plotter.getPolygons();
+        }
+    }
+
+    static DrillGroup randomPanel(int holes) {
+        SplittableRandom random = new SplittableRandom(holes);
+        DrillGroup group = new DrillGroup("T01", 0.8);
+
+        for (int i = 0; i < holes; i++) {
+            group.addDrill(random.nextDouble() * PANEL_WIDTH, random.nextDouble() * PANEL_HEIGHT);
+        }
+        return group;
+    }
+
+    static List<DrillGroup> copyDrills(List<DrillGroup> groups) {
+        List<DrillGroup> result = new ArrayList<>(groups.size());
+        for (DrillGroup group : groups) {
+            result.add(new DrillGroup(group.getId(), group.getDiameter(), group.getDrills()));
+        }
+        return result;
+    }
+
+    static List<Polygon> copyOutlines(List<Polygon> polygons) {
+        List<Polygon> result = new ArrayList<>(polygons.size());
+        for (Polygon polygon : polygons) {
+            List<Point> points = new ArrayList<>(polygon.getPoints().size());
+            polygon.getPoints().forEach(point -> points.add(new Point(point)));
+            result.add(new Polygon(points));
+        }
+        return result;
+    }
+
+    static double pathLength(List<DrillGroup> groups) {
+        return groups.stream().mapToDouble(DrillGroup::calculatePathLenght).sum();
+    }
+}
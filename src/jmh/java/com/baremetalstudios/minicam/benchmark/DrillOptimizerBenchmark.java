@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.baremetalstudios.minicam.config.NamedVar;
+import com.baremetalstudios.minicam.config.OutputConfig;
+import com.baremetalstudios.minicam.geometry.DrillGroup;
+
+/*
+ * DrillGroup.optimize for each optimization level. Path length of the last optimized path is
+ * reported as secondary result, so faster but worse optimization is visible next to the score.
+ *
+ * random-100000 is not in the default set since levels above 0 take minutes per operation,
+ * add it with -p input=random-100000 -p level=0,1 if needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class DrillOptimizerBenchmark {
+    @Param({"opt.drd", "merge2.drd", "random-1000", "random-10000"})
+    public String input;
+
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"})
+    public int level;
+
+    @Param({"2opt"})
+    public String algorithm;
+
+    private List<DrillGroup> drills;
+    private OutputConfig config;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        drills = BenchmarkInputs.loadDrills(input);
+        config = new OutputConfig();
+        config.put(new NamedVar<Integer>(OutputConfig.OPTIMIZATION_LEVEL, level));
+        config.put(new NamedVar<String>(OutputConfig.OPTIMIZATION_ALGORITHM, algorithm));
+    }
+
+    @Benchmark
+    public List<DrillGroup> optimize(Quality quality) {
+        List<DrillGroup> groups = BenchmarkInputs.copyDrills(drills);
+        for (DrillGroup group : groups) {
+            group.optimize(config);
+        }
+        quality.pathLength = BenchmarkInputs.pathLength(groups);
+        return groups;
+    }
+
+    // value is assigned, not accumulated, so each iteration reports length of its last path (mm)
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Quality {
+        public double pathLength;
+    }
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.baremetalstudios.minicam.geometry.DrillGroup;
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.PointIndex;
+
+/*
+ * Nearest point lookup (linear scan and grid index) and path length calculation. All drill
+ * groups of the input are concatenated into one list of points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class GeometryBenchmark {
+    private static final int QUERIES = 64;
+
+    @Param({"opt.drd", "merge2.drd", "random-1000", "random-10000", "random-100000"})
+    public String input;
+
+    private List<Point> points;
+    private DrillGroup group;
+    private PointIndex index;
+    private Point[] queries;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        points = new ArrayList<>();
+        for (DrillGroup drills : BenchmarkInputs.loadDrills(input)) {
+            points.addAll(drills.getDrills());
+        }
+        group = new DrillGroup("T01", 0.8, points);
+        index = PointIndex.of(points);
+
+        queries = new Point[QUERIES];
+        DrillGroup random = BenchmarkInputs.randomPanel(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = new Point(random.getX(i), random.getY(i));
+        }
+    }
+
+    @Benchmark
+    public int findNearest() {
+        int result = 0;
+        for (Point query : queries) {
+            result += Point.findNearest(query, points, false);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int indexNearest() {
+        int result = 0;
+        for (Point query : queries) {
+            result += index.nearest(query.getX(), query.getY());
+        }
+        return result;
+    }
+
+    @Benchmark
+    public double calculatePathLenght() {
+        return group.calculatePathLenght();
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.baremetalstudios.minicam.parser.GerberParser;
+import com.baremetalstudios.minicam.parser.Parser;
+import com.baremetalstudios.minicam.simulator.AbstractPlotter;
+
+/*
+ * Generated (javacc) and hand-written (fast) Gerber parsers on bundled files. Plotter only
+ * counts coordinates, so the numbers show parsing cost alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GerberParserBenchmark {
+    @Param({"merge2.bor", "merge2.cmp"})
+    public String input;
+
+    private byte[] data;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = Files.readAllBytes(Paths.get(BenchmarkInputs.RESOURCES + input));
+    }
+
+    @Benchmark
+    public int javacc() {
+        CountingPlotter plotter = new CountingPlotter();
+        Parser parser = new Parser(new ByteArrayInputStream(data));
+        parser.setSimulator(plotter);
+        parser.Input();
+        return plotter.count;
+    }
+
+    @Benchmark
+    public int fast() {
+        CountingPlotter plotter = new CountingPlotter();
+        GerberParser parser = new GerberParser(data);
+        parser.setSimulator(plotter);
+        parser.parse();
+        return plotter.count;
+    }
+
+    private static class CountingPlotter extends AbstractPlotter {
+        private int count;
+
+        @Override
+        public void setCenter(String x, String y) {
+            count++;
+        }
+
+        @Override
+        public void setPosition(String x, String y) {
+            count++;
+        }
+
+        @Override
+        public void setCenter(long i, int lengthI, long j, int lengthJ, int axes) {
+            count++;
+        }
+
+        @Override
+        public void setPosition(long x, int lengthX, long y, int lengthY, int axes) {
+            count++;
+        }
+
+        @Override
+        public void done() {
+        }
+    }
+}
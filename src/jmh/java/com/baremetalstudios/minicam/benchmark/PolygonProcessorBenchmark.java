@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.baremetalstudios.minicam.config.OutputConfig;
+import com.baremetalstudios.minicam.geometry.DrillGroup;
+import com.baremetalstudios.minicam.geometry.Panel;
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+import com.baremetalstudios.minicam.parser.ParseException;
+import com.baremetalstudios.minicam.processor.PolygonProcessor;
+
+/*
+ * PolygonProcessor.process (merge, inset and tab generation) on parsed outline. Outline is
+ * copied on each invocation, since processing modifies polygons.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PolygonProcessorBenchmark {
+    @Param({"merge2.bor"})
+    public String input;
+
+    private List<Polygon> outlines;
+    private PolygonProcessor processor;
+    private Point center;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        outlines = BenchmarkInputs.loadOutlines(input);
+        processor = new PolygonProcessor(new OutputConfig());
+        center = new Panel(BenchmarkInputs.copyOutlines(outlines), new ArrayList<>()).getCenter();
+    }
+
+    @Benchmark
+    public List<Polygon> process() {
+        List<DrillGroup> drills = new ArrayList<>();
+        return processor.process(BenchmarkInputs.copyOutlines(outlines), drills, center);
+    }
+}
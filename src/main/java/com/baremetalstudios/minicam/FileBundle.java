@@ -16,26 +16,46 @@
 package com.baremetalstudios.minicam;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 public class FileBundle {
-    private File inFile;
-    private File drillFile;
+    private final List<File> inFiles = new ArrayList<>();
+    private final List<File> drillFiles = new ArrayList<>();
     private File outFile;
     private File configFile;
     private File outMillFile;
     private File outDrillFile;
 
     public File getInFile() {
-        return inFile;
+        return first(inFiles);
     }
     public void setInFile(File infile) {
-        this.inFile = infile;
+        inFiles.clear();
+        addInFile(infile);
+    }
+    public void addInFile(File infile) {
+        if (infile != null) {
+            inFiles.add(infile);
+        }
+    }
+    public List<File> getInFiles() {
+        return inFiles;
     }
     public File getDrillFile() {
-        return drillFile;
+        return first(drillFiles);
     }
     public void setDrillFile(File drillfile) {
-        this.drillFile = drillfile;
+        drillFiles.clear();
+        addDrillFile(drillfile);
+    }
+    public void addDrillFile(File drillfile) {
+        if (drillfile != null) {
+            drillFiles.add(drillfile);
+        }
+    }
+    public List<File> getDrillFiles() {
+        return drillFiles;
     }
     public File getOutFile() {
         return outFile;
@@ -51,7 +71,7 @@ public class FileBundle {
     }
 
     public boolean isValid() {
-        return notNull(inFile, drillFile, configFile) && (outFile != null || notNull(outDrillFile, outMillFile));
+        return notNull(getInFile(), getDrillFile(), configFile) && (outFile != null || notNull(outDrillFile, outMillFile));
     }
 
     public File getOutMillFile() {
@@ -71,6 +91,10 @@ public class FileBundle {
         return outFile == null;
     }
 
+    private static File first(List<File> files) {
+        return files.isEmpty() ? null : files.get(0);
+    }
+
     @SafeVarargs
     private static<T> boolean notNull(T ... objs) {
         for (T t : objs) {
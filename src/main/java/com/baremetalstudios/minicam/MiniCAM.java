@@ -23,31 +23,41 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import com.baremetalstudios.minicam.config.ConfigurationReader;
 import com.baremetalstudios.minicam.config.OutputConfig;
 import com.baremetalstudios.minicam.geometry.DrillGroup;
 import com.baremetalstudios.minicam.geometry.DrillStatistics;
 import com.baremetalstudios.minicam.geometry.Panel;
+import com.baremetalstudios.minicam.geometry.Polygon;
 import com.baremetalstudios.minicam.geometry.TransformationStatus;
 import com.baremetalstudios.minicam.parser.ExcellonParser;
+import com.baremetalstudios.minicam.parser.GerberParser;
+import com.baremetalstudios.minicam.parser.GerberParserCheck;
+import com.baremetalstudios.minicam.parser.MappedInput;
 import com.baremetalstudios.minicam.parser.ParseException;
 import com.baremetalstudios.minicam.parser.Parser;
 import com.baremetalstudios.minicam.processor.DrillProcessor;
 import com.baremetalstudios.minicam.processor.OutputGenerator;
 import com.baremetalstudios.minicam.processor.PolygonProcessor;
+import com.baremetalstudios.minicam.processor.PolygonStream;
 import com.baremetalstudios.minicam.simulator.OutlinePlotter;
+import com.baremetalstudios.minicam.simulator.Plotter;
 
 public class MiniCAM {
-    private FileInputStream drillStream;
-    private FileInputStream outlineStream;
     private BufferedReader configReader;
     private PrintStream out;
     private PrintStream outMill;
     private PrintStream outDrill;
     private OutputConfig config;
+    private PolygonStream polygonStream;
+    private final List<Polygon> outlines = new ArrayList<>();
 
     public static void main(String[] args) {
         Locale.setDefault(Locale.US);
@@ -67,11 +77,11 @@ public class MiniCAM {
             File file;
             file = checkParam(string, "--outline=");
             if (file != null) {
-                fileBundle.setInFile(file);
+                fileBundle.addInFile(file);
             }
             file = checkParam(string, "--drill=");
             if (file != null) {
-                fileBundle.setDrillFile(file);
+                fileBundle.addDrillFile(file);
             }
 
             file = checkParam(string, "--config=");
@@ -104,7 +114,8 @@ public class MiniCAM {
     }
 
     private static void usage() {
-        System.out.println("Usage: miniCAM --outline=<outline file> --drill=<drill file> --config=<configuration file> --output=<output file> --output-mill=<output file> --output-drill=<output file>\n");
+        System.out.println("Usage: miniCAM --outline=<outline file> --drill=<drill file> --config=<configuration file> --output=<output file> --output-mill=<output file> --output-drill=<output file>");
+        System.out.println("--outline and --drill may be repeated to process several files as one panel\n");
     }
 
     private static File checkParam(String string, String prefix) {
@@ -118,24 +129,14 @@ public class MiniCAM {
 
         try {
             banner();
-            loadConfiguration(fileBundle);
+            List<DrillGroup> drills = loadInputs(fileBundle);
 
-            System.out.println("Loading drills from " + fileBundle.getDrillFile().getCanonicalPath() + " ...");
-            drillStream = new FileInputStream(fileBundle.getDrillFile().getCanonicalFile());
-            List<DrillGroup> drills = new ExcellonParser(drillStream).parse();
-
-            outlineStream = new FileInputStream(fileBundle.getInFile().getCanonicalFile());
-            System.out.println("Loading outline(s) from " + fileBundle.getInFile().getAbsolutePath() + " ...");
-            Parser parser = new Parser(outlineStream);
-
-            OutlinePlotter simulator = new OutlinePlotter();
-            parser.setSimulator(simulator);
-            parser.Input();
-            
-            Panel panel = new Panel(simulator.getPolygons(), drills);
+            Panel panel = new Panel(polygonStream != null ? polygonStream.getPolygons() : outlines, drills);
             
             System.out.println("Optimizing drill tool path...");
-            DrillStatistics before = panel.process(new PolygonProcessor(config), new DrillProcessor(config));
+            DrillStatistics before = (polygonStream != null)
+                ? panel.process(polygonStream, new DrillProcessor(config))
+                : panel.process(new PolygonProcessor(config), new DrillProcessor(config));
 
             TransformationStatus status = panel.rotateAndCenter(config);
 
@@ -168,10 +169,114 @@ public class MiniCAM {
         }
     }
 
-    private void loadConfiguration(FileBundle fileBundle) throws IOException, FileNotFoundException {
+    // All input files are read and parsed concurrently, outline files wait only for configuration
+    private List<DrillGroup> loadInputs(FileBundle fileBundle) throws IOException {
         System.out.println("Loading configuration from " + fileBundle.getConfigFile().getCanonicalPath() + " ...");
+        for (File file : fileBundle.getDrillFiles()) {
+            System.out.println("Loading drills from " + file.getCanonicalPath() + " ...");
+        }
+        for (File file : fileBundle.getInFiles()) {
+            System.out.println("Loading outline(s) from " + file.getAbsolutePath() + " ...");
+        }
+
+        try (TaskGroup tasks = new TaskGroup()) {
+            Future<OutputConfig> configTask = tasks.fork(() -> loadConfiguration(fileBundle));
+            Future<Consumer<Polygon>> sinkTask = tasks.fork(() -> createOutlineSink(configTask.get()));
+
+            List<Future<List<DrillGroup>>> drillTasks = new ArrayList<>();
+            for (File file : fileBundle.getDrillFiles()) {
+                drillTasks.add(tasks.fork(() -> new ExcellonParser(MappedInput.map(file.getCanonicalFile())).parse()));
+            }
+
+            Future<?> preceding = null;
+            for (File file : fileBundle.getInFiles()) {
+                Future<?> previous = preceding;
+                preceding = tasks.fork(() -> loadOutline(file, sinkTask, previous));
+            }
+
+            tasks.join();
+
+            List<DrillGroup> drills = new ArrayList<>();
+            for (Future<List<DrillGroup>> drillTask : drillTasks) {
+                addDrills(drills, TaskGroup.result(drillTask));
+            }
+            return drills;
+        }
+    }
+
+    private Consumer<Polygon> createOutlineSink(OutputConfig config) {
+        if (config.isStreamOutline()) {
+            polygonStream = new PolygonStream(new PolygonProcessor(config));
+            return polygonStream;
+        }
+        return outlines::add;
+    }
+
+    // Polygons are passed to sink in order of outline files. First file is passed while it is parsed,
+    // others are kept until all preceding files are done.
+    private Void loadOutline(File file, Future<Consumer<Polygon>> sinkTask, Future<?> previous) throws Exception {
+        ByteBuffer outline = MappedInput.load(MappedInput.map(file.getCanonicalFile()));
+        Consumer<Polygon> sink = sinkTask.get();
+        List<Polygon> polygons = new ArrayList<>();
+
+        parseOutline(outline, new OutlinePlotter(previous == null ? sink : polygons::add));
+
+        if (previous != null) {
+            previous.get();
+            polygons.forEach(sink);
+        }
+        return null;
+    }
+
+    // Groups from several drill files are joined by diameter, so each tool is used only once
+    private static void addDrills(List<DrillGroup> drills, List<DrillGroup> groups) {
+        for (DrillGroup group : groups) {
+            DrillGroup existing = drills.stream()
+                .filter(drill -> drill.getDiameter() == group.getDiameter())
+                .findFirst()
+                .orElse(null);
+
+            if (existing == null) {
+                drills.add(group);
+            } else {
+                group.getDrills().forEach(existing::addDrill);
+            }
+        }
+    }
+
+    private void parseOutline(ByteBuffer data, Plotter simulator) throws ParseException {
+        String parserName = config.getGerberParser();
+
+        if ("check".equals(parserName)) {
+            String difference = GerberParserCheck.compare(data);
+            if (difference == null) {
+                System.out.println("Gerber parsers produced identical output");
+                parserName = "fast";
+            } else {
+                System.out.println("WARNING: Gerber parsers differ at " + difference + ", using javacc parser");
+                parserName = "javacc";
+            }
+        }
+
+        if ("javacc".equals(parserName)) {
+            Parser parser = new Parser(MappedInput.asStream(data));
+            parser.setSimulator(simulator);
+            parser.Input();
+            return;
+        }
+
+        if (!"fast".equals(parserName)) {
+            System.out.println("WARNING: unknown Gerber parser '" + parserName + "', using fast parser");
+        }
+        GerberParser parser = new GerberParser(data);
+        parser.setSimulator(simulator);
+        parser.parse();
+    }
+
+    private OutputConfig loadConfiguration(FileBundle fileBundle) throws IOException, FileNotFoundException {
         configReader = new BufferedReader(new InputStreamReader(new FileInputStream(fileBundle.getConfigFile().getCanonicalFile())));
         config = ConfigurationReader.readConfig(configReader);
+        return config;
     }
 
     private void banner() {
@@ -180,8 +285,6 @@ public class MiniCAM {
     }
 
     private void cleanup() {
-        close(drillStream);
-        close(outlineStream);
         close(configReader);
         close(out);
         close(outDrill);
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Runs tasks on virtual threads. First failed task cancels all other tasks of the group and its
+ * exception is rethrown by join(), like StructuredTaskScope with "shut down on failure" policy does
+ * (it is still a preview API). Tasks may wait for results of other tasks of the same group.
+ */
+public class TaskGroup implements AutoCloseable {
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Future<?>> futures = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public <T> Future<T> fork(Callable<T> task) {
+        synchronized (futures) {
+            Future<T> future = executor.submit(() -> {
+                try {
+                    return task.call();
+                } catch (Throwable e) {
+                    fail(e);
+                    throw e;
+                }
+            });
+            futures.add(future);
+            if (failure.get() != null) {
+                future.cancel(true);
+            }
+            return future;
+        }
+    }
+
+    /**
+     * Waits for all forked tasks. If any of them has failed, rethrows its exception once all other
+     * tasks are cancelled.
+     */
+    public void join() throws IOException {
+        int joined = 0;
+        while (true) {
+            Future<?> future;
+            synchronized (futures) {
+                if (joined == futures.size()) {
+                    break;
+                }
+                future = futures.get(joined++);
+            }
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+                throw new InterruptedIOException("Interrupted while waiting for input files");
+            } catch (ExecutionException | RuntimeException e) {
+                // failure is already recorded by the task itself or by the task which cancelled it
+            }
+        }
+        rethrow(failure.get());
+    }
+
+    /**
+     * Result of the task which is known to be completed successfully, i.e. after join().
+     */
+    public static <T> T result(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for completed task", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Task has failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+        executor.close();
+    }
+
+    private void fail(Throwable e) {
+        if (failure.compareAndSet(null, e)) {
+            cancelAll();
+        }
+    }
+
+    private void cancelAll() {
+        synchronized (futures) {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static void rethrow(Throwable e) throws IOException {
+        if (e == null) {
+            return;
+        }
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new IllegalStateException(e);
+    }
+}
@@ -42,10 +42,26 @@ public class OutputConfig {
     public static final String CENTER_BOARD = "output.board.center.panel";
     public static final String ROTATE_BOARD = "output.board.rotate.panel";
     public static final String OPTIMIZATION_LEVEL = "config.optimization.level";
+    public static final String OPTIMIZATION_SEED = "config.optimization.seed";
+    public static final String OPTIMIZATION_THREADS = "config.optimization.threads";
+    public static final String OPTIMIZATION_ALGORITHM = "config.optimization.algorithm";
+    public static final String OPTIMIZATION_CACHE_DIR = "config.optimization.cache.dir";
+    public static final String OPTIMIZATION_CACHE_SIZE = "config.optimization.cache.size.mb";
+    public static final String OPTIMIZATION_TIME = "config.optimization.time.ms";
+    public static final String OPTIMIZATION_MIN_IMPROVEMENT = "config.optimization.min.improvement";
+    public static final String OPTIMIZATION_SEQUENCE = "config.optimization.sequence";
+    public static final String OPTIMIZATION_SEQUENCE_REORDER = "config.optimization.sequence.reorder";
+    public static final String GERBER_PARSER = "config.gerber.parser";
     public static final String DRILL_DEPTH_AUTOADJUST = "config.drills.adjust.depth";
     public static final String DOUBLE_PASS_OUTLINE = "config.outline.double.pass";
+    public static final String STREAM_OUTLINE = "config.outline.streaming";
+    public static final String DETECT_REPEATS = "config.outline.detect.repeats";
+    public static final String STITCH_GAP = "config.outline.stitch.gap";
+    public static final String OUTLINE_JOIN = "config.outline.join";
     public static final String REPLACE_DRILLS_WITH_POLYGONS = "config.mill.large.drills";
     public static final String DRILL_THRESHOLD = "config.mill.large.drills.threshold";
+    public static final String MILL_DRILLS_AS_ARCS = "config.mill.large.drills.arcs";
+    public static final String MILL_DRILLS_PASSES = "config.mill.large.drills.passes";
     public static final String SCALE_X = "config.scale.x";
     public static final String SCALE_Y = "config.scale.y";
     public static final String LINE_SEPARATOR = "config.line.separator";
@@ -70,15 +86,31 @@ public class OutputConfig {
         new NamedVar<Double>(DRILL_THRESHOLD, 2.0),
         new NamedVar<Double>(SCALE_X, 1.0),
         new NamedVar<Double>(SCALE_Y, 1.0),
+        new NamedVar<Double>(OPTIMIZATION_MIN_IMPROVEMENT, 0.01),
+        new NamedVar<Double>(STITCH_GAP, 0.0),
         new NamedVar<Integer>(SPINDLE_SPEED, 60000),
         new NamedVar<Integer>(SPINDLE_DELAY, 5),
         new NamedVar<Integer>(OPTIMIZATION_LEVEL, 5),
+        new NamedVar<Integer>(OPTIMIZATION_SEED, 0),
+        new NamedVar<Integer>(OPTIMIZATION_THREADS, 0),
+        new NamedVar<Integer>(OPTIMIZATION_TIME, 0),
+        new NamedVar<Integer>(OPTIMIZATION_CACHE_SIZE, 64),
+        new NamedVar<Integer>(MILL_DRILLS_PASSES, 1),
         new NamedVar<Boolean>(GENERATE_INNER_CUT, false),
         new NamedVar<Boolean>(ROTATE_BOARD, true),
         new NamedVar<Boolean>(CENTER_BOARD, true),
         new NamedVar<Boolean>(DRILL_DEPTH_AUTOADJUST, true),
         new NamedVar<Boolean>(DOUBLE_PASS_OUTLINE, false),
+        new NamedVar<Boolean>(STREAM_OUTLINE, true),
+        new NamedVar<Boolean>(DETECT_REPEATS, true),
         new NamedVar<Boolean>(REPLACE_DRILLS_WITH_POLYGONS, false),
+        new NamedVar<Boolean>(MILL_DRILLS_AS_ARCS, true),
+        new NamedVar<Boolean>(OPTIMIZATION_SEQUENCE, true),
+        new NamedVar<Boolean>(OPTIMIZATION_SEQUENCE_REORDER, false),
+        new NamedVar<String>(OPTIMIZATION_ALGORITHM, "2opt"),
+        new NamedVar<String>(OPTIMIZATION_CACHE_DIR, ""),
+        new NamedVar<String>(GERBER_PARSER, "fast"),
+        new NamedVar<String>(OUTLINE_JOIN, "miter"),
         new NamedVar<String>(LINE_SEPARATOR, System.lineSeparator()),
     };
 
@@ -225,6 +257,46 @@ public class OutputConfig {
         return get(OPTIMIZATION_LEVEL, Integer.class).getValue();
     }
 
+    public int getOptimizationSeed() {
+        return get(OPTIMIZATION_SEED, Integer.class).getValue();
+    }
+
+    public int getOptimizationThreads() {
+        return get(OPTIMIZATION_THREADS, Integer.class).getValue();
+    }
+
+    public String getOptimizationAlgorithm() {
+        return get(OPTIMIZATION_ALGORITHM, String.class).getValue();
+    }
+
+    public String getOptimizationCacheDir() {
+        return get(OPTIMIZATION_CACHE_DIR, String.class).getValue();
+    }
+
+    public int getOptimizationCacheSize() {
+        return get(OPTIMIZATION_CACHE_SIZE, Integer.class).getValue();
+    }
+
+    public int getOptimizationTime() {
+        return get(OPTIMIZATION_TIME, Integer.class).getValue();
+    }
+
+    public double getOptimizationMinImprovement() {
+        return get(OPTIMIZATION_MIN_IMPROVEMENT, Double.class).getValue();
+    }
+
+    public boolean isSequencePaths() {
+        return get(OPTIMIZATION_SEQUENCE, Boolean.class).getValue();
+    }
+
+    public boolean isSequenceReorder() {
+        return get(OPTIMIZATION_SEQUENCE_REORDER, Boolean.class).getValue();
+    }
+
+    public String getGerberParser() {
+        return get(GERBER_PARSER, String.class).getValue();
+    }
+
     public boolean isAdjustDrillDepth() {
     	return get(DRILL_DEPTH_AUTOADJUST, Boolean.class).getValue();
     }
@@ -237,6 +309,22 @@ public class OutputConfig {
         return get(DOUBLE_PASS_OUTLINE, Boolean.class).getValue();
     }
 
+    public boolean isStreamOutline() {
+        return get(STREAM_OUTLINE, Boolean.class).getValue();
+    }
+
+    public boolean isDetectRepeats() {
+        return get(DETECT_REPEATS, Boolean.class).getValue();
+    }
+
+    public double getStitchGap() {
+        return get(STITCH_GAP, Double.class).getValue();
+    }
+
+    public String getOutlineJoin() {
+        return get(OUTLINE_JOIN, String.class).getValue();
+    }
+
     public boolean isReplaceDrillsWithPolygons() {
         return get(REPLACE_DRILLS_WITH_POLYGONS, Boolean.class).getValue();
     }
@@ -245,6 +333,14 @@ public class OutputConfig {
         return get(DRILL_THRESHOLD, Double.class).getValue();
     }
 
+    public boolean isMillDrillsAsArcs() {
+        return get(MILL_DRILLS_AS_ARCS, Boolean.class).getValue();
+    }
+
+    public int getMillDrillsPasses() {
+        return get(MILL_DRILLS_PASSES, Integer.class).getValue();
+    }
+
     public double getXScale() {
         return get(SCALE_X, Double.class).getValue();
     }
@@ -15,27 +15,58 @@
  ******************************************************************************/
 package com.baremetalstudios.minicam.geometry;
 
-import java.util.ArrayList;
-import java.util.List;
-
+/*
+ * Circle is kept as regular polygon, so it can be processed like any other outline, but it also
+ * remembers its radius, so output can use arc moves instead of vertexes.
+ */
 public class Circle extends Polygon {
+    private final double radius;
+
     public Circle(Point center, double diameter) {
-        super(generateCircle(center, diameter));
+        super(generateCircle(center, diameter), (int) stepCount(diameter) + 1);
+        this.radius = diameter / 2;
         setInner(true);
         setDirection(Direction.CW);
     }
 
-    private static List<Point> generateCircle(Point center, double diameter) {
-        List<Point> result = new ArrayList<>();
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Returns center of the circle with all translations and rotations applied.
+     */
+    public Point getCenter() {
+        return new Point((getMinX() + getMaxX()) / 2, (getMinY() + getMaxY()) / 2);
+    }
+
+    /**
+     * Returns true if vertexes go clockwise around the center.
+     */
+    public boolean isClockwise() {
+        Point center = getCenter();
+        double ax = getX(0) - center.getX();
+        double ay = getY(0) - center.getY();
+        double bx = getX(1) - center.getX();
+        double by = getY(1) - center.getY();
+        return ax * by - ay * bx < 0;
+    }
+
+    private static long stepCount(double diameter) {
+        return (long) (((Math.PI * diameter) / (PRECISION * 4)) + 0.5) * 4;
+    }
+
+    private static double[] generateCircle(Point center, double diameter) {
         double radius = diameter / 2;
-        long numSteps = (long) (((Math.PI * diameter) / (PRECISION * 4)) + 0.5) * 4;
+        long numSteps = stepCount(diameter);
+        double[] result = new double[(int) (numSteps + 1) * 2];
 
         double step = (2.0 * Math.PI) / numSteps;
         double theta = 0;
 
-        for (long i = 0; i <= numSteps; i++, theta += step) {
-            Point point = Point.at(center.getX() + radius * Math.cos(theta), center.getY() - radius * Math.sin(theta));
-            result.add(point);
+        for (int i = 0; i <= numSteps; i++, theta += step) {
+            result[i * 2] = center.getX() + radius * Math.cos(theta);
+            result[i * 2 + 1] = center.getY() - radius * Math.sin(theta);
         }
         return result;
     }
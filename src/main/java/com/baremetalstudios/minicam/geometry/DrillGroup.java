@@ -15,23 +15,37 @@
  ******************************************************************************/
 package com.baremetalstudios.minicam.geometry;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
 
 import com.baremetalstudios.minicam.config.OutputConfig;
-
+import com.baremetalstudios.minicam.optimizer.DrillPathOptimizer;
+import com.baremetalstudios.minicam.optimizer.DrillPathOptimizers;
+
+/*
+ * Drill coordinates are kept in two parallel arrays, points are only materialized on request
+ * by the read-only list returned from getDrills(). Translations and rotations are only composed
+ * into the transform, which is applied when coordinates are read. Drills are moved for real only
+ * when group is modified or its path is optimized.
+ */
 public class DrillGroup implements Transformable {
-    private final List<Point> drills = new ArrayList<Point>();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private int size;
+    private Transform transform = Transform.IDENTITY;
     private final String id;
     private double diameter;
     private int ordinal;
-    private Random random = new Random(0);
 
     public DrillGroup(String id, double diameter, List<Point> drills) {
         this(id, diameter);
-        this.drills.addAll(drills);
+        drills.forEach(this::addDrill);
     }
 
     public DrillGroup(String id, double diameter) {
@@ -41,103 +55,259 @@ public class DrillGroup implements Transformable {
 
     @Override
     public void translate(double dX, double dY) {
-        drills.forEach(point -> point.translate(dX, dY));
+        transform = transform.translated(dX, dY);
     }
 
     @Override
     public void rotate90(Direction direction) {
-        drills.forEach(point -> point.rotate90(direction));
+        transform = transform.rotated90(direction);
+    }
+
+    private void materialize() {
+        if (transform.isIdentity()) {
+            return;
+        }
+        double[] x = new double[xs.length];
+        double[] y = new double[ys.length];
+        for (int i = 0; i < size; i++) {
+            x[i] = transform.x(xs[i], ys[i]);
+            y[i] = transform.y(xs[i], ys[i]);
+        }
+        xs = x;
+        ys = y;
+        transform = Transform.IDENTITY;
     }
 
     public double getDiameter() {
         return diameter;
     }
 
+    /**
+     * Returns read-only view of drills. Points are created on access, so changes made to them
+     * are not reflected in the group.
+     */
     public List<Point> getDrills() {
-        return drills;
+        return new DrillList();
     }
 
-    public void addDrill(Point point) {
-        drills.add(point);
+    public int size() {
+        return size;
     }
 
-    public void optimize(OutputConfig config) {
-        sortDrills();
-        optimizeStep1(config);
-        optimizeStep2(config);
+    public double getX(int idx) {
+        Objects.checkIndex(idx, size);
+        return transform.isIdentity() ? xs[idx] : transform.x(xs[idx], ys[idx]);
     }
 
-    private void optimizeStep2(OutputConfig config) {
-        List<Point> generation = new ArrayList<>(drills);
+    public double getY(int idx) {
+        Objects.checkIndex(idx, size);
+        return transform.isIdentity() ? ys[idx] : transform.y(xs[idx], ys[idx]);
+    }
+
+    public void addDrill(Point point) {
+        addDrill(point.getX(), point.getY());
+    }
 
-        double pathLength = calculatePathLenght(generation);
+    public void addDrill(double x, double y) {
+        materialize();
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+    }
 
-        int scale = 16 * config.getOptimizationLevel();
+    public void optimize(OutputConfig config) {
+        optimize(DrillPathOptimizers.forName(config.getOptimizationAlgorithm()), config,
+                 System.nanoTime() + config.getOptimizationTime() * 1_000_000L);
+    }
 
-        for (int i = 0; i < (generation.size() * scale); i++) {
-            List<Point> temp2 = new ArrayList<>(generation);
+    /**
+     * Optimizes drill path with given optimizer. Result is accepted only if it's not longer than
+     * the drills sorted by coordinates.
+     *
+     * @param deadline time (in terms of {@link System#nanoTime()}) when optimization must be
+     *                 finished, used only if time budget is configured
+     */
+    public void optimize(DrillPathOptimizer optimizer, OutputConfig config, long deadline) {
+        materialize();
+        sortDrills();
 
-            int p1 = random.nextInt(temp2.size());
-            int p2 = random.nextInt(temp2.size());
+        double[] x = Arrays.copyOf(xs, size);
+        double[] y = Arrays.copyOf(ys, size);
+        int[] order = optimizer.optimize(x, y, config, deadline);
 
-            Point save1 = temp2.get(p1);
-            Point save2 = temp2.get(p2);
-            temp2.set(p1, save2);
-            temp2.set(p2, save1);
+        if (order.length == size && pathLength(x, y, order) <= calculatePathLenght()) {
+            reorder(order);
+        }
+    }
 
-            double tmpLen = calculatePathLenght(temp2);
+    /**
+     * Optimizes drill group which consists of copies of the same cluster of drills, one per
+     * instance of given board. Only path through drills inside board template is optimized,
+     * copies are then chained greedily, each one is entered the same way as {@link #reorder(Point)}
+     * does, from the end of the previous copy. Finally local search fixes joints between copies.
+     * Group is optimized regularly as well and chained path is used only if it's shorter. Copies
+     * must be translated ones, like instances of the board are.
+     *
+     * @return false if drills are not copies of one cluster, group is left unchanged then
+     */
+    public boolean optimizeRepeated(Polygon board, DrillPathOptimizer optimizer, OutputConfig config, long deadline) {
+        List<Point> translations = board.getTranslations();
+        int copies = translations.size();
+
+        if (size == 0 || copies < 2 || size % copies != 0) {
+            return false;
+        }
+        materialize();
 
-            if (tmpLen < pathLength) {
-                generation = temp2;
-                pathLength = tmpLen;
+        DrillGroup cluster = new DrillGroup(id, diameter);
+        for (int i = 0; i < size; i++) {
+            if (isInside(board, xs[i], ys[i])) {
+                cluster.addDrill(xs[i], ys[i]);
             }
         }
 
-        drills.clear();
-        drills.addAll(generation);
-    }
+        if (cluster.size * copies != size || matchCopies(cluster, translations) == null) {
+            return false;
+        }
 
-    private void optimizeStep1(OutputConfig config) {
-        double pathLength = calculatePathLenght();
-        List<Point> generation = new ArrayList<>(drills);
-        int totalAttempts =
-                            (int) Math.round(generation.size() *
-                                             2 *
-                                             (config.getOptimizationLevel() / 18.0));
-        for (int i = 0; i < totalAttempts; i++) {
-            List<Point> newDrills = oneTry(new ArrayList<>(generation));
+        // with time budget cluster and joints get share of one copy each, rest is left for the whole group
+        long start = System.nanoTime();
+        long share = Math.max(0, deadline - start) / (copies + 1);
+        cluster.optimize(optimizer, config, start + share);
+        int[] order = chainCopies(cluster, translations, matchCopies(cluster, translations));
+
+        // joints between copies are polished by the same local search which optimizers use
+        double[] x = Arrays.copyOf(xs, size);
+        double[] y = Arrays.copyOf(ys, size);
+        LocalSearch search = new LocalSearch(x, y);
+        if (config.getOptimizationTime() > 0) {
+            search.improve(order, Integer.MAX_VALUE, start + 2 * share);
+        } else {
+            search.improve(order, Integer.MAX_VALUE);
+        }
 
-            double tmpLen = calculatePathLenght(newDrills);
+        optimize(optimizer, config, deadline);
+        if (pathLength(x, y, order) < calculatePathLenght()) {
+            xs = x;
+            ys = y;
+            reorder(order);
+        }
+        return true;
+    }
 
-            if (tmpLen < pathLength) {
-                generation = newDrills;
-                pathLength = tmpLen;
+    // Path through copies of the cluster as indexes of drills of this group
+    private int[] chainCopies(DrillGroup cluster, List<Point> translations, int[] drills) {
+        int copies = translations.size();
+        int n = cluster.size;
+        int[] order = new int[size];
+        boolean[] used = new boolean[copies];
+        double lastX = cluster.xs[0] + translations.get(0).getX();
+        double lastY = cluster.ys[0] + translations.get(0).getY();
+        int pos = 0;
+
+        for (int step = 0; step < copies; step++) {
+            int next = -1;
+            Entry best = null;
+
+            for (int i = 0; i < copies; i++) {
+                if (used[i]) {
+                    continue;
+                }
+                Point translation = translations.get(i);
+                Entry entry = cluster.findEntry(new Point(lastX - translation.getX(), lastY - translation.getY()));
+
+                if (best == null || entry.cost < best.cost) {
+                    best = entry;
+                    next = i;
+                }
             }
+
+            used[next] = true;
+            for (int i = 0; i < n; i++) {
+                int idx = best.reversed ? (best.index - i + n) % n : (best.index + i) % n;
+                order[pos++] = drills[next * n + idx];
+            }
+            lastX = xs[order[pos - 1]];
+            lastY = ys[order[pos - 1]];
         }
+        return order;
+    }
 
-        drills.clear();
-        drills.addAll(generation);
+    private static boolean isInside(Polygon board, double x, double y) {
+        return x > board.getMinX() - Polygon.PRECISION && x < board.getMaxX() + Polygon.PRECISION
+               && y > board.getMinY() - Polygon.PRECISION && y < board.getMaxY() + Polygon.PRECISION;
     }
 
-    private List<Point> oneTry(List<Point> list) {
-        List<Point> generation = new ArrayList<>();
+    // Every drill must match exactly one drill of exactly one copy of the cluster. Returns index of
+    // the drill matching drill i of copy c at c * cluster.size + i, null if drills are not copies.
+    private int[] matchCopies(DrillGroup cluster, List<Point> translations) {
+        PointIndex index = new PointIndex(Arrays.copyOf(xs, size), Arrays.copyOf(ys, size));
+        int[] result = new int[size];
+        int pos = 0;
+
+        for (Point translation : translations) {
+            for (int i = 0; i < cluster.size; i++) {
+                double x = cluster.xs[i] + translation.getX();
+                double y = cluster.ys[i] + translation.getY();
+                int idx = index.nearest(x, y);
+
+                if (idx < 0 || Math.hypot(xs[idx] - x, ys[idx] - y) > Polygon.MATCH_TOLERANCE) {
+                    return null;
+                }
+                index.remove(idx);
+                result[pos++] = idx;
+            }
+        }
+        return result;
+    }
 
-        Point point = list.remove(random.nextInt(list.size()));
-        while (!list.isEmpty()) {
-            generation.add(point);
-            point = list.remove(Point.findNearest(point, list, false));
+    private static double pathLength(double[] xs, double[] ys, int[] order) {
+        double result = 0;
+        for (int i = 1; i < order.length; i++) {
+            result += distance(xs, ys, order[i - 1], order[i]);
         }
-        generation.add(point);
+        return result;
+    }
 
-        return generation;
+    private static double distance(double[] xs, double[] ys, int i, int j) {
+        double dx = xs[i] - xs[j];
+        double dy = ys[i] - ys[j];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private double distance(Point point, int i) {
+        double dx = getX(i) - point.getX();
+        double dy = getY(i) - point.getY();
+        return Math.sqrt(dx * dx + dy * dy);
     }
 
     private void sortDrills() {
-        drills.sort((o1, o2) -> {
-            double d = o1.getX() - o2.getX();
-            d = (d == 0) ? (o1.getY() - o2.getY()) : d;
-            return (int) Math.signum(d);
-        });
+        int[] order = IntStream.range(0, size)
+                               .boxed()
+                               .sorted((i1, i2) -> {
+                                   double d = xs[i1] - xs[i2];
+                                   d = (d == 0) ? (ys[i1] - ys[i2]) : d;
+                                   return (int) Math.signum(d);
+                               })
+                               .mapToInt(Integer::intValue)
+                               .toArray();
+        reorder(order);
+    }
+
+    // Rearranges drills so drill with index order[i] becomes i-th drill
+    private void reorder(int[] order) {
+        double[] x = new double[xs.length];
+        double[] y = new double[ys.length];
+        for (int i = 0; i < size; i++) {
+            x[i] = xs[order[i]];
+            y[i] = ys[order[i]];
+        }
+        xs = x;
+        ys = y;
     }
 
     public String getId() {
@@ -157,37 +327,102 @@ public class DrillGroup implements Transformable {
     }
 
     public double calculatePathLenght() {
-        return calculatePathLenght(drills);
-    }
-
-    private double calculatePathLenght(List<Point> list) {
-        Point prev = null;
         double result = 0;
-
-        for (Point point : list) {
-            if (prev != null) {
-                result += Point.distance(prev, point);
-            }
-            prev = point;
+        for (int i = 1; i < size; i++) {
+            result += distance(xs, ys, i - 1, i);
         }
         return result;
     }
 
+    /**
+     * Rotates and/or reverses drill path so it starts near given point. Rotation closes the path
+     * into a loop and opens it at another edge, so entry is chosen by the sum of the move from
+     * start point and the change of the path length.
+     *
+     * @return last point of the path
+     */
     public Point reorder(Point start) {
-        int idx = Point.findNearest(start, drills, false);
-        if (idx > 0) {
-            Collections.rotate(drills, -idx);
+        if (size == 0) {
+            return start;
+        }
+
+        materialize();
+        Entry entry = findEntry(start);
+        int[] order = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            order[i] = entry.reversed ? (entry.index - i + size) % size : (entry.index + i) % size;
         }
-        return drills.get(drills.size() - 1);
+        reorder(order);
+        return new Point(xs[size - 1], ys[size - 1]);
+    }
+
+    /**
+     * Returns cost of entering this drill path from given point, i.e. move to the path start
+     * plus path length change caused by {@link #reorder(Point)}.
+     */
+    public double entryCost(Point start) {
+        return (size == 0) ? 0 : findEntry(start).cost;
+    }
+
+    // group is not materialized here: transform only translates and rotates by 90 degrees, so
+    // distances between drills are the same, only move from start point uses transformed drill
+    private Entry findEntry(Point start) {
+        int n = size;
+        double closing = distance(xs, ys, 0, n - 1);
+        Entry best = new Entry(0, false, distance(start, 0));
+
+        for (int k = 0; k < n; k++) {
+            double move = distance(start, k);
+
+            // path k, k+1 .. n-1, 0 .. k-1
+            if (k > 0) {
+                best = best.best(k, false, move + closing - distance(xs, ys, k - 1, k));
+            }
+            // path k, k-1 .. 0, n-1 .. k+1
+            double opened = (k < n - 1) ? closing - distance(xs, ys, k, k + 1) : 0;
+            best = best.best(k, true, move + opened);
+        }
+        return best;
     }
 
     public boolean isEmpty() {
-        return drills.isEmpty();
+        return size == 0;
     }
 
 	public void scaleDown() {
-		for (Point point : drills) {
-			point.scaleDown();
+		materialize();
+		for (int i = 0; i < size; i++) {
+			xs[i] /= 10;
+			ys[i] /= 10;
 		}
 	}
+
+    private class DrillList extends AbstractList<Point> implements RandomAccess {
+        @Override
+        public Point get(int index) {
+            return new Point(getX(index), getY(index));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private static class Entry {
+        private final int index;
+        private final boolean reversed;
+        private final double cost;
+
+        Entry(int index, boolean reversed, double cost) {
+            this.index = index;
+            this.reversed = reversed;
+            this.cost = cost;
+        }
+
+        Entry best(int index, boolean reversed, double cost) {
+            return cost < this.cost - Polygon.PRECISION ? new Entry(index, reversed, cost) : this;
+        }
+    }
 }
@@ -0,0 +1,518 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.geometry;
+
+import java.util.Arrays;
+
+/*
+ * 2-opt and Or-opt local search over an open drill path.
+ *
+ * The open path is handled as a closed tour with one extra "dummy" node which is at zero distance
+ * from every other node, so moving path ends is just another 2-opt move. Candidate moves are
+ * limited to K nearest neighbours of each node and each move gain is computed in O(1) from the
+ * endpoints of the removed/added edges. Tour is kept as an array with position index, moves
+ * are applied in place by reversing the shorter side of the tour.
+ *
+ * Nodes waiting for check are kept in a queue (don't look bits), so after small local change of
+ * already optimized path only nodes around the change need to be queued.
+ *
+ * For iterated local search path can be loaded once with begin(). Path length is then tracked by
+ * gains of applied moves and every reversal is recorded, so rejected round is rolled back by
+ * replaying reversals of that round only. Cost of the round depends on the changed part of the path,
+ * not on the number of drills.
+ */
+public class LocalSearch {
+    public static final int DEFAULT_NEIGHBOURS = 10;
+    private static final int MAX_SEGMENT = 3;
+    private static final double EPSILON = 1e-9;
+    private static final int DEADLINE_CHECK_INTERVAL = 256;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final int dummy;
+    private final int size;
+    private final int[][] neighbours;
+
+    private final int[] tour;
+    private final int[] pos;
+    private double length;
+
+    // reversals applied since last commit, as pairs (first position, length)
+    private boolean journaling;
+    private int[] journal = new int[64];
+    private int journalSize;
+    private double committedLength;
+
+    private int[] queue;
+    private boolean[] queued;
+    private int queueHead;
+    private int queueSize;
+
+    private boolean hasDeadline;
+    private long deadline;
+
+    public LocalSearch(double[] xs, double[] ys) {
+        this(xs, ys, DEFAULT_NEIGHBOURS);
+    }
+
+    public LocalSearch(double[] xs, double[] ys, int numNeighbours) {
+        this.xs = xs;
+        this.ys = ys;
+        this.dummy = xs.length;
+        this.size = xs.length + 1;
+        this.neighbours = buildNeighbours(numNeighbours);
+        this.tour = new int[size];
+        this.pos = new int[size];
+        this.queue = new int[size];
+        this.queued = new boolean[size];
+    }
+
+    /**
+     * Improves path given as sequence of node indexes. Array is updated in place.
+     *
+     * @return number of improving moves applied
+     */
+    public int improve(int[] order, int maxPasses) {
+        hasDeadline = false;
+        return run(order, maxPasses);
+    }
+
+    /**
+     * Same as {@link #improve(int[], int)}, but stops once {@link System#nanoTime()} passes
+     * given deadline. Path is left in the state reached so far.
+     */
+    public int improve(int[] order, int maxPasses, long deadline) {
+        this.hasDeadline = true;
+        this.deadline = deadline;
+        return run(order, maxPasses);
+    }
+
+    /**
+     * Improves path which differs from locally optimal one only around given nodes. Only these
+     * nodes and their neighbours are checked initially, others are checked only if some move
+     * touches them. Stops once {@link System#nanoTime()} passes given deadline.
+     *
+     * @return number of improving moves applied
+     */
+    public int improveAround(int[] order, long deadline, int... nodes) {
+        if (order.length < 3) {
+            return 0;
+        }
+        this.hasDeadline = true;
+        this.deadline = deadline;
+
+        load(order);
+        clearQueue();
+        for (int node : nodes) {
+            push(node);
+            push(neighbours[node]);
+        }
+        int moves = processQueue();
+        store(order);
+        return moves;
+    }
+
+    /**
+     * Loads path for iterated local search. Path is kept until {@link #store(int[])}, changes made by
+     * {@link #swapSegments(int, int, int)} and {@link #improveAround(long, int...)} are either
+     * accepted by {@link #commit()} or undone by {@link #rollback()}.
+     */
+    public void begin(int[] order) {
+        load(order);
+        journaling = true;
+        commit();
+    }
+
+    /**
+     * Length of the loaded path, tracked by gains of applied moves.
+     */
+    public double length() {
+        return length;
+    }
+
+    /**
+     * Swaps two adjacent segments of the loaded path: segment of {@code first} nodes starting at path
+     * position {@code from} and following segment of {@code second} nodes. Segments must not cover
+     * the whole path.
+     *
+     * @return nodes at the changed edges
+     */
+    public int[] swapSegments(int from, int first, int second) {
+        int start = pos[dummy] + 1;
+        int s1 = tour[(start + from) % size];
+        int sk = tour[(start + from + first - 1) % size];
+        int nx = tour[(start + from + first) % size];
+        int bk = tour[(start + from + first + second - 1) % size];
+        int p = pred(s1);
+        int e = succ(bk);
+
+        length += distance(p, nx) + distance(bk, s1) + distance(sk, e)
+                  - distance(p, s1) - distance(sk, nx) - distance(bk, e);
+
+        if (first == 1 && second == 1) {
+            move(p, s1, nx, e);
+        } else if (second == 1) {
+            // single node is moved in front of the first segment
+            move(sk, nx, p, s1);
+            move(sk, p, e, nx);
+        } else {
+            // first segment is moved behind the second one
+            move(p, s1, bk, e);
+            move(p, bk, nx, sk);
+            if (sk != s1) {
+                move(bk, sk, s1, e);
+            }
+        }
+        return new int[] {p, s1, sk, nx, bk, e};
+    }
+
+    /**
+     * Same as {@link #improveAround(int[], long, int...)}, but for the path loaded by
+     * {@link #begin(int[])}.
+     */
+    public int improveAround(long deadline, int... nodes) {
+        if (size < 4) {
+            return 0;
+        }
+        this.hasDeadline = true;
+        this.deadline = deadline;
+
+        clearQueue();
+        for (int node : nodes) {
+            push(node);
+            push(neighbours[node]);
+        }
+        return processQueue();
+    }
+
+    /**
+     * Accepts changes of the loaded path made since last commit.
+     */
+    public void commit() {
+        journalSize = 0;
+        committedLength = length;
+    }
+
+    /**
+     * Undoes changes of the loaded path made since last commit.
+     */
+    public void rollback() {
+        for (int k = journalSize - 2; k >= 0; k -= 2) {
+            swap(journal[k], journal[k + 1]);
+        }
+        journalSize = 0;
+        length = committedLength;
+    }
+
+    /**
+     * Writes loaded path into given array and ends iterated local search.
+     */
+    public void store(int[] order) {
+        journaling = false;
+        int start = pos[dummy] + 1;
+        for (int i = 0; i < order.length; i++) {
+            order[i] = tour[(start + i) % size];
+        }
+    }
+
+    private int run(int[] order, int maxPasses) {
+        if (order.length < 3 || maxPasses <= 0) {
+            return 0;
+        }
+
+        load(order);
+
+        int moves = 0;
+        for (int pass = 0; pass < maxPasses; pass++) {
+            int passMoves = runPass();
+            moves += passMoves;
+            if (passMoves == 0 || isExpired()) {
+                break;
+            }
+        }
+
+        store(order);
+        return moves;
+    }
+
+    public double pathLength(int[] order) {
+        double result = 0;
+        for (int i = 1; i < order.length; i++) {
+            result += distance(order[i - 1], order[i]);
+        }
+        return result;
+    }
+
+    private void load(int[] order) {
+        journaling = false;
+        System.arraycopy(order, 0, tour, 0, order.length);
+        tour[size - 1] = dummy;
+        for (int i = 0; i < size; i++) {
+            pos[tour[i]] = i;
+        }
+        length = pathLength(order);
+    }
+
+    private int runPass() {
+        clearQueue();
+        for (int node : tour) {
+            push(node);
+        }
+        return processQueue();
+    }
+
+    // queue may be left non-empty if previous run has reached deadline
+    private void clearQueue() {
+        while (queueSize > 0) {
+            pop();
+        }
+        queueHead = 0;
+    }
+
+    private int processQueue() {
+        int moves = 0;
+        int processed = 0;
+        while (queueSize > 0) {
+            if (++processed % DEADLINE_CHECK_INTERVAL == 0 && isExpired()) {
+                break;
+            }
+            int node = pop();
+
+            while (twoOpt(node) || orOpt(node)) {
+                moves++;
+            }
+        }
+        return moves;
+    }
+
+    private boolean twoOpt(int a) {
+        return twoOpt(a, true) || twoOpt(a, false);
+    }
+
+    private boolean twoOpt(int a, boolean forward) {
+        int b = forward ? succ(a) : pred(a);
+        double dab = distance(a, b);
+
+        for (int c : neighbours[a]) {
+            double g1 = dab - distance(a, c);
+            if (g1 <= EPSILON) {
+                break;
+            }
+
+            int d = forward ? succ(c) : pred(c);
+            if (c == b || d == a) {
+                continue;
+            }
+
+            double gain = g1 + distance(c, d) - distance(b, d);
+            if (gain > EPSILON) {
+                length -= gain;
+                if (forward) {
+                    move(a, b, c, d);
+                } else {
+                    move(b, a, d, c);
+                }
+                push(a, b, c, d);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean orOpt(int s1) {
+        if (s1 == dummy) {
+            return false;
+        }
+
+        int sk = s1;
+        for (int k = 1; k <= MAX_SEGMENT; k++) {
+            if (k > 1) {
+                sk = succ(sk);
+                if (sk == s1 || sk == dummy) {
+                    return false;
+                }
+            }
+            int p = pred(s1);
+            int nx = succ(sk);
+            if (p == sk || nx == s1 || p == nx) {
+                return false;
+            }
+
+            double removeGain = distance(p, s1) + distance(sk, nx) - distance(p, nx);
+            if (removeGain <= EPSILON) {
+                continue;
+            }
+
+            if (tryInsert(s1, sk, k, p, nx, removeGain, s1) || tryInsert(s1, sk, k, p, nx, removeGain, sk)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean tryInsert(int s1, int sk, int k, int p, int nx, double removeGain, int end) {
+        for (int g : neighbours[end]) {
+            if (removeGain - distance(end, g) <= EPSILON) {
+                break;
+            }
+            if (inSegment(g, s1, k)) {
+                continue;
+            }
+
+            if (tryInsertBetween(s1, sk, k, p, nx, removeGain, g, succ(g))
+                || tryInsertBetween(s1, sk, k, p, nx, removeGain, pred(g), g)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean tryInsertBetween(int s1, int sk, int k, int p, int nx, double removeGain, int c, int e) {
+        if (c == p || e == p || c == nx || inSegment(c, s1, k) || inSegment(e, s1, k)) {
+            return false;
+        }
+
+        double dce = distance(c, e);
+        double keep = distance(c, s1) + distance(sk, e);
+        double reversed = distance(c, sk) + distance(s1, e);
+        boolean reverse = reversed < keep;
+        double gain = removeGain + dce - (reverse ? reversed : keep);
+
+        if (gain <= EPSILON) {
+            return false;
+        }
+        length -= gain;
+
+        // insert segment between c and e using three consecutive 2-opt moves
+        move(p, s1, c, e);
+        move(p, c, nx, sk);
+        if (!reverse && sk != s1) {
+            move(c, sk, s1, e);
+        }
+        push(p, nx, c, e, s1, sk);
+        return true;
+    }
+
+    private boolean inSegment(int node, int s1, int k) {
+        int current = s1;
+        for (int i = 0; i < k; i++) {
+            if (current == node) {
+                return true;
+            }
+            current = succ(current);
+        }
+        return false;
+    }
+
+    // Removes edges (t1, t2) and (t3, t4) and adds (t1, t3) and (t2, t4)
+    private void move(int t1, int t2, int t3, int t4) {
+        if (succ(t1) == t2) {
+            reverse(t2, t3);
+        } else {
+            reverse(t3, t2);
+        }
+    }
+
+    private void reverse(int from, int to) {
+        int i = pos[from];
+        int j = pos[to];
+        int len = ((j - i + size) % size) + 1;
+
+        if (len * 2 > size) {
+            i = (j + 1) % size;
+            len = size - len;
+        }
+
+        if (journaling) {
+            record(i, len);
+        }
+        swap(i, len);
+    }
+
+    // reverses len tour positions starting at i, applying it twice restores the tour
+    private void swap(int i, int len) {
+        int j = (i + len - 1) % size;
+        for (int s = 0; s < len / 2; s++) {
+            int ii = (i + s) % size;
+            int jj = (j - s + size) % size;
+            int tmp = tour[ii];
+            tour[ii] = tour[jj];
+            tour[jj] = tmp;
+            pos[tour[ii]] = ii;
+            pos[tour[jj]] = jj;
+        }
+    }
+
+    private void record(int i, int len) {
+        if (journalSize + 2 > journal.length) {
+            journal = Arrays.copyOf(journal, journal.length * 2);
+        }
+        journal[journalSize++] = i;
+        journal[journalSize++] = len;
+    }
+
+    private boolean isExpired() {
+        return hasDeadline && System.nanoTime() - deadline >= 0;
+    }
+
+    private int succ(int node) {
+        int idx = pos[node] + 1;
+        return tour[idx == size ? 0 : idx];
+    }
+
+    private int pred(int node) {
+        int idx = pos[node] - 1;
+        return tour[idx < 0 ? size - 1 : idx];
+    }
+
+    private double distance(int a, int b) {
+        if (a == dummy || b == dummy) {
+            return 0;
+        }
+        double dx = xs[a] - xs[b];
+        double dy = ys[a] - ys[b];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private void push(int... nodes) {
+        for (int node : nodes) {
+            if (node != dummy && !queued[node]) {
+                queued[node] = true;
+                queue[(queueHead + queueSize) % size] = node;
+                queueSize++;
+            }
+        }
+    }
+
+    private int pop() {
+        int node = queue[queueHead];
+        queueHead = (queueHead + 1) % size;
+        queueSize--;
+        queued[node] = false;
+        return node;
+    }
+
+    private int[][] buildNeighbours(int numNeighbours) {
+        int[][] result = new int[size][];
+        result[dummy] = new int[0];
+
+        PointIndex index = new PointIndex(xs, ys);
+        for (int i = 0; i < dummy; i++) {
+            result[i] = index.neighbours(i, numNeighbours);
+        }
+        return result;
+    }
+}
@@ -22,7 +22,10 @@ import java.util.List;
 import com.baremetalstudios.minicam.config.OutputConfig;
 import com.baremetalstudios.minicam.processor.DrillProcessor;
 import com.baremetalstudios.minicam.processor.OutputGenerator;
+import com.baremetalstudios.minicam.processor.PathSequencer;
 import com.baremetalstudios.minicam.processor.PolygonProcessor;
+import com.baremetalstudios.minicam.processor.PolygonStream;
+import com.baremetalstudios.minicam.processor.RepeatDetector;
 
 public class Panel implements Transformable {
     private List<Polygon> outlines;
@@ -55,11 +58,11 @@ public class Panel implements Transformable {
 	}
 
 	private boolean checkDrills(DrillGroup drillGroup, Point size) {
-		for (Point drill : drillGroup.getDrills()) {
-			if (drill.getX() > size.getX() * 8) {
+		for (int i = 0; i < drillGroup.size(); i++) {
+			if (drillGroup.getX(i) > size.getX() * 8) {
 				return true;
 			}
-			if (drill.getY() > size.getY() * 8) {
+			if (drillGroup.getY(i) > size.getY() * 8) {
 				return true;
 			}
 		}
@@ -80,11 +83,24 @@ public class Panel implements Transformable {
 
     public DrillStatistics process(PolygonProcessor polygonProcessor,
                                    DrillProcessor drillProcessor) {
-        outlines = polygonProcessor.process(outlines, drills, getCenter());
+        Point center = getCenter();
+        outlines = polygonProcessor.process(outlines, drills, center);
+        return processDrills(drillProcessor, center);
+    }
+
+    public DrillStatistics process(PolygonStream polygonStream,
+                                   DrillProcessor drillProcessor) {
+        Point center = getCenter();
+        outlines = polygonStream.process(drills, center);
+        return processDrills(drillProcessor, center);
+    }
+
+    private DrillStatistics processDrills(DrillProcessor drillProcessor, Point center) {
         replaceDrillsWithPolygons(drillProcessor);
         drills = drillProcessor.process(drills);
         DrillStatistics before = getDrillStats();
-        drills = drillProcessor.optimize(drills);
+        drills = drillProcessor.optimize(drills, RepeatDetector.findRepeatedBoard(outlines));
+        new PathSequencer(drillProcessor.getConfig()).sequence(outlines, drills, center);
         return before;
     }
 
@@ -162,7 +178,9 @@ public class Panel implements Transformable {
 
         for (Polygon polygon : outlines) {
             if (!polygon.isInner()) {
-                result.add(new Point(polygon.getSizeX(), polygon.sizeY()));
+                for (int i = 0; i < polygon.getInstanceCount(); i++) {
+                    result.add(new Point(polygon.getSizeX(), polygon.sizeY()));
+                }
             }
         }
         return result;
@@ -173,8 +191,8 @@ public class Panel implements Transformable {
         double minY = Double.MAX_VALUE;
 
         for (Polygon polygon : outlines) {
-            minX = Math.min(polygon.getMinX(), minX);
-            minY = Math.min(polygon.getMinY(), minY);
+            minX = Math.min(polygon.getExtentMinX(), minX);
+            minY = Math.min(polygon.getExtentMinY(), minY);
         }
 
         return new Point(minX, minY);
@@ -187,10 +205,10 @@ public class Panel implements Transformable {
         double maxY = Double.MIN_VALUE;
 
         for (Polygon polygon : outlines) {
-            minX = Math.min(polygon.getMinX(), minX);
-            minY = Math.min(polygon.getMinY(), minY);
-            maxX = Math.max(polygon.getMaxX(), maxX);
-            maxY = Math.max(polygon.getMaxY(), maxY);
+            minX = Math.min(polygon.getExtentMinX(), minX);
+            minY = Math.min(polygon.getExtentMinY(), minY);
+            maxX = Math.max(polygon.getExtentMaxX(), maxX);
+            maxY = Math.max(polygon.getExtentMaxY(), maxY);
         }
 
         return new Point(maxX - minX, maxY - minY);
@@ -87,7 +87,9 @@ public class Point implements Transformable {
 
         int i = 0;
         for (Point point : list) {
-            double distance = distance(point, base);
+            double dx = point.x - base.x;
+            double dy = point.y - base.y;
+            double distance = dx * dx + dy * dy;
             if (distance < candidateDistance) {
                 idx = i;
                 candidateDistance = distance;
@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.geometry;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Uniform grid over a fixed set of points, addressed by their index. Points can be removed and
+ * restored, which makes it suitable for greedy tour construction. Nearest neighbour queries
+ * scan grid cells in growing square rings around the query point and stop once no unscanned
+ * ring can contain a closer point.
+ */
+public class PointIndex {
+    private static final int POINTS_PER_CELL = 2;
+
+    private final double[] xs;
+    private final double[] ys;
+
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+
+    private final int[] heads;
+    private final int[] next;
+    private final int[] prev;
+    private final int[] cells;
+    private final boolean[] present;
+    private int size;
+
+    public PointIndex(double[] xs, double[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+
+        int count = xs.length;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        double lowX = Double.MAX_VALUE;
+        double lowY = Double.MAX_VALUE;
+
+        for (int i = 0; i < count; i++) {
+            lowX = Math.min(lowX, xs[i]);
+            lowY = Math.min(lowY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        if (count == 0) {
+            lowX = lowY = maxX = maxY = 0;
+        }
+
+        double width = Math.max(maxX - lowX, Polygon.PRECISION);
+        double height = Math.max(maxY - lowY, Polygon.PRECISION);
+        double cell = Math.sqrt(width * height * POINTS_PER_CELL / Math.max(count, 1));
+        cell = Math.max(cell, Math.max(width, height) / Math.max(count, 1));
+
+        this.minX = lowX;
+        this.minY = lowY;
+        this.cellSize = cell;
+        this.columns = (int) (width / cell) + 1;
+        this.rows = (int) (height / cell) + 1;
+
+        this.heads = new int[columns * rows];
+        this.next = new int[count];
+        this.prev = new int[count];
+        this.cells = new int[count];
+        this.present = new boolean[count];
+
+        for (int i = 0; i < count; i++) {
+            cells[i] = column(xs[i]) + row(ys[i]) * columns;
+        }
+        restore();
+    }
+
+    public static PointIndex of(List<Point> points) {
+        double[] xs = new double[points.size()];
+        double[] ys = new double[points.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = points.get(i).getX();
+            ys[i] = points.get(i).getY();
+        }
+        return new PointIndex(xs, ys);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int idx) {
+        return present[idx];
+    }
+
+    public void restore() {
+        Arrays.fill(heads, -1);
+        Arrays.fill(present, false);
+        size = 0;
+        for (int i = xs.length - 1; i >= 0; i--) {
+            insert(i);
+        }
+    }
+
+    public void remove(int idx) {
+        if (!present[idx]) {
+            return;
+        }
+        if (prev[idx] >= 0) {
+            next[prev[idx]] = next[idx];
+        } else {
+            heads[cells[idx]] = next[idx];
+        }
+        if (next[idx] >= 0) {
+            prev[next[idx]] = prev[idx];
+        }
+        present[idx] = false;
+        size--;
+    }
+
+    private void insert(int idx) {
+        int cell = cells[idx];
+        prev[idx] = -1;
+        next[idx] = heads[cell];
+        if (heads[cell] >= 0) {
+            prev[heads[cell]] = idx;
+        }
+        heads[cell] = idx;
+        present[idx] = true;
+        size++;
+    }
+
+    /**
+     * Returns index of the point nearest to given location or -1 if index is empty.
+     */
+    public int nearest(double x, double y) {
+        if (size == 0) {
+            return -1;
+        }
+
+        int cx = column(x);
+        int cy = row(y);
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        int maxRing = Math.max(columns, rows);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            int x0 = cx - ring;
+            int x1 = cx + ring;
+            int y0 = cy - ring;
+            int y1 = cy + ring;
+
+            for (int col = Math.max(x0, 0); col <= Math.min(x1, columns - 1); col++) {
+                for (int row = Math.max(y0, 0); row <= Math.min(y1, rows - 1); row++) {
+                    if (col != x0 && col != x1 && row != y0 && row != y1) {
+                        row = y1 - 1;
+                        continue;
+                    }
+                    for (int idx = heads[col + row * columns]; idx >= 0; idx = next[idx]) {
+                        double d = squaredDistance(idx, x, y);
+                        if (d < bestDistance || (d == bestDistance && idx < best)) {
+                            bestDistance = d;
+                            best = idx;
+                        }
+                    }
+                }
+            }
+
+            double reach = ring * cellSize;
+            if (best >= 0 && bestDistance <= reach * reach) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns indexes of up to k points nearest to the point with given index (excluding the
+     * point itself), ordered by distance.
+     */
+    public int[] neighbours(int idx, int k) {
+        double x = xs[idx];
+        double y = ys[idx];
+        int limit = Math.min(k, size - (present[idx] ? 1 : 0));
+        int[] result = new int[Math.max(limit, 0)];
+        double[] distances = new double[result.length];
+
+        if (result.length == 0) {
+            return result;
+        }
+
+        int found = 0;
+        int cx = column(x);
+        int cy = row(y);
+        int maxRing = Math.max(columns, rows);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            int x0 = cx - ring;
+            int x1 = cx + ring;
+            int y0 = cy - ring;
+            int y1 = cy + ring;
+
+            for (int col = Math.max(x0, 0); col <= Math.min(x1, columns - 1); col++) {
+                for (int row = Math.max(y0, 0); row <= Math.min(y1, rows - 1); row++) {
+                    if (col != x0 && col != x1 && row != y0 && row != y1) {
+                        row = y1 - 1;
+                        continue;
+                    }
+                    for (int other = heads[col + row * columns]; other >= 0; other = next[other]) {
+                        if (other == idx) {
+                            continue;
+                        }
+                        double d = squaredDistance(other, x, y);
+                        if (found == result.length && d >= distances[found - 1]) {
+                            continue;
+                        }
+                        int pos = (found < result.length) ? found++ : found - 1;
+                        while (pos > 0 && distances[pos - 1] > d) {
+                            distances[pos] = distances[pos - 1];
+                            result[pos] = result[pos - 1];
+                            pos--;
+                        }
+                        distances[pos] = d;
+                        result[pos] = other;
+                    }
+                }
+            }
+
+            double reach = ring * cellSize;
+            if (found == result.length && distances[found - 1] <= reach * reach) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private double squaredDistance(int idx, double x, double y) {
+        double dx = xs[idx] - x;
+        double dy = ys[idx] - y;
+        return dx * dx + dy * dy;
+    }
+
+    private int column(double x) {
+        return clamp((int) Math.floor((x - minX) / cellSize), columns);
+    }
+
+    private int row(double y) {
+        return clamp((int) Math.floor((y - minY) / cellSize), rows);
+    }
+
+    private static int clamp(int value, int limit) {
+        return Math.max(0, Math.min(value, limit - 1));
+    }
+}
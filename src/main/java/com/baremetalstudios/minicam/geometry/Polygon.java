@@ -15,54 +15,153 @@
  ******************************************************************************/
 package com.baremetalstudios.minicam.geometry;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
+/*
+ * Vertexes are kept packed in a single coordinate array (x0, y0, x1, y1, ...), retract flags are kept
+ * in a bit set indexed by vertex. Point objects are created only on request.
+ *
+ * Translations and rotations do not touch coordinates, they are composed into the transform which
+ * is applied when coordinates are read. Bounds are transformed analytically.
+ */
 public class Polygon implements Transformable {
     public static final double PRECISION = 0.001;
-
-    private List<Point> points;
+    // panelization tools round coordinates of each copy of the board separately
+    public static final double MATCH_TOLERANCE = 0.01;
+    private static final List<Point> NO_TRANSLATIONS = List.of(new Point(0, 0));
+
+    private double[] coordinates;
+    private int size;
+    private BitSet retracts = new BitSet();
+    private Transform transform = Transform.IDENTITY;
+    private double[] bounds;
+    private List<Point> translations = NO_TRANSLATIONS;
+    private Point translationMin = new Point(0, 0);
+    private Point translationMax = new Point(0, 0);
     private double minX;
     private double minY;
     private double maxX;
     private double maxY;
 
     private boolean inner;
+    private int depth;
     private Direction direction = Direction.CCW;
 
     public Polygon(List<Point> points) {
-        this.points = new ArrayList<>(points);
+        this.coordinates = new double[points.size() * 2];
+        for (Point point : points) {
+            add(point);
+        }
+
+        calculateMinMax();
+    }
+
+    /**
+     * Creates polygon from packed coordinates, array is used as is.
+     */
+    public Polygon(double[] coordinates, int size) {
+        this.coordinates = coordinates;
+        this.size = size;
 
         calculateMinMax();
     }
 
     @Override
     public void translate(double dX, double dY) {
-        for (Point point : points) {
-            point.translate(dX, dY);
-        }
-        calculateMinMax();
+        transform = transform.translated(dX, dY);
+        transformBounds();
     }
 
     @Override
     public void rotate90(Direction direction) {
-        for (Point point : points) {
-            point.rotate90(direction);
+        transform = transform.rotated90(direction);
+        transformBounds();
+
+        if (isInstanced()) {
+            List<Point> rotated = new ArrayList<>();
+            for (Point translation : translations) {
+                Point copy = new Point(translation);
+                copy.rotate90(direction);
+                rotated.add(copy);
+            }
+            setTranslations(rotated);
         }
-        calculateMinMax();
     }
 
     private final void calculateMinMax() {
-        minX = Double.MAX_VALUE;
-        minY = Double.MAX_VALUE;
-        maxX = Double.MIN_VALUE;
-        maxY = Double.MIN_VALUE;
-        for (Point point : points) {
-            minX = Math.min(point.getX(), minX);
-            minY = Math.min(point.getY(), minY);
-            maxX = Math.max(point.getX(), maxX);
-            maxY = Math.max(point.getY(), maxY);
+        double lowX = Double.MAX_VALUE;
+        double lowY = Double.MAX_VALUE;
+        double highX = -Double.MAX_VALUE;
+        double highY = -Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            lowX = Math.min(coordinates[i * 2], lowX);
+            lowY = Math.min(coordinates[i * 2 + 1], lowY);
+            highX = Math.max(coordinates[i * 2], highX);
+            highY = Math.max(coordinates[i * 2 + 1], highY);
+        }
+        bounds = new double[] {lowX, lowY, highX, highY};
+        transformBounds();
+    }
+
+    private void transformBounds() {
+        double[] result = transform.isIdentity() || size == 0
+                          ? bounds
+                          : transform.bounds(bounds[0], bounds[1], bounds[2], bounds[3]);
+        minX = result[0];
+        minY = result[1];
+        maxX = result[2];
+        maxY = result[3];
+    }
+
+    // Applies pending transform to coordinates. Existing array is left intact, so it still can be
+    // shared.
+    private void materialize() {
+        if (transform.isIdentity()) {
+            return;
+        }
+        double[] result = new double[Math.max(coordinates.length, 2)];
+        for (int i = 0; i < size; i++) {
+            result[i * 2] = getX(i);
+            result[i * 2 + 1] = getY(i);
+        }
+        coordinates = result;
+        transform = Transform.IDENTITY;
+        calculateMinMax();
+    }
+
+    /**
+     * Appends vertex to the end of the polygon.
+     */
+    public void append(double x, double y, boolean retract) {
+        add(x, y, retract);
+        bounds[0] = Math.min(bounds[0], x);
+        bounds[1] = Math.min(bounds[1], y);
+        bounds[2] = Math.max(bounds[2], x);
+        bounds[3] = Math.max(bounds[3], y);
+        transformBounds();
+    }
+
+    private void add(Point point) {
+        add(point.getX(), point.getY(), point.isRetract());
+    }
+
+    // bounds are left to the caller
+    private void add(double x, double y, boolean retract) {
+        materialize();
+        ensureCapacity(size + 1);
+        coordinates[size * 2] = x;
+        coordinates[size * 2 + 1] = y;
+        retracts.set(size, retract);
+        size++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (coordinates.length < capacity * 2) {
+            coordinates = Arrays.copyOf(coordinates, Math.max(capacity * 2, coordinates.length * 2));
         }
     }
 
@@ -71,15 +170,52 @@ public class Polygon implements Transformable {
     }
 
     public Point getLast() {
-        return points.get(points.size() - 1);
+        return getPoint(size - 1);
     }
 
     public Point getFirst() {
-        return points.get(0);
+        return getPoint(0);
+    }
+
+    /**
+     * Returns copy of the vertex with given index.
+     */
+    public Point getPoint(int idx) {
+        if (idx < 0 || idx >= size) {
+            throw new IndexOutOfBoundsException("Index " + idx + " out of bounds for length " + size);
+        }
+        Point point = new Point(getX(idx), getY(idx));
+        point.setRetract(retracts.get(idx));
+        return point;
+    }
+
+    public double getX(int idx) {
+        double x = coordinates[idx * 2];
+        return transform.isIdentity() ? x : transform.x(x, coordinates[idx * 2 + 1]);
+    }
+
+    public double getY(int idx) {
+        double y = coordinates[idx * 2 + 1];
+        return transform.isIdentity() ? y : transform.y(coordinates[idx * 2], y);
+    }
+
+    /**
+     * Retract flag of the vertex: tool is lifted after reaching it and lowered at the next vertex.
+     */
+    public boolean isRetract(int idx) {
+        return retracts.get(idx);
+    }
+
+    public void setRetract(int idx, boolean retract) {
+        retracts.set(idx, retract);
+    }
+
+    public boolean hasRetracts() {
+        return !retracts.isEmpty();
     }
 
     public int count() {
-        return points.size();
+        return size;
     }
 
     public double sizeX() {
@@ -90,27 +226,147 @@ public class Polygon implements Transformable {
         return maxY - minY;
     }
 
+    // merged polygons are only read, so their transforms are applied while copying
     public static Polygon merge(Polygon preceding, Polygon area) {
-        List<Point> points = new ArrayList<>();
-        points.addAll(preceding.points);
-        points.addAll(area.points);
+        double[] coordinates = new double[(preceding.size + area.size) * 2];
+        preceding.copyCoordinates(coordinates, 0);
+        area.copyCoordinates(coordinates, preceding.size);
+
+        Polygon result = new Polygon(coordinates, preceding.size + area.size);
+        result.retracts = preceding.retracts.get(0, preceding.size);
+        for (int i = area.retracts.nextSetBit(0); i >= 0 && i < area.size; i = area.retracts.nextSetBit(i + 1)) {
+            result.retracts.set(preceding.size + i);
+        }
+        result.copyTranslations(preceding);
+        return result;
+    }
+
+    private void copyCoordinates(double[] target, int offset) {
+        for (int i = 0; i < size; i++) {
+            target[(offset + i) * 2] = getX(i);
+            target[(offset + i) * 2 + 1] = getY(i);
+        }
+    }
+
+    /**
+     * Step and repeat support: polygon is kept once as a template and is placed at each of given
+     * translations (first one usually is zero) when output is generated.
+     */
+    public void setTranslations(List<Point> translations) {
+        if (translations.isEmpty()) {
+            throw new IllegalArgumentException("At least one translation is required");
+        }
+        this.translations = List.copyOf(translations);
+
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (Point point : translations) {
+            minX = Math.min(point.getX(), minX);
+            minY = Math.min(point.getY(), minY);
+            maxX = Math.max(point.getX(), maxX);
+            maxY = Math.max(point.getY(), maxY);
+        }
+        translationMin = new Point(minX, minY);
+        translationMax = new Point(maxX, maxY);
+    }
+
+    public void copyTranslations(Polygon polygon) {
+        translations = polygon.translations;
+        translationMin = polygon.translationMin;
+        translationMax = polygon.translationMax;
+    }
+
+    public List<Point> getTranslations() {
+        return translations;
+    }
+
+    public boolean isInstanced() {
+        return translations != NO_TRANSLATIONS;
+    }
 
-        return new Polygon(points);
+    public int getInstanceCount() {
+        return translations.size();
     }
 
+    public boolean hasSameTranslations(Polygon polygon) {
+        if (translations.size() != polygon.translations.size()) {
+            return false;
+        }
+        for (int i = 0; i < translations.size(); i++) {
+            if (Point.distance(translations.get(i), polygon.translations.get(i)) >= PRECISION) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read only view of the vertexes, each access creates a copy of the vertex.
+     */
     public List<Point> getPoints() {
-        return points;
+        return new AbstractList<Point>() {
+            @Override
+            public Point get(int index) {
+                return getPoint(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Replaces all vertexes of the polygon with vertexes of the given one. Vertexes are shared, so
+     * source polygon should not be modified afterwards.
+     */
+    public void setPoints(Polygon source) {
+        source.materialize();
+        setPoints(source.coordinates, source.size, source.retracts);
+    }
+
+    private void setPoints(double[] coordinates, int size, BitSet retracts) {
+        this.transform = Transform.IDENTITY;
+        this.coordinates = coordinates;
+        this.size = size;
+        this.retracts = retracts;
+        calculateMinMax();
+    }
+
+    /**
+     * Index of the vertex nearest to given point or -1 if polygon is empty.
+     */
+    public int findNearest(Point base) {
+        int idx = -1;
+        double candidateDistance = Double.MAX_VALUE;
+
+        for (int i = 0; i < size; i++) {
+            double dx = getX(i) - base.getX();
+            double dy = getY(i) - base.getY();
+            double distance = dx * dx + dy * dy;
+            if (distance < candidateDistance) {
+                idx = i;
+                candidateDistance = distance;
+            }
+        }
+        return idx;
     }
 
     @Override
     public String toString() {
         String body = String.format("{size (%.5f, %.5f), %s, %s, %s, points(%d)}", sizeX(), sizeY(),
-                        (isClosed() ? "closed" : "open"), (isInner() ? "inner":"outer"), direction, points.size());
+                        (isClosed() ? "closed" : "open"), (isInner() ? "inner":"outer"), direction, size);
         return body;
     }
 
     public void extend(List<Point> points) {
-        this.points.addAll(points);
+        materialize();
+        for (Point point : points) {
+            add(point);
+        }
         calculateMinMax();
     }
 
@@ -122,6 +378,17 @@ public class Polygon implements Transformable {
         this.inner = inner;
     }
 
+    /**
+     * Number of polygons containing this one, zero for outer polygons.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
     public Direction getDirection() {
         return direction;
     }
@@ -146,8 +413,39 @@ public class Polygon implements Transformable {
         return maxY;
     }
 
+    /*
+     * Bounds of all instances of the polygon.
+     */
+    public double getExtentMinX() {
+        return minX + translationMin.getX();
+    }
+
+    public double getExtentMinY() {
+        return minY + translationMin.getY();
+    }
+
+    public double getExtentMaxX() {
+        return maxX + translationMax.getX();
+    }
+
+    public double getExtentMaxY() {
+        return maxY + translationMax.getY();
+    }
+
     public void insert(Point point, int idx) {
-        points.add(idx, point);
+        materialize();
+        ensureCapacity(size + 1);
+        System.arraycopy(coordinates, idx * 2, coordinates, idx * 2 + 2, (size - idx) * 2);
+        coordinates[idx * 2] = point.getX();
+        coordinates[idx * 2 + 1] = point.getY();
+
+        BitSet shifted = retracts.get(0, idx);
+        for (int i = retracts.nextSetBit(idx); i >= 0; i = retracts.nextSetBit(i + 1)) {
+            shifted.set(i + 1);
+        }
+        shifted.set(idx, point.isRetract());
+        retracts = shifted;
+        size++;
     }
 
     public double getSizeX() {
@@ -159,38 +457,59 @@ public class Polygon implements Transformable {
     }
 
     public void optimize() {
-        List<Point> inPoints = new ArrayList<>(points);
-        Point lastPoint = getLast();
-        points.clear();
-        points.add(inPoints.get(0));
-        for (int i = 2; i < inPoints.size(); i++) {
-            Point ab = inPoints.get(i - 2);
-            Point cd = inPoints.get(i - 1);
-            Point ef = inPoints.get(i);
-
-            if (ab.getX() == cd.getX() && cd.getX() == ef.getX()) {
+        materialize();
+        double[] result = new double[(size + 1) * 2];
+        BitSet flags = new BitSet();
+        int count = 0;
+
+        count = copyVertex(0, result, flags, count);
+        for (int i = 2; i < size; i++) {
+            double abX = coordinates[(i - 2) * 2];
+            double abY = coordinates[(i - 2) * 2 + 1];
+            double cdX = coordinates[(i - 1) * 2];
+            double cdY = coordinates[(i - 1) * 2 + 1];
+            double efX = coordinates[i * 2];
+            double efY = coordinates[i * 2 + 1];
+
+            if (abX == cdX && cdX == efX) {
                 continue;
             }
 
-            if (ab.getY() == cd.getY() && cd.getY() == ef.getY()) {
+            if (abY == cdY && cdY == efY) {
                 continue;
             }
 
-            points.add(cd);
+            count = copyVertex(i - 1, result, flags, count);
         }
-        points.add(lastPoint);
-        calculateMinMax();
+        count = copyVertex(size - 1, result, flags, count);
+        setPoints(result, count, flags);
+    }
+
+    private int copyVertex(int idx, double[] target, BitSet flags, int count) {
+        target[count * 2] = coordinates[idx * 2];
+        target[count * 2 + 1] = coordinates[idx * 2 + 1];
+        flags.set(count, retracts.get(idx));
+        return count + 1;
     }
 
     public Point reorder(Point center) {
-        int idx = Point.findNearest(center, points, false);
-        if (isClosed()) {
-            points.remove(points.size() - 1);
-        }
-        if (idx >= 0) {
-            Collections.rotate(points, -idx);
+        materialize();
+        int idx = findNearest(center);
+        int length = isClosed() ? size - 1 : size;
+        int shift = (idx >= 0 && length > 0) ? idx % length : 0;
+
+        double[] result = new double[(length + 1) * 2];
+        BitSet flags = new BitSet();
+        for (int i = 0; i < length; i++) {
+            int source = (i + shift) % length;
+            result[i * 2] = coordinates[source * 2];
+            result[i * 2 + 1] = coordinates[source * 2 + 1];
+            flags.set(i, retracts.get(source));
         }
-        points.add(new Point(points.get(0)));
+        // closing vertex is a plain copy of the first one, without retract flag
+        result[length * 2] = result[0];
+        result[length * 2 + 1] = result[1];
+        setPoints(result, length + 1, flags);
         return getLast();
     }
 }
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.geometry;
+
+/*
+ * Affine transform x' = m00 * x + m01 * y + m02, y' = m10 * x + m11 * y + m12. Transforms are
+ * immutable, so geometry which refers to them can be shared, transformations are composed and
+ * applied to coordinates only when they are requested.
+ */
+public final class Transform {
+    public static final Transform IDENTITY = new Transform(1, 0, 0, 0, 1, 0);
+
+    private final double m00;
+    private final double m01;
+    private final double m02;
+    private final double m10;
+    private final double m11;
+    private final double m12;
+
+    private Transform(double m00, double m01, double m02, double m10, double m11, double m12) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m02 = m02;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m12 = m12;
+    }
+
+    public boolean isIdentity() {
+        return this == IDENTITY;
+    }
+
+    /**
+     * Returns transform which applies this one and then moves result by given offset.
+     */
+    public Transform translated(double dX, double dY) {
+        return new Transform(m00, m01, m02 + dX, m10, m11, m12 + dY);
+    }
+
+    /**
+     * Returns transform which applies this one and then rotates result by 90 degrees around origin.
+     */
+    public Transform rotated90(Direction direction) {
+        if (Direction.CCW == direction) {
+            return new Transform(-m10, -m11, -m12, m00, m01, m02);
+        }
+        return new Transform(m10, m11, m12, -m00, -m01, -m02);
+    }
+
+    public double x(double x, double y) {
+        return m00 * x + m01 * y + m02;
+    }
+
+    public double y(double x, double y) {
+        return m10 * x + m11 * y + m12;
+    }
+
+    /**
+     * Transforms bounding box {minX, minY, maxX, maxY}. Result is exact for transforms which keep
+     * axes aligned (translations and rotations by 90 degrees), for others it's bounding box of
+     * transformed box.
+     */
+    public double[] bounds(double minX, double minY, double maxX, double maxY) {
+        double[] xs = {x(minX, minY), x(minX, maxY), x(maxX, minY), x(maxX, maxY)};
+        double[] ys = {y(minX, minY), y(minX, maxY), y(maxX, minY), y(maxX, maxY)};
+        double[] result = {xs[0], ys[0], xs[0], ys[0]};
+
+        for (int i = 1; i < 4; i++) {
+            result[0] = Math.min(result[0], xs[i]);
+            result[1] = Math.min(result[1], ys[i]);
+            result[2] = Math.max(result[2], xs[i]);
+            result[3] = Math.max(result[3], ys[i]);
+        }
+        return result;
+    }
+}
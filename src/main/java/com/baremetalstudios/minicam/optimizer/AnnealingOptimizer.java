@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.optimizer;
+
+import java.util.SplittableRandom;
+
+import com.baremetalstudios.minicam.config.OutputConfig;
+import com.baremetalstudios.minicam.geometry.LocalSearch;
+import com.baremetalstudios.minicam.geometry.PointIndex;
+
+/*
+ * Simulated annealing over Or-opt moves: segment of up to three drills is moved (possibly
+ * reversed) next to one of the nearest neighbours of its end. Path is kept as doubly linked
+ * list closed through a dummy node at zero distance from all drills, so each move is applied
+ * in constant time. Annealing starts from greedy path improved by local search and the result
+ * is polished by local search as well.
+ *
+ * Number of moves is proportional to drill count and optimization level, with time budget
+ * annealing runs until deadline and temperature follows the elapsed time.
+ */
+public class AnnealingOptimizer implements DrillPathOptimizer {
+    public static final String NAME = "anneal";
+
+    private static final int NEIGHBOURS = 8;
+    private static final int MAX_SEGMENT = 3;
+    private static final int MOVES_PER_LEVEL = 200;
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+    private static final double START_TEMPERATURE = 0.3;
+    private static final double END_TEMPERATURE = 0.0001;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int[] optimize(double[] xs, double[] ys, OutputConfig config, long deadline) {
+        int size = xs.length;
+        boolean budgeted = config.getOptimizationTime() > 0;
+        long moves = (long) size * MOVES_PER_LEVEL * config.getOptimizationLevel();
+
+        if (size < 4 || (!budgeted && moves == 0)) {
+            return new TwoOptOptimizer().optimize(xs, ys, config, deadline);
+        }
+
+        PointIndex index = new PointIndex(xs, ys);
+        LocalSearch search = new LocalSearch(xs, ys);
+        int[] start = Tours.greedy(index, xs, ys, 0);
+        improve(search, start, budgeted, deadline);
+
+        Annealing annealing = new Annealing(xs, ys, index, start, config.getOptimizationSeed());
+        long begin = System.nanoTime();
+        double averageEdge = Tours.length(xs, ys, start) / (size - 1);
+
+        for (long move = 0; ; move++) {
+            double progress;
+            if (budgeted) {
+                if (move % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() - deadline >= 0) {
+                    break;
+                }
+                progress = (double) (System.nanoTime() - begin) / Math.max(deadline - begin, 1);
+            } else {
+                if (move >= moves) {
+                    break;
+                }
+                progress = (double) move / moves;
+            }
+            annealing.move(averageEdge * START_TEMPERATURE * Math.pow(END_TEMPERATURE / START_TEMPERATURE, progress));
+        }
+
+        int[] result = annealing.order();
+        improve(search, result, budgeted, deadline);
+        return Tours.length(xs, ys, result) < Tours.length(xs, ys, start) ? result : start;
+    }
+
+    private static void improve(LocalSearch search, int[] order, boolean budgeted, long deadline) {
+        if (budgeted) {
+            search.improve(order, Integer.MAX_VALUE, deadline);
+        } else {
+            search.improve(order, Integer.MAX_VALUE);
+        }
+    }
+
+    private static class Annealing {
+        private final double[] xs;
+        private final double[] ys;
+        private final int dummy;
+        private final int[] next;
+        private final int[] prev;
+        private final int[][] neighbours;
+        private final int[] segment = new int[MAX_SEGMENT];
+        private final SplittableRandom random;
+
+        Annealing(double[] xs, double[] ys, PointIndex index, int[] order, long seed) {
+            this.xs = xs;
+            this.ys = ys;
+            this.dummy = xs.length;
+            this.next = new int[dummy + 1];
+            this.prev = new int[dummy + 1];
+            this.neighbours = new int[dummy][];
+            this.random = new SplittableRandom(seed);
+
+            index.restore();
+            for (int i = 0; i < dummy; i++) {
+                neighbours[i] = index.neighbours(i, NEIGHBOURS);
+            }
+
+            int last = dummy;
+            for (int node : order) {
+                next[last] = node;
+                prev[node] = last;
+                last = node;
+            }
+            next[last] = dummy;
+            prev[dummy] = last;
+        }
+
+        void move(double temperature) {
+            int s1 = random.nextInt(dummy);
+            int length = 1 + random.nextInt(MAX_SEGMENT);
+            int sk = s1;
+            int k = 1;
+
+            segment[0] = s1;
+            while (k < length && next[sk] != dummy) {
+                sk = next[sk];
+                segment[k++] = sk;
+            }
+
+            int p = prev[s1];
+            int nx = next[sk];
+            if (p == nx) {
+                return;
+            }
+
+            int end = random.nextBoolean() ? s1 : sk;
+            int c = neighbours[end][random.nextInt(neighbours[end].length)];
+            // insert between a and b, where b follows a
+            int a = random.nextBoolean() ? c : prev[c];
+            int b = next[a];
+
+            if (a == p || inSegment(a, k) || inSegment(b, k)) {
+                return;
+            }
+
+            double removeGain = distance(p, s1) + distance(sk, nx) - distance(p, nx);
+            double forward = distance(a, s1) + distance(sk, b);
+            double reversed = distance(a, sk) + distance(s1, b);
+            double delta = Math.min(forward, reversed) - distance(a, b) - removeGain;
+
+            if (delta > 0 && random.nextDouble() >= Math.exp(-delta / temperature)) {
+                return;
+            }
+
+            next[p] = nx;
+            prev[nx] = p;
+
+            if (forward <= reversed) {
+                link(a, s1);
+                link(sk, b);
+            } else {
+                int last = a;
+                for (int i = k - 1; i >= 0; i--) {
+                    link(last, segment[i]);
+                    last = segment[i];
+                }
+                link(last, b);
+            }
+        }
+
+        int[] order() {
+            int[] result = new int[dummy];
+            int node = next[dummy];
+            for (int i = 0; i < dummy; i++) {
+                result[i] = node;
+                node = next[node];
+            }
+            return result;
+        }
+
+        private void link(int from, int to) {
+            next[from] = to;
+            prev[to] = from;
+        }
+
+        private boolean inSegment(int node, int k) {
+            for (int i = 0; i < k; i++) {
+                if (segment[i] == node) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private double distance(int a, int b) {
+            if (a == dummy || b == dummy) {
+                return 0;
+            }
+            return Tours.distance(xs, ys, a, b);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.optimizer;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.baremetalstudios.minicam.config.OutputConfig;
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+/*
+ * Looks up optimized order in the on-disk cache before running wrapped optimizer. Key is a hash of
+ * drill coordinates snapped to the geometry precision and of settings which affect optimization
+ * result, so changes of depths, feed rates etc. do not invalidate cached orders.
+ */
+public class CachingOptimizer implements DrillPathOptimizer {
+    private static final int KEY_VERSION = 1;
+
+    private final DrillPathOptimizer optimizer;
+    private final DrillOrderCache cache;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    public CachingOptimizer(DrillPathOptimizer optimizer, DrillOrderCache cache) {
+        this.optimizer = optimizer;
+        this.cache = cache;
+    }
+
+    @Override
+    public String getName() {
+        return optimizer.getName();
+    }
+
+    @Override
+    public int[] optimize(double[] xs, double[] ys, OutputConfig config, long deadline) {
+        String key = key(xs, ys, config);
+        int[] order = cache.get(key, xs.length);
+
+        if (order != null) {
+            hits.incrementAndGet();
+            return order;
+        }
+
+        misses.incrementAndGet();
+        order = optimizer.optimize(xs, ys, config, deadline);
+        cache.put(key, order);
+        return order;
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    String key(double[] xs, double[] ys, OutputConfig config) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+            try (OutputStream stream = new DigestOutputStream(OutputStream.nullOutputStream(), digest);
+                 DataOutputStream output = new DataOutputStream(stream)) {
+                output.writeInt(KEY_VERSION);
+                output.writeUTF(optimizer.getName());
+                output.writeInt(config.getOptimizationLevel());
+                output.writeInt(config.getOptimizationSeed());
+                output.writeInt(config.getOptimizationTime());
+                output.writeDouble(config.getOptimizationMinImprovement());
+                output.writeInt(xs.length);
+
+                for (int i = 0; i < xs.length; i++) {
+                    output.writeLong(Math.round(xs[i] / Polygon.PRECISION));
+                    output.writeLong(Math.round(ys[i] / Polygon.PRECISION));
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException("Unable to calculate drill order cache key", e);
+        }
+    }
+}
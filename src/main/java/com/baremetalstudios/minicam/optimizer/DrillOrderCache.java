@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.optimizer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Directory with optimized drill orders, one file per key. Last modification time of the file
+ * is updated on each hit, when total size of entries exceeds the limit, least recently used
+ * entries are removed. I/O problems are reported and treated as cache miss.
+ */
+public class DrillOrderCache {
+    private static final int MAGIC = 0x4D434F31;
+    private static final String SUFFIX = ".order";
+
+    private final Path directory;
+    private final long maxSize;
+    private long lastStamp;
+
+    public DrillOrderCache(Path directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns stored order for given key or null if there is no valid entry of given size.
+     */
+    public synchronized int[] get(String key, int size) {
+        Path file = directory.resolve(key + SUFFIX);
+
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream input = new DataInputStream(stream)) {
+            int[] order = (input.readInt() == MAGIC && input.readInt() == size) ? read(input, size) : null;
+
+            if (order == null) {
+                delete(file);
+                return null;
+            }
+            Files.setLastModifiedTime(file, stamp());
+            return order;
+        } catch (EOFException e) {
+            delete(file);
+            return null;
+        } catch (IOException e) {
+            System.out.println("WARNING: unable to read drill order cache entry " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public synchronized void put(String key, int[] order) {
+        Path file = directory.resolve(key + SUFFIX);
+
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+
+            try {
+                try (OutputStream stream = Files.newOutputStream(temp);
+                     DataOutputStream output = new DataOutputStream(stream)) {
+                    output.writeInt(MAGIC);
+                    output.writeInt(order.length);
+                    for (int idx : order) {
+                        output.writeInt(idx);
+                    }
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // nothing is left there after successful move
+                Files.deleteIfExists(temp);
+            }
+            Files.setLastModifiedTime(file, stamp());
+            evict();
+        } catch (IOException e) {
+            System.out.println("WARNING: unable to store drill order cache entry " + file + ": " + e.getMessage());
+        }
+    }
+
+    // strictly increasing, so entries used within the same millisecond are still ordered
+    private FileTime stamp() {
+        lastStamp = Math.max(System.currentTimeMillis(), lastStamp + 1);
+        return FileTime.fromMillis(lastStamp);
+    }
+
+    private static int[] read(DataInputStream input, int size) throws IOException {
+        int[] order = new int[size];
+        boolean[] seen = new boolean[size];
+
+        for (int i = 0; i < size; i++) {
+            int idx = input.readInt();
+            if (idx < 0 || idx >= size || seen[idx]) {
+                return null;
+            }
+            seen[idx] = true;
+            order[i] = idx;
+        }
+        return order;
+    }
+
+    private void evict() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        long total = 0;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path entry : stream) {
+                entries.add(entry);
+                total += Files.size(entry);
+            }
+        }
+
+        if (total <= maxSize) {
+            return;
+        }
+
+        entries.sort(Comparator.comparing(DrillOrderCache::lastModified));
+        for (Path entry : entries) {
+            if (total <= maxSize) {
+                break;
+            }
+            total -= Files.size(entry);
+            Files.deleteIfExists(entry);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // stale entry is overwritten on next put
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
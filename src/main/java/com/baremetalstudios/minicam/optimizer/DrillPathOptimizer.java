@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.optimizer;
+
+import com.baremetalstudios.minicam.config.OutputConfig;
+
+/*
+ * Drill path optimization algorithm. Implementations are discovered with ServiceLoader and
+ * selected by name with config.optimization.algorithm. Implementations must be stateless,
+ * the same instance is used to optimize several drill groups concurrently.
+ */
+public interface DrillPathOptimizer {
+    /**
+     * Name used to select this optimizer in configuration.
+     */
+    String getName();
+
+    /**
+     * Returns order in which drills should be visited, as indexes into coordinate arrays.
+     * Coordinate arrays must not be modified.
+     *
+     * @param deadline time (in terms of {@link System#nanoTime()}) when optimization must be
+     *                 finished, used only if time budget is configured
+     */
+    int[] optimize(double[] xs, double[] ys, OutputConfig config, long deadline);
+}
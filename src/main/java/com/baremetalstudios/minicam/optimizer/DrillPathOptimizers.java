@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.optimizer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/*
+ * Registry of drill path optimizers available on the class path.
+ */
+public final class DrillPathOptimizers {
+    public static final String DEFAULT = TwoOptOptimizer.NAME;
+
+    private static final List<DrillPathOptimizer> OPTIMIZERS = load();
+
+    private DrillPathOptimizers() {
+    }
+
+    public static List<DrillPathOptimizer> all() {
+        return OPTIMIZERS;
+    }
+
+    /**
+     * Returns optimizer with given name. Unknown name is reported and default optimizer is
+     * returned instead.
+     */
+    public static DrillPathOptimizer forName(String name) {
+        DrillPathOptimizer optimizer = find(name);
+
+        if (optimizer == null) {
+            System.out.println("WARNING: unknown optimization algorithm '" + name + "', using '" + DEFAULT + "'");
+            optimizer = find(DEFAULT);
+        }
+        return optimizer != null ? optimizer : new TwoOptOptimizer();
+    }
+
+    private static DrillPathOptimizer find(String name) {
+        for (DrillPathOptimizer optimizer : OPTIMIZERS) {
+            if (optimizer.getName().equalsIgnoreCase(name.trim())) {
+                return optimizer;
+            }
+        }
+        return null;
+    }
+
+    private static List<DrillPathOptimizer> load() {
+        List<DrillPathOptimizer> result = new ArrayList<>();
+        ServiceLoader.load(DrillPathOptimizer.class, DrillPathOptimizer.class.getClassLoader())
+                     .forEach(result::add);
+        result.sort(Comparator.comparing(DrillPathOptimizer::getName));
+        return List.copyOf(result);
+    }
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.optimizer;
+
+import com.baremetalstudios.minicam.config.OutputConfig;
+import com.baremetalstudios.minicam.geometry.PointIndex;
+
+/*
+ * Single nearest neighbour path from the first drill. Fast, but noticeably longer than paths
+ * produced by local search.
+ */
+public class GreedyOptimizer implements DrillPathOptimizer {
+    public static final String NAME = "greedy";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int[] optimize(double[] xs, double[] ys, OutputConfig config, long deadline) {
+        if (xs.length == 0) {
+            return new int[0];
+        }
+        return Tours.greedy(new PointIndex(xs, ys), xs, ys, 0);
+    }
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.optimizer;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.baremetalstudios.minicam.config.OutputConfig;
+
+/*
+ * Runs all other available optimizers in parallel and keeps the shortest path. On equal
+ * lengths the optimizer which comes first by name wins, so result does not depend on timing.
+ */
+public class PortfolioOptimizer implements DrillPathOptimizer {
+    public static final String NAME = "portfolio";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int[] optimize(double[] xs, double[] ys, OutputConfig config, long deadline) {
+        List<DrillPathOptimizer> optimizers = DrillPathOptimizers.all()
+                                                                 .stream()
+                                                                 .filter(optimizer -> !(optimizer instanceof PortfolioOptimizer))
+                                                                 .collect(Collectors.toList());
+
+        List<int[]> orders = optimizers.parallelStream()
+                                       .map(optimizer -> optimizer.optimize(xs, ys, config, deadline))
+                                       .collect(Collectors.toList());
+
+        int[] best = Tours.identity(xs.length);
+        double bestLength = Tours.length(xs, ys, best);
+
+        for (int[] order : orders) {
+            double length = Tours.length(xs, ys, order);
+            if (length < bestLength) {
+                best = order;
+                bestLength = length;
+            }
+        }
+        return best;
+    }
+}
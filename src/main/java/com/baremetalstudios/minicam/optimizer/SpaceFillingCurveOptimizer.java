@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.optimizer;
+
+import java.util.Arrays;
+
+import com.baremetalstudios.minicam.config.OutputConfig;
+
+/*
+ * Visits drills in the order of Hilbert curve drawn over the drill bounding box. It's just a sort,
+ * so it's the fastest option for huge drill counts, at the cost of longer paths than greedy.
+ */
+public class SpaceFillingCurveOptimizer implements DrillPathOptimizer {
+    public static final String NAME = "curve";
+
+    private static final int ORDER = 16;
+    private static final int SIDE = 1 << ORDER;
+    private static final int INDEX_BITS = 31;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int[] optimize(double[] xs, double[] ys, OutputConfig config, long deadline) {
+        int size = xs.length;
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+
+        for (int i = 0; i < size; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        // same scale for both axes, so curve cells are square
+        double scale = (SIDE - 1) / Math.max(Math.max(maxX - minX, maxY - minY), Double.MIN_NORMAL);
+        long[] keys = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            int x = (int) ((xs[i] - minX) * scale);
+            int y = (int) ((ys[i] - minY) * scale);
+            keys[i] = (hilbertIndex(x, y) << INDEX_BITS) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) (keys[i] & ((1L << INDEX_BITS) - 1));
+        }
+        return order;
+    }
+
+    static long hilbertIndex(int x, int y) {
+        long d = 0;
+        for (int s = SIDE / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = SIDE - 1 - x;
+                    y = SIDE - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+}
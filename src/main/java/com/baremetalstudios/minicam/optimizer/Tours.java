@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.optimizer;
+
+import com.baremetalstudios.minicam.geometry.PointIndex;
+
+/*
+ * Helpers shared by optimizers. Path is an array of indexes into coordinate arrays.
+ */
+final class Tours {
+    private Tours() {
+    }
+
+    static int[] identity(int size) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    // Nearest neighbour path from given start point, index is restored before use
+    static int[] greedy(PointIndex index, double[] xs, double[] ys, int start) {
+        int[] order = new int[xs.length];
+        int count = 0;
+
+        index.restore();
+        int idx = start;
+        while (idx >= 0) {
+            order[count++] = idx;
+            index.remove(idx);
+            idx = index.nearest(xs[idx], ys[idx]);
+        }
+
+        return order;
+    }
+
+    static double length(double[] xs, double[] ys, int[] order) {
+        double result = 0;
+        for (int i = 1; i < order.length; i++) {
+            result += distance(xs, ys, order[i - 1], order[i]);
+        }
+        return result;
+    }
+
+    static double distance(double[] xs, double[] ys, int i, int j) {
+        double dx = xs[i] - xs[j];
+        double dy = ys[i] - ys[j];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.optimizer;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+import com.baremetalstudios.minicam.config.OutputConfig;
+import com.baremetalstudios.minicam.geometry.LocalSearch;
+import com.baremetalstudios.minicam.geometry.PointIndex;
+
+/*
+ * Default optimizer. Without time budget, best of several greedy paths from random start points
+ * is improved by 2-opt/Or-opt local search, amount of work is controlled by optimization level.
+ *
+ * With time budget it runs iterated local search: path is repeatedly perturbed by swapping two
+ * short adjacent segments and improved again, keeping the best path. Search stops at deadline or
+ * once path improved by less than configured percentage over the last rounds.
+ */
+public class TwoOptOptimizer implements DrillPathOptimizer {
+    public static final String NAME = "2opt";
+
+    private static final int KICK_SEGMENT = 50;
+    private static final int STALL_WINDOW = 100;
+    private static final long PROGRESS_INTERVAL = 1_000_000_000L;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int[] optimize(double[] xs, double[] ys, OutputConfig config, long deadline) {
+        if (config.getOptimizationTime() > 0) {
+            return optimizeWithin(xs, ys, config, deadline);
+        }
+
+        int[] order = multiStart(xs, ys, config);
+        int level = config.getOptimizationLevel();
+
+        if (level > 0) {
+            new LocalSearch(xs, ys, Math.max(LocalSearch.DEFAULT_NEIGHBOURS / 2, 2 * level)).improve(order, 4 * level);
+        }
+        return order;
+    }
+
+    private static int[] multiStart(double[] xs, double[] ys, OutputConfig config) {
+        int size = xs.length;
+        int totalAttempts =
+                            (int) Math.round(size *
+                                             2 *
+                                             (config.getOptimizationLevel() / 18.0));
+        if (totalAttempts == 0) {
+            return Tours.identity(size);
+        }
+
+        // seeds are drawn upfront, so result does not depend on the number of threads
+        SplittableRandom random = new SplittableRandom(config.getOptimizationSeed());
+        long[] seeds = new long[totalAttempts];
+        for (int i = 0; i < totalAttempts; i++) {
+            seeds[i] = random.split().nextLong();
+        }
+
+        int chunks = Math.min(totalAttempts, parallelism() * 4);
+        Attempt best = IntStream.range(0, chunks)
+                                .parallel()
+                                .mapToObj(chunk -> runAttempts(xs, ys, seeds,
+                                                               chunk * totalAttempts / chunks,
+                                                               (chunk + 1) * totalAttempts / chunks))
+                                .reduce(Attempt::best)
+                                .get();
+
+        int[] identity = Tours.identity(size);
+        return best.length < Tours.length(xs, ys, identity) ? best.order : identity;
+    }
+
+    // parallel stream runs in the pool of the calling task, if there is one
+    private static int parallelism() {
+        ForkJoinPool pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+        return pool.getParallelism();
+    }
+
+    private static Attempt runAttempts(double[] xs, double[] ys, long[] seeds, int from, int to) {
+        PointIndex index = new PointIndex(xs, ys);
+        Attempt best = null;
+
+        for (int i = from; i < to; i++) {
+            int start = new SplittableRandom(seeds[i]).nextInt(xs.length);
+            int[] order = Tours.greedy(index, xs, ys, start);
+            Attempt attempt = new Attempt(i, order, Tours.length(xs, ys, order));
+            best = (best == null) ? attempt : best.best(attempt);
+        }
+        return best;
+    }
+
+    private static int[] optimizeWithin(double[] xs, double[] ys, OutputConfig config, long deadline) {
+        long start = System.nanoTime();
+        int size = xs.length;
+
+        if (size < 3) {
+            return Tours.identity(size);
+        }
+
+        double initial = Tours.length(xs, ys, Tours.identity(size));
+        LocalSearch search = new LocalSearch(xs, ys);
+
+        int[] best = Tours.greedy(new PointIndex(xs, ys), xs, ys, 0);
+        search.improve(best, Integer.MAX_VALUE, deadline);
+        search.begin(best);
+        double bestLength = search.length();
+
+        SplittableRandom random = new SplittableRandom(config.getOptimizationSeed());
+        double minImprovement = config.getOptimizationMinImprovement() / 100;
+        double[] history = new double[STALL_WINDOW];
+        long nextReport = start + PROGRESS_INTERVAL;
+
+        // path stays loaded in the local search, rejected rounds are rolled back
+        for (int round = 0; size > 3 && System.nanoTime() - deadline < 0; ) {
+            history[round % STALL_WINDOW] = bestLength;
+
+            search.improveAround(deadline, kick(search, size, random));
+
+            if (search.length() < bestLength) {
+                search.commit();
+                bestLength = search.length();
+            } else {
+                search.rollback();
+            }
+
+            round++;
+            if (round >= STALL_WINDOW && history[round % STALL_WINDOW] - bestLength < bestLength * minImprovement) {
+                break;
+            }
+
+            long now = System.nanoTime();
+            if (now - nextReport >= 0) {
+                System.out.format("%6d drills, path %.2fmm, %.2f%% shorter after %d ms\n",
+                                  size, bestLength, improvement(initial, bestLength), (now - start) / 1_000_000);
+                nextReport += PROGRESS_INTERVAL;
+            }
+        }
+        search.store(best);
+        return best;
+    }
+
+    private static double improvement(double initial, double length) {
+        return initial > 0 ? (initial - length) * 100 / initial : 0;
+    }
+
+    // Swaps two adjacent short segments of the path, returns nodes at the changed edges
+    private static int[] kick(LocalSearch search, int n, SplittableRandom random) {
+        int limit = Math.min(KICK_SEGMENT, (n - 2) / 2);
+        int first = 1 + random.nextInt(limit);
+        int second = 1 + random.nextInt(limit);
+        int from = random.nextInt(n - first - second + 1);
+
+        return search.swapSegments(from, first, second);
+    }
+
+    private static class Attempt {
+        private final int number;
+        private final int[] order;
+        private final double length;
+
+        Attempt(int number, int[] order, double length) {
+            this.number = number;
+            this.order = order;
+            this.length = length;
+        }
+
+        Attempt best(Attempt other) {
+            if (other.length < length || (other.length == length && other.number < number)) {
+                return other;
+            }
+            return this;
+        }
+    }
+}
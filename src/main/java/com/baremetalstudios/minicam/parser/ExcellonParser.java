@@ -19,114 +19,265 @@ import com.baremetalstudios.minicam.geometry.DrillGroup;
 import com.baremetalstudios.minicam.geometry.Point;
 import com.baremetalstudios.minicam.simulator.FormatParser;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/*
+ * Coordinate lines, which make up almost whole drill file, are scanned byte by byte: digits are
+ * accumulated into fixed-point long and converted into millimeters by single multiplication, result
+ * is appended straight into coordinate arrays of the current tool. Header and tool selection lines
+ * are rare, so they are converted into strings and matched with patterns.
+ *
+ * Coordinates without decimal point are interpreted according to zero suppression from INCH/METRIC
+ * header: by default (TZ, trailing zeros kept) digits are aligned to the right, with LZ (leading zeros
+ * kept) they are aligned to the left. Missing coordinate keeps its previous value.
+ */
 public class ExcellonParser {
-    private static final Pattern METRIC_PATTERN = Pattern.compile("METRIC(\\s+)?(0+)\\.(0+).*");
+    private static final Pattern FORMAT_PATTERN = Pattern.compile("(0+)\\.(0+)");
     private static final Pattern TOOL_PATTERN = Pattern.compile("(T[0-9]+)(C([0-9]+\\.[0-9]+))?");
-    private static final Pattern DRILL_PATTERN = Pattern.compile("X([0-9]+)Y([0-9]+)");
+    private static final double[] POWERS_OF_TEN = new double[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
     private double scale = FormatParser.IMPERIAL_SCALE;
-    private int decimals = 3;
+    // imperial always uses 6 digits (xx.xxxx), metric is xxx.xxx unless header says otherwise
+    private int imperialIntegers = 2;
+    private int imperialDecimals = 4;
+    private int metricIntegers = 3;
+    private int metricDecimals = 3;
+    private boolean leadingZeros;
+
+    private double x;
+    private double y;
 
-    private BufferedReader reader;
+    private ByteBuffer data;
+    private InputStream stream;
+    private Reader reader;
+    private byte[] lineBytes = new byte[64];
 
     public ExcellonParser() {
     }
 
+    public ExcellonParser(ByteBuffer data) {
+        this.data = data.duplicate();
+    }
+
     public ExcellonParser(InputStream stream) {
-        this(new InputStreamReader(stream));
+        this.stream = stream;
     }
 
     public ExcellonParser(InputStreamReader reader) {
-        this.reader = new BufferedReader(reader);
+        this.reader = reader;
     }
 
     public List<DrillGroup> parse() {
         Map<String, DrillGroup> groups = new LinkedHashMap<>();
         DrillGroup group = null;
-        try {
-            String line;
-            int cnt = 0;
-            while ((line = reader.readLine()) != null) {
-                cnt++;
-                line = line.trim();
-                if (line.startsWith("%")) {
-                    continue;
-                }
-                if (line.startsWith("M71")) {
-                    scale = FormatParser.METRIC_SCALE;
-                }
-                if (line.startsWith("M72") || line.startsWith("M70")) {
-                    scale = FormatParser.IMPERIAL_SCALE;
-                }
+        ByteBuffer input = input();
+        int cnt = 0;
 
-                if (line.startsWith("METRIC")) {
-                    decimals = parseMetricSettings(line, decimals);
-                }
+        while (input.hasRemaining()) {
+            cnt++;
+            skipSpaces(input);
 
-                if (line.startsWith("T")) { // new tool
-                    group = parseGroup(line, groups);
-                }
-                if (line.startsWith("X")) { // new drill
-                    if (group == null) {
-                        throw new RuntimeException("Coordinates defined before tool at " + cnt);
-                    }
-                    group.addDrill(parsePoint(line));
+            if (input.hasRemaining() && isCoordinate(input.get(input.position()))) { // new drill
+                if (group == null) {
+                    throw new RuntimeException("Coordinates defined before tool at " + cnt);
                 }
+                scanPoint(input, cnt);
+                group.addDrill(x, y);
+                skipLine(input);
+                continue;
+            }
+
+            String line = readLine(input).trim();
+            if (line.startsWith("%")) {
+                continue;
+            }
+            if (line.startsWith("M71")) {
+                scale = FormatParser.METRIC_SCALE;
+            }
+            if (line.startsWith("M72") || line.startsWith("M70")) {
+                scale = FormatParser.IMPERIAL_SCALE;
+            }
+            if (line.startsWith("METRIC") || line.startsWith("INCH")) {
+                parseUnits(line);
+            }
+            if (line.startsWith("T")) { // new tool
+                group = parseGroup(line, groups);
+            }
+        }
+        return new ArrayList<DrillGroup>(groups.values());
+    }
+
+    private ByteBuffer input() {
+        try {
+            if (stream != null) {
+                data = ByteBuffer.wrap(stream.readAllBytes());
+                stream = null;
+            } else if (reader != null) {
+                StringWriter writer = new StringWriter();
+                reader.transferTo(writer);
+                data = ByteBuffer.wrap(writer.toString().getBytes(StandardCharsets.ISO_8859_1));
+                reader = null;
             }
         } catch (IOException e) {
             throw new RuntimeException("Unable to parse input", e);
         }
-        return new ArrayList<DrillGroup>(groups.values());
+        return data;
     }
 
-    public static int parseMetricSettings(String line, int decimals) {
-        Matcher matcher = METRIC_PATTERN.matcher(line);
-        matcher.find();
+    /**
+     * Handles INCH/METRIC header line with optional zero suppression (LZ/TZ) and number format
+     * (like 000.000), e.g. "METRIC,LZ,000.000".
+     */
+    private void parseUnits(String line) {
+        boolean metric = line.startsWith("METRIC");
+        scale = metric ? FormatParser.METRIC_SCALE : FormatParser.IMPERIAL_SCALE;
 
-        if (!matcher.matches()) {
-            System.out.println("Unable to parse format string: " + line);
-            return decimals;
-        }
+        for (String option : line.substring(metric ? 6 : 4).split(",")) {
+            option = option.trim();
+            Matcher matcher = FORMAT_PATTERN.matcher(option);
 
-        return matcher.group(3).length();
+            if ("LZ".equals(option)) {
+                leadingZeros = true;
+            } else if ("TZ".equals(option)) {
+                leadingZeros = false;
+            } else if (matcher.matches() && metric) {
+                metricIntegers = matcher.group(1).length();
+                metricDecimals = matcher.group(2).length();
+            } else if (matcher.matches()) {
+                imperialIntegers = matcher.group(1).length();
+                imperialDecimals = matcher.group(2).length();
+            }
+        }
     }
 
     public Point parsePoint(String line) {
-        Matcher matcher = DRILL_PATTERN.matcher(line);
-        matcher.find();
-        String xString = matcher.group(1);
-        String yString = matcher.group(2);
-        double divisor;
+        scanPoint(ByteBuffer.wrap(line.trim().getBytes(StandardCharsets.ISO_8859_1)), 1);
+        return new Point(x, y);
+    }
+
+    private void scanPoint(ByteBuffer input, int cnt) {
+        while (input.hasRemaining()) {
+            byte c = input.get(input.position());
+            if (c == 'X') {
+                input.get();
+                x = scanCoordinate(input, cnt);
+            } else if (c == 'Y') {
+                input.get();
+                y = scanCoordinate(input, cnt);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private double scanCoordinate(ByteBuffer input, int cnt) {
+        boolean negative = false;
+        long value = 0;
+        int digits = 0;
+        int fraction = -1;
+
+        if (input.hasRemaining() && (input.get(input.position()) == '-' || input.get(input.position()) == '+')) {
+            negative = input.get() == '-';
+        }
+
+        while (input.hasRemaining()) {
+            byte c = input.get(input.position());
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits++;
+                if (fraction >= 0) {
+                    fraction++;
+                }
+            } else if (c == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                break;
+            }
+            input.get();
+        }
+
+        if (digits == 0 || digits >= POWERS_OF_TEN.length) {
+            throw new RuntimeException("Invalid coordinate at " + cnt);
+        }
 
-        if (scale == FormatParser.METRIC_SCALE) {
-            // metric can be 5 or 6 digits, 2 or 3 digits after decimal : xxx.xx, xxxx.xx, xxx.xxx
-            divisor = Math.pow(10, decimals);
+        double result;
+        if (fraction >= 0) {
+            result = value / POWERS_OF_TEN[fraction] * scale;
         } else {
-            // imperial always uses 6 digits ( xx.xxxx)
-            divisor = 10000.0;
+            boolean metric = scale == FormatParser.METRIC_SCALE;
+            int decimals = metric ? metricDecimals : imperialDecimals;
+            // with leading zeros kept, trailing ones are dropped: digits are counted from the left
+            int shift = leadingZeros ? (metric ? metricIntegers : imperialIntegers) + decimals - digits : 0;
+            double units = (shift >= 0) ? value * POWERS_OF_TEN[shift] : value / POWERS_OF_TEN[-shift];
+            result = units * (scale / POWERS_OF_TEN[decimals]);
         }
-        double x = parseCoordinate(xString, divisor);
-        double y = parseCoordinate(yString, divisor);
-        return new Point(x * scale, y * scale);
+        return negative ? -result : result;
+    }
+
+    private static boolean isCoordinate(byte c) {
+        return c == 'X' || c == 'Y';
     }
 
-    private double parseCoordinate(String string, double divisor) {
-        int decimal = string.indexOf('.');
-        if (decimal >= 0) {
-            return Double.parseDouble(decimal == 0 ? "0" + string : string);
+    private static void skipSpaces(ByteBuffer input) {
+        while (input.hasRemaining() && (input.get(input.position()) == ' ' || input.get(input.position()) == '\t')) {
+            input.get();
         }
+    }
 
-        return Double.parseDouble(string) / divisor;
+    private static void skipLine(ByteBuffer input) {
+        while (input.hasRemaining()) {
+            byte c = input.get();
+            if (c == '\n') {
+                return;
+            }
+            if (c == '\r') {
+                if (input.hasRemaining() && input.get(input.position()) == '\n') {
+                    input.get();
+                }
+                return;
+            }
+        }
+    }
+
+    private String readLine(ByteBuffer input) {
+        int length = 0;
+        while (input.hasRemaining()) {
+            byte c = input.get();
+            if (c == '\n') {
+                break;
+            }
+            if (c == '\r') {
+                if (input.hasRemaining() && input.get(input.position()) == '\n') {
+                    input.get();
+                }
+                break;
+            }
+            if (length == lineBytes.length) {
+                lineBytes = Arrays.copyOf(lineBytes, length * 2);
+            }
+            lineBytes[length++] = c;
+        }
+        return new String(lineBytes, 0, length, StandardCharsets.ISO_8859_1);
     }
 
     public DrillGroup parseGroup(String line, Map<String, DrillGroup> groups) {
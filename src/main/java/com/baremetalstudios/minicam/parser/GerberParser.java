@@ -0,0 +1,1014 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.baremetalstudios.minicam.simulator.ApertureMacro;
+import com.baremetalstudios.minicam.simulator.ApertureType;
+import com.baremetalstudios.minicam.simulator.BinaryOperation;
+import com.baremetalstudios.minicam.simulator.ExposureMode;
+import com.baremetalstudios.minicam.simulator.MacroAperture;
+import com.baremetalstudios.minicam.simulator.MacroBinOp;
+import com.baremetalstudios.minicam.simulator.MacroConstant;
+import com.baremetalstudios.minicam.simulator.MacroExpression;
+import com.baremetalstudios.minicam.simulator.MacroPrimitive;
+import com.baremetalstudios.minicam.simulator.MacroPrimitiveType;
+import com.baremetalstudios.minicam.simulator.MacroVariable;
+import com.baremetalstudios.minicam.simulator.Plotter;
+import com.baremetalstudios.minicam.simulator.PlotterMode;
+import com.baremetalstudios.minicam.simulator.SimpleAperture;
+import com.baremetalstudios.minicam.simulator.SimpleMacroPrimitive;
+
+/*
+ * Hand-written RS-274X parser working directly on bytes. It follows the grammar and the lexical
+ * rules (including lexical states) of the generated {@link Parser} and produces the same sequence
+ * of {@link Plotter} callbacks, but does not create token objects or token images. Tokens are
+ * kept as kind and offsets in the input, coordinates are converted to format units directly from
+ * digits and passed to the primitive Plotter callbacks, so plotting commands are parsed without
+ * allocation.
+ */
+public class GerberParser implements ParserConstants {
+    private final static Logger LOG = LogManager.getLogger();
+
+    private static final int STATE_DEFAULT = 0;
+    private static final int STATE_TEXT = 1;
+    private static final int STATE_ALNUMS = 2;
+
+    // literal token kinds, same as in ParserConstants.tokenImage
+    private static final int N = 20;
+    private static final int G00 = 21;
+    private static final int G01 = 22;
+    private static final int G02 = 23;
+    private static final int G03 = 24;
+    private static final int G36 = 25;
+    private static final int G37 = 26;
+    private static final int G54 = 27;
+    private static final int G70 = 28;
+    private static final int G71 = 29;
+    private static final int G74 = 30;
+    private static final int G75 = 31;
+    private static final int G90 = 32;
+    private static final int G91 = 33;
+    private static final int D01 = 34;
+    private static final int D02 = 35;
+    private static final int D03 = 36;
+    private static final int D = 37;
+    private static final int X = 38;
+    private static final int Y = 39;
+    private static final int I = 40;
+    private static final int J = 41;
+    private static final int DOT = 42;
+    private static final int M00 = 43;
+    private static final int M01 = 44;
+    private static final int M02 = 45;
+    private static final int IC = 46;
+    private static final int AS = 47;
+    private static final int EB = 48;
+    private static final int BC = 49;
+    private static final int IS = 50;
+    private static final int EI = 51;
+    private static final int A = 52;
+    private static final int B = 53;
+    private static final int FS = 54;
+    private static final int L = 55;
+    private static final int T = 56;
+    private static final int G = 57;
+    private static final int Z = 58;
+    private static final int M = 59;
+    private static final int IP = 60;
+    private static final int POS = 61;
+    private static final int NEG = 62;
+    private static final int LP = 63;
+    private static final int C = 64;
+    private static final int MOIN = 65;
+    private static final int MOMM = 66;
+    private static final int OF = 67;
+    private static final int SF = 68;
+    private static final int SR = 69;
+    private static final int COMMA = 70;
+    private static final int TIMES = 71;
+    private static final int SLASH = 72;
+    private static final int DOLLAR = 73;
+
+    private static final int NONE = -1;
+    private static final int ASCII = 128;
+    private static final int[] TRIE;
+    private static final int[] TRIE_KINDS;
+
+    static {
+        int nodes = 1;
+        for (String image : tokenImage) {
+            nodes += image.length();
+        }
+        int[] trie = new int[nodes * ASCII];
+        int[] kinds = new int[nodes];
+        kinds[0] = NONE;
+        int used = 1;
+
+        for (int kind = PARAM_DELIM; kind < tokenImage.length; kind++) {
+            String image = tokenImage[kind];
+            if (image.charAt(0) != '"') {
+                continue;
+            }
+            int node = 0;
+            for (int i = 1; i < image.length() - 1; i++) {
+                int idx = node * ASCII + image.charAt(i);
+                if (trie[idx] == 0) {
+                    kinds[used] = NONE;
+                    trie[idx] = used++;
+                }
+                node = trie[idx];
+            }
+            kinds[node] = kind;
+        }
+        TRIE = trie;
+        TRIE_KINDS = kinds;
+    }
+
+    private final ByteBuffer data;
+    private final int limit;
+    private Plotter simulator;
+
+    private int pos;
+    private int line = 1;
+    private int lexState = STATE_DEFAULT;
+
+    private int kind = NONE;
+    private int start;
+    private int end;
+    private int tokenLine;
+
+    private char[] chars = new char[32];
+    private int coordLength;
+
+    public GerberParser(byte[] data) {
+        this(ByteBuffer.wrap(data));
+    }
+
+    public GerberParser(ByteBuffer data) {
+        this.data = data;
+        this.pos = data.position();
+        this.limit = data.limit();
+    }
+
+    public void setSimulator(Plotter simulator) {
+        this.simulator = simulator;
+    }
+
+    public void parse() throws ParseException {
+        while (true) {
+            int next = peek();
+            if (next == PARAM_DELIM) {
+                parameter();
+            } else if (next == CODE_DELIM || next == COMMENT || (next >= N && next <= J) || (next >= M00 && next <= M02)) {
+                if (code()) {
+                    simulator.done();
+                    return;
+                }
+            } else {
+                break;
+            }
+        }
+        consume(EOF);
+        simulator.done();
+    }
+
+    private void parameter() throws ParseException {
+        consume(PARAM_DELIM);
+        while (true) {
+            switch (peek()) {
+                case IC:
+                    inputEncoding();
+                    break;
+                case OF:
+                    offset();
+                    break;
+                case FS:
+                    formatStatement();
+                    break;
+                case IP:
+                    imagePolarity();
+                    break;
+                case LP:
+                    layerPolarity();
+                    break;
+                case ADD:
+                    apertureDescription();
+                    break;
+                case AM:
+                    apertureMacro();
+                    break;
+                case AS:
+                    axisSelect();
+                    break;
+                case IN:
+                    imageName();
+                    break;
+                case MOIN:
+                case MOMM:
+                    mode();
+                    break;
+                case SF:
+                    scaleFactor();
+                    break;
+                case LN:
+                    layerName();
+                    break;
+                case SR:
+                    stepAndRepeat();
+                    break;
+                default:
+                    consume(PARAM_DELIM);
+                    return;
+            }
+        }
+    }
+
+    private boolean code() throws ParseException {
+        int stop = -1;
+        int seqStart = -1;
+        int seqEnd = -1;
+
+        if (peek() == N) {
+            consume(N);
+            consume(DIGITS);
+            seqStart = start;
+            seqEnd = end;
+        }
+
+        int next = peek();
+        if (next == COMMENT || (next >= G00 && next <= G91)) {
+            gCode();
+            if (isDCode(peek())) {
+                dCode();
+            }
+        } else if (isDCode(next)) {
+            dCode();
+        } else if (next >= M00 && next <= M02) {
+            stop = mCode();
+        }
+        consume(CODE_DELIM);
+
+        return (stop == Parser.HALT)
+            || ((stop == Parser.OPTSTOP) && !simulator.askContinue(tokenLine, (seqStart >= 0) ? parseInt(0, seqStart, seqEnd) : -1));
+    }
+
+    private static boolean isDCode(int kind) {
+        return kind >= D01 && kind <= J;
+    }
+
+    private void gCode() throws ParseException {
+        int next = peek();
+        consume(next);
+        switch (next) {
+            case G00:
+                simulator.setMode(PlotterMode.RAPID);
+                break;
+            case G01:
+            case G37:
+                simulator.setMode(PlotterMode.LINEAR);
+                break;
+            case G02:
+                simulator.setMode(PlotterMode.CW);
+                break;
+            case G03:
+                simulator.setMode(PlotterMode.CCW);
+                break;
+            case COMMENT:
+                consume(TEXT);
+                simulator.comment(tokenLine, text(start, end));
+                break;
+            case G36:
+                simulator.setMode(PlotterMode.POLYGON);
+                break;
+            case G54:
+                break;
+            case G70:
+                simulator.setMode(PlotterMode.IMPERIAL);
+                break;
+            case G71:
+                simulator.setMode(PlotterMode.METRIC);
+                break;
+            case G74:
+                simulator.resetMode(PlotterMode.FULL_CIRCLE);
+                break;
+            case G75:
+                simulator.setMode(PlotterMode.FULL_CIRCLE);
+                break;
+            case G90:
+                simulator.resetMode(PlotterMode.INCREMENTAL);
+                break;
+            case G91:
+                simulator.setMode(PlotterMode.INCREMENTAL);
+                break;
+            default:
+                throw unexpected();
+        }
+    }
+
+    private void dCode() throws ParseException {
+        int next = peek();
+        if (next >= X && next <= J) {
+            coordinateDCode();
+        } else if (nonCoordinateDCode()) {
+            simulator.addFlash();
+        }
+    }
+
+    private void coordinateDCode() throws ParseException {
+        long x = 0;
+        long y = 0;
+        long i = 0;
+        long j = 0;
+        int lengthX = 0;
+        int lengthY = 0;
+        int lengthI = 0;
+        int lengthJ = 0;
+        int position = 0;
+        int center = 0;
+
+        int next = peek();
+        do {
+            consume(next);
+            long value = coord();
+            switch (next) {
+                case X:
+                    x = value;
+                    lengthX = coordLength;
+                    position |= Plotter.AXIS_X;
+                    break;
+                case Y:
+                    y = value;
+                    lengthY = coordLength;
+                    position |= Plotter.AXIS_Y;
+                    break;
+                case I:
+                    i = value;
+                    lengthI = coordLength;
+                    center |= Plotter.AXIS_X;
+                    break;
+                default:
+                    j = value;
+                    lengthJ = coordLength;
+                    center |= Plotter.AXIS_Y;
+                    break;
+            }
+            next = peek();
+        } while (next >= X && next <= J);
+
+        if (next >= D01 && next <= D) {
+            nonCoordinateDCode();
+        }
+
+        if (center != 0) {
+            simulator.setCenter(i, lengthI, j, lengthJ, center);
+        }
+
+        if (position != 0) {
+            simulator.setPosition(x, lengthX, y, lengthY, position);
+        }
+    }
+
+    private boolean nonCoordinateDCode() throws ParseException {
+        int next = peek();
+        consume(next);
+        switch (next) {
+            case D01:
+                if (peek() == DIGITS) {
+                    consume(DIGITS);
+                    simulator.setAperture(parseInt(1, start, end));
+                } else {
+                    simulator.setExposure(ExposureMode.OPEN);
+                }
+                return false;
+            case D02:
+                if (peek() == DIGITS) {
+                    consume(DIGITS);
+                    simulator.setAperture(parseInt(2, start, end));
+                } else {
+                    simulator.setExposure(ExposureMode.CLOSED);
+                }
+                return false;
+            case D03:
+                if (peek() == DIGITS) {
+                    consume(DIGITS);
+                    simulator.setAperture(parseInt(3, start, end));
+                } else {
+                    simulator.setExposure(ExposureMode.FLASH);
+                }
+                return true;
+            case D:
+                consume(DIGITS);
+                simulator.setAperture(parseInt(0, start, end));
+                return false;
+            default:
+                throw unexpected();
+        }
+    }
+
+    // length of the coordinate as written (including sign) is left in coordLength
+    private long coord() throws ParseException {
+        boolean negative = false;
+        coordLength = 0;
+        if (peek() == SIGN) {
+            consume(SIGN);
+            negative = at(start) == '-';
+            coordLength = 1;
+        }
+        consume(DIGITS);
+        coordLength += end - start;
+        long value = parseLong(0, start, end);
+        return negative ? -value : value;
+    }
+
+    private double number() throws ParseException {
+        boolean negative = false;
+        if (peek() == SIGN) {
+            consume(SIGN);
+            negative = at(start) == '-';
+        }
+
+        int length = 0;
+        if (peek() == DIGITS) {
+            consume(DIGITS);
+            copy(0, start, end);
+            length = end - start;
+            if (peek() == DOT) {
+                consume(DOT);
+                if (peek() == DIGITS) {
+                    consume(DIGITS);
+                    chars[length++] = '.';
+                    copy(length, start, end);
+                    length += end - start;
+                }
+            }
+        } else {
+            consume(DOT);
+            consume(DIGITS);
+            chars[0] = '.';
+            copy(1, start, end);
+            length = end - start + 1;
+        }
+
+        double value = Double.parseDouble(new String(chars, 0, length));
+        return negative ? -value : value;
+    }
+
+    private int mCode() throws ParseException {
+        int next = peek();
+        consume(next);
+        switch (next) {
+            case M00:
+            case M02:
+                return Parser.HALT;
+            case M01:
+                return Parser.OPTSTOP;
+            default:
+                throw unexpected();
+        }
+    }
+
+    private void inputEncoding() throws ParseException {
+        consume(IC);
+        int encoding = peek();
+        if (encoding < AS || encoding > EI) {
+            throw unexpected();
+        }
+        consume(encoding);
+        consume(CODE_DELIM);
+        if (encoding != AS && encoding != IS) {
+            LOG.warn("Unsupported image encoding {}", image(encoding));
+        }
+    }
+
+    private void axisSelect() throws ParseException {
+        consume(AS);
+        consume(A);
+        int a = axis();
+        consume(B);
+        int b = axis();
+        consume(CODE_DELIM);
+        simulator.selectAxis(image(a), image(b));
+    }
+
+    private int axis() throws ParseException {
+        int next = peek();
+        if (next != X && next != Y) {
+            throw unexpected();
+        }
+        consume(next);
+        return next;
+    }
+
+    private void formatStatement() throws ParseException {
+        consume(FS);
+        int next = peek();
+        if (next == L || next == T) {
+            consume(next);
+            if (next == T) {
+                simulator.setMode(PlotterMode.IGNORE_TRAILING_ZEROS);
+            }
+        }
+        next = peek();
+        if (next == A || next == I) {
+            consume(next);
+            if (next == I) {
+                simulator.setMode(PlotterMode.INCREMENTAL);
+            } else {
+                simulator.resetMode(PlotterMode.INCREMENTAL);
+            }
+        }
+        skipOptional(N);
+        skipOptional(G);
+        if (peek() == X) {
+            consume(X);
+            consume(DIGITS);
+            if (end - start != 2) {
+                LOG.warn("Ignoring bad X format, not 2 digits: {}", text(start, end));
+            } else {
+                simulator.setFormatX(at(start) - '0', at(start + 1) - '0');
+            }
+        }
+        if (peek() == Y) {
+            consume(Y);
+            consume(DIGITS);
+            if (end - start != 2) {
+                LOG.warn("Ignoring bad Y format, not 2 digits: {}", text(start, end));
+            } else {
+                simulator.setFormatY(at(start) - '0', at(start + 1) - '0');
+            }
+        }
+        skipOptional(Z);
+        skipOptional(D);
+        skipOptional(M);
+        consume(CODE_DELIM);
+    }
+
+    private void skipOptional(int prefix) throws ParseException {
+        if (peek() == prefix) {
+            consume(prefix);
+            consume(DIGITS);
+        }
+    }
+
+    private void imageName() throws ParseException {
+        consume(IN);
+        consume(TEXT);
+        String name = text(start, end);
+        consume(CODE_DELIM);
+        LOG.info("image name: {}", name);
+    }
+
+    private void imagePolarity() throws ParseException {
+        consume(IP);
+        int polarity = peek();
+        if (polarity != POS && polarity != NEG) {
+            throw unexpected();
+        }
+        consume(polarity);
+        consume(CODE_DELIM);
+        simulator.setImagePolarity(image(polarity));
+    }
+
+    private void layerName() throws ParseException {
+        consume(LN);
+        consume(TEXT);
+        String name = text(start, end);
+        consume(CODE_DELIM);
+        LOG.info("layer name: {}", name);
+    }
+
+    private void layerPolarity() throws ParseException {
+        consume(LP);
+        int polarity = peek();
+        if (polarity != C && polarity != D) {
+            throw unexpected();
+        }
+        consume(polarity);
+        consume(CODE_DELIM);
+        simulator.setLayerPolarity(image(polarity));
+    }
+
+    private void mode() throws ParseException {
+        int mode = peek();
+        consume(mode);
+        consume(CODE_DELIM);
+        if (mode == MOMM) {
+            simulator.setMode(PlotterMode.METRIC);
+        }
+    }
+
+    private void offset() throws ParseException {
+        consume(OF);
+        double a = optionalNumber(A);
+        double b = optionalNumber(B);
+        consume(CODE_DELIM);
+        simulator.setOffset(!Double.isNaN(a) ? ("A" + a) : "", !Double.isNaN(b) ? ("B" + b) : "");
+    }
+
+    private void scaleFactor() throws ParseException {
+        consume(SF);
+        double a = optionalNumber(A);
+        double b = optionalNumber(B);
+        consume(CODE_DELIM);
+        simulator.setScaleFactor(!Double.isNaN(a) ? ("A" + a) : "", !Double.isNaN(b) ? ("B" + b) : "");
+    }
+
+    private double optionalNumber(int prefix) throws ParseException {
+        if (peek() != prefix) {
+            return Double.NaN;
+        }
+        consume(prefix);
+        return number();
+    }
+
+    private void stepAndRepeat() throws ParseException {
+        consume(SR);
+        String x = "";
+        String y = "";
+        if (peek() == X) {
+            consume(X);
+            consume(DIGITS);
+            x = "X" + text(start, end);
+        }
+        if (peek() == Y) {
+            consume(Y);
+            consume(DIGITS);
+            y = "Y" + text(start, end);
+        }
+        double i = optionalNumber(I);
+        double j = optionalNumber(J);
+        consume(CODE_DELIM);
+        simulator.stepAndRepeat(x, y, (!Double.isNaN(i)) ? ("I" + i) : "", (!Double.isNaN(j)) ? ("J" + j) : "");
+    }
+
+    private void apertureDescription() throws ParseException {
+        List<Double> modifiers = new ArrayList<>();
+        consume(ADD);
+        consume(DIGITS2);
+        int num = parseInt(0, start, end);
+        int numberLine = tokenLine;
+        consume(ALNUMS);
+        String type = text(start, end);
+
+        if (peek() == COMMA) {
+            consume(COMMA);
+            modifiers.add(number());
+            while (peek() == X) {
+                consume(X);
+                modifiers.add(number());
+            }
+        }
+        consume(CODE_DELIM);
+
+        if ("C".equals(type)) {
+            simulator.addAperture(new SimpleAperture(ApertureType.CIRCLE, num, modifiers));
+            validateModifiersSize("circle", modifiers, numberLine, 0, 3);
+        } else if ("R".equals(type)) {
+            simulator.addAperture(new SimpleAperture(ApertureType.RECTANGLE, num, modifiers));
+            validateModifiersSize("rectangle", modifiers, numberLine, 1, 4);
+        } else if ("O".equals(type)) {
+            simulator.addAperture(new SimpleAperture(ApertureType.OBROUND, num, modifiers));
+            validateModifiersSize("obround", modifiers, numberLine, 1, 4);
+        } else if ("P".equals(type)) {
+            simulator.addAperture(new SimpleAperture(ApertureType.POLYGON, num, modifiers));
+            validateModifiersSize("polygon", modifiers, numberLine, 1, 5);
+        } else {
+            try {
+                simulator.addAperture(new MacroAperture(num, simulator.getMacro(type), modifiers));
+            } catch (NoSuchElementException e) {
+                LOG.warn("Ignoring aperture definition on line {} which references unknown aperture macro {}", numberLine, type);
+            }
+        }
+    }
+
+    private static void validateModifiersSize(String string, List<Double> modifiers, int line, int lower, int upper) {
+        if (modifiers.size() <= lower) {
+            LOG.warn("Ignoring {} aperture with {} modifiers on line {}", string, (lower == 0 ? "no" : " < " + (lower + 1)), line);
+        } else if (modifiers.size() > upper) {
+            LOG.warn("Ignoring {} aperture with extra modifiers on line {}", string, line);
+        }
+    }
+
+    private void apertureMacro() throws ParseException {
+        List<MacroPrimitive> primitives = new ArrayList<>();
+        consume(AM);
+        consume(TEXT);
+        String name = text(start, end);
+        consume(CODE_DELIM);
+
+        int next;
+        do {
+            MacroPrimitive primitive = primitive();
+            if (primitive != null) {
+                primitives.add(primitive);
+            }
+            next = peek();
+        } while (next == CODE_DELIM || next == DIGITS);
+
+        simulator.addMacro(new ApertureMacro(name, primitives));
+    }
+
+    private MacroPrimitive primitive() throws ParseException {
+        if (peek() == CODE_DELIM) {
+            consume(CODE_DELIM);
+            return null;
+        }
+        consume(DIGITS);
+        int primitiveNumber = parseInt(0, start, end);
+        List<MacroPrimitive> exprs = new ArrayList<>();
+
+        if (peek() == COMMA) {
+            consume(COMMA);
+            exprs.add(expr());
+            while (peek() == COMMA) {
+                consume(COMMA);
+                exprs.add(expr());
+            }
+        }
+        consume(CODE_DELIM);
+
+        switch (primitiveNumber) {
+            case 1:
+                return new SimpleMacroPrimitive(MacroPrimitiveType.CIRCLE, exprs);
+            case 2:
+            case 20:
+                return new SimpleMacroPrimitive(MacroPrimitiveType.LINE_VECTOR, exprs);
+            case 21:
+                return new SimpleMacroPrimitive(MacroPrimitiveType.LINE_CENTER, exprs);
+            case 22:
+                return new SimpleMacroPrimitive(MacroPrimitiveType.LINE_LL, exprs);
+            case 3:
+                return null;
+            case 4:
+                return new SimpleMacroPrimitive(MacroPrimitiveType.OUTLINE, exprs);
+            case 5:
+                return new SimpleMacroPrimitive(MacroPrimitiveType.POLYGON, exprs);
+            case 6:
+                return new SimpleMacroPrimitive(MacroPrimitiveType.MOIRE, exprs);
+            case 7:
+                return new SimpleMacroPrimitive(MacroPrimitiveType.THERMAL, exprs);
+            default:
+                LOG.warn("Ignoring unknown macro primitive type {}", primitiveNumber);
+                return null;
+        }
+    }
+
+    private MacroExpression expr() throws ParseException {
+        MacroExpression lhs = mulExpr();
+        if (peek() != SIGN) {
+            return lhs;
+        }
+        consume(SIGN);
+        BinaryOperation operator = (at(start) == '+') ? BinaryOperation.ADD : BinaryOperation.SUBTRACT;
+        return new MacroBinOp(operator, lhs, mulExpr());
+    }
+
+    private MacroExpression mulExpr() throws ParseException {
+        MacroExpression lhs = unaryExpr();
+        int next = peek();
+        if (next != X && next != TIMES && next != SLASH) {
+            return lhs;
+        }
+        consume(next);
+        BinaryOperation operator = (next == SLASH) ? BinaryOperation.DIVIDE : BinaryOperation.MULTIPLY;
+        return new MacroBinOp(operator, lhs, unaryExpr());
+    }
+
+    private MacroExpression unaryExpr() throws ParseException {
+        switch (peek()) {
+            case SIGN:
+            case DIGITS:
+            case DOT:
+                return new MacroConstant(number());
+            case DOLLAR:
+                consume(DOLLAR);
+                consume(DIGITS);
+                return new MacroVariable(parseInt(0, start, end));
+            default:
+                throw unexpected();
+        }
+    }
+
+    private int peek() throws ParseException {
+        if (kind == NONE) {
+            lex();
+        }
+        return kind;
+    }
+
+    private void consume(int expected) throws ParseException {
+        if (peek() != expected) {
+            throw unexpected();
+        }
+        if (kind != EOF) {
+            kind = NONE;
+        }
+    }
+
+    private void lex() throws ParseException {
+        if (lexState == STATE_DEFAULT) {
+            skipWhitespace();
+        }
+
+        start = pos;
+        tokenLine = line;
+
+        if (pos >= limit) {
+            kind = EOF;
+            end = pos;
+            return;
+        }
+
+        switch (lexState) {
+            case STATE_TEXT:
+                while (pos < limit && !isTextEnd(at(pos))) {
+                    pos++;
+                }
+                kind = TEXT;
+                lexState = STATE_DEFAULT;
+                break;
+            case STATE_ALNUMS:
+                lexAlnums();
+                break;
+            default:
+                lexDefault();
+                break;
+        }
+        end = pos;
+    }
+
+    private void skipWhitespace() {
+        while (pos < limit) {
+            byte c = at(pos);
+            if (c == '\n') {
+                if (pos == 0 || at(pos - 1) != '\r') {
+                    line++;
+                }
+            } else if (c == '\r') {
+                line++;
+            } else if (c != ' ' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private static boolean isTextEnd(byte c) {
+        return c == '\n' || c == '\r' || c == '*';
+    }
+
+    private void lexAlnums() throws ParseException {
+        byte c = at(pos);
+        if (isDigit(c)) {
+            while (pos < limit && isDigit(at(pos))) {
+                pos++;
+            }
+            kind = DIGITS2;
+        } else if (isLetter(c)) {
+            while (pos < limit && (isLetter(at(pos)) || isDigit(at(pos)))) {
+                pos++;
+            }
+            kind = ALNUMS;
+            lexState = STATE_DEFAULT;
+        } else {
+            throw lexicalError();
+        }
+    }
+
+    private void lexDefault() throws ParseException {
+        byte c = at(pos);
+        if (isDigit(c)) {
+            while (pos < limit && isDigit(at(pos))) {
+                pos++;
+            }
+            kind = DIGITS;
+            return;
+        }
+        if (c == '+' || c == '-') {
+            pos++;
+            kind = SIGN;
+            return;
+        }
+
+        // longest literal match
+        int matched = NONE;
+        int matchedEnd = pos;
+        int node = 0;
+        for (int i = pos; i < limit; i++) {
+            int ch = at(i);
+            if (ch < 0) {
+                break;
+            }
+            node = TRIE[node * ASCII + ch];
+            if (node == 0) {
+                break;
+            }
+            if (TRIE_KINDS[node] != NONE) {
+                matched = TRIE_KINDS[node];
+                matchedEnd = i + 1;
+            }
+        }
+
+        if (matched == NONE) {
+            throw lexicalError();
+        }
+
+        pos = matchedEnd;
+        kind = matched;
+        if (matched == IN || matched == LN || matched == AM || matched == COMMENT) {
+            lexState = STATE_TEXT;
+        } else if (matched == ADD) {
+            lexState = STATE_ALNUMS;
+        }
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(byte c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private byte at(int index) {
+        return data.get(index);
+    }
+
+    private char[] copy(int offset, int from, int to) {
+        int length = offset + to - from + 1;
+        if (length > chars.length) {
+            char[] copy = new char[Math.max(length, chars.length * 2)];
+            System.arraycopy(chars, 0, copy, 0, offset);
+            chars = copy;
+        }
+        for (int i = from; i < to; i++) {
+            chars[offset++] = (char) (at(i) & 0xFF);
+        }
+        return chars;
+    }
+
+    private String text(int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = at(from + i);
+        }
+        return new String(bytes, Charset.defaultCharset());
+    }
+
+    private int parseInt(int prefix, int from, int to) {
+        long value = parseLong(prefix, from, to);
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value is out of range: " + text(from, to));
+        }
+        return (int) value;
+    }
+
+    private long parseLong(long prefix, int from, int to) {
+        long value = prefix;
+        try {
+            for (int i = from; i < to; i++) {
+                value = Math.addExact(Math.multiplyExact(value, 10), at(i) - '0');
+            }
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Value is out of range: " + text(from, to));
+        }
+        return value;
+    }
+
+    private static String image(int kind) {
+        String image = tokenImage[kind];
+        return image.substring(1, image.length() - 1);
+    }
+
+    private ParseException unexpected() {
+        String found = (kind == EOF) ? "end of input"
+            : (tokenImage[kind].charAt(0) == '"') ? tokenImage[kind] : "\"" + text(start, end) + "\"";
+        return new ParseException("Unexpected " + found + " at line " + tokenLine);
+    }
+
+    private ParseException lexicalError() {
+        return new ParseException(String.format("Unexpected character '%c' at line %d", (char) (at(pos) & 0xFF), line));
+    }
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.parser;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import com.baremetalstudios.minicam.simulator.RecordingPlotter;
+
+/*
+ * Runs generated and hand-written Gerber parsers over same input and compares plotter callbacks
+ * produced by them.
+ */
+public final class GerberParserCheck {
+    private static final String FAILURE = "<parse error>";
+
+    private GerberParserCheck() {
+    }
+
+    /**
+     * Returns description of the first difference or null if both parsers produced same callbacks.
+     */
+    public static String compare(byte[] data) {
+        return compare(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Same as {@link #compare(byte[])} for remaining content of the buffer.
+     */
+    public static String compare(ByteBuffer data) {
+        List<String> expected = parseReference(data);
+        List<String> actual = parseFast(data);
+
+        int count = Math.min(expected.size(), actual.size());
+        for (int i = 0; i < count; i++) {
+            if (!expected.get(i).equals(actual.get(i))) {
+                return describe(i, expected.get(i), actual.get(i));
+            }
+        }
+
+        if (expected.size() != actual.size()) {
+            return describe(count, element(expected, count), element(actual, count));
+        }
+        return null;
+    }
+
+    private static List<String> parseReference(ByteBuffer data) {
+        RecordingPlotter plotter = new RecordingPlotter();
+        Parser parser = new Parser(MappedInput.asStream(data));
+        parser.setSimulator(plotter);
+        try {
+            parser.Input();
+        } catch (TokenMgrError | RuntimeException e) {
+            plotter.getCalls().add(FAILURE);
+        }
+        return plotter.getCalls();
+    }
+
+    private static List<String> parseFast(ByteBuffer data) {
+        RecordingPlotter plotter = new RecordingPlotter();
+        GerberParser parser = new GerberParser(data);
+        parser.setSimulator(plotter);
+        try {
+            parser.parse();
+        } catch (RuntimeException e) {
+            plotter.getCalls().add(FAILURE);
+        }
+        return plotter.getCalls();
+    }
+
+    private static String element(List<String> calls, int index) {
+        return (index < calls.size()) ? calls.get(index) : "<end>";
+    }
+
+    private static String describe(int index, String expected, String actual) {
+        return String.format("callback %d: javacc %s, fast %s", index + 1, expected, actual);
+    }
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Input files are memory mapped and parsed as bytes. Both Gerber and Excellon are ASCII formats,
+ * so there is no need to decode them into characters.
+ */
+public final class MappedInput {
+    private MappedInput() {
+    }
+
+    public static ByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File " + file + " is too large");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Reads mapped content into memory, so following parsing is not blocked on file I/O.
+     */
+    public static ByteBuffer load(ByteBuffer data) {
+        if (data instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) data).load();
+        }
+        return data;
+    }
+
+    /**
+     * Stream over remaining content of the buffer, for parsers which can't work with bytes directly.
+     */
+    public static InputStream asStream(ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return new ByteArrayInputStream(bytes);
+    }
+}
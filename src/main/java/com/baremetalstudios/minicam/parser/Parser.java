@@ -1176,7 +1176,7 @@ public class Parser implements ParserConstants {
 
         BinaryOperation operator = BinaryOperation.MULTIPLY;
 
-        if ("-".equals(op.image))
+        if ("/".equals(op.image))
             operator = BinaryOperation.DIVIDE;
 
         return new MacroBinOp(operator, lhs, rhs);
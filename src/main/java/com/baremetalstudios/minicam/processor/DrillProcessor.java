@@ -15,13 +15,23 @@
  ******************************************************************************/
 package com.baremetalstudios.minicam.processor;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import com.baremetalstudios.minicam.config.OutputConfig;
 import com.baremetalstudios.minicam.geometry.DrillGroup;
 import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+import com.baremetalstudios.minicam.optimizer.CachingOptimizer;
+import com.baremetalstudios.minicam.optimizer.DrillOrderCache;
+import com.baremetalstudios.minicam.optimizer.DrillPathOptimizer;
+import com.baremetalstudios.minicam.optimizer.DrillPathOptimizers;
 
 public class DrillProcessor {
     private OutputConfig config;
@@ -85,12 +95,82 @@ public class DrillProcessor {
     }
 
     public List<DrillGroup> optimize(List<DrillGroup> drills) {
+        return optimize(drills, null);
+    }
+
+    /**
+     * Optimizes drill groups. If repeated board is given, groups which consist of copies of the
+     * same drills, one per board instance, are optimized only for one copy.
+     */
+    public List<DrillGroup> optimize(List<DrillGroup> drills, Polygon board) {
+        // largest groups go first, so the longest job does not start last
+        List<DrillGroup> schedule = new ArrayList<>(drills);
+        schedule.sort(Comparator.comparingInt(DrillGroup::size).reversed());
+
+        Map<DrillGroup, Long> timings = new IdentityHashMap<>();
+        int parallelism = getParallelism();
+        DrillPathOptimizer optimizer = createOptimizer();
+        int total = schedule.stream().mapToInt(DrillGroup::size).sum();
+        long deadline = System.nanoTime() + config.getOptimizationTime() * 1_000_000L;
+
+        // optimizers run their parallel streams in the pool they are called from, so everything is
+        // run inside the sized pool, even single group, otherwise common pool would be used
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+            for (DrillGroup group : schedule) {
+                double share = share(group, total, schedule.size() < 2 ? 1 : parallelism);
+                tasks.add(pool.submit(() -> optimize(group, optimizer, deadline, share, board)));
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                timings.put(schedule.get(i), tasks.get(i).join());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
         for (DrillGroup group : drills) {
-            group.optimize(config);
+            System.out.format("Drill %.2f, %4d drills optimized in %d ms\n", group.getDiameter(), group.size(), timings.get(group));
+        }
+        if (optimizer instanceof CachingOptimizer) {
+            CachingOptimizer cache = (CachingOptimizer) optimizer;
+            System.out.format("Drill order cache: %d hit(s), %d miss(es)\n", cache.getHits(), cache.getMisses());
         }
         return drills;
     }
 
+    private DrillPathOptimizer createOptimizer() {
+        DrillPathOptimizer optimizer = DrillPathOptimizers.forName(config.getOptimizationAlgorithm());
+        String cacheDir = config.getOptimizationCacheDir().trim();
+
+        if (cacheDir.isEmpty()) {
+            return optimizer;
+        }
+        long maxSize = config.getOptimizationCacheSize() * 1024L * 1024L;
+        return new CachingOptimizer(optimizer, new DrillOrderCache(Paths.get(cacheDir), maxSize));
+    }
+
+    // with time budget each group gets its share of the budget, but never runs past job deadline
+    private long optimize(DrillGroup group, DrillPathOptimizer optimizer, long deadline, double share, Polygon board) {
+        long start = System.nanoTime();
+        long budget = (long) (config.getOptimizationTime() * 1_000_000L * share);
+        long groupDeadline = start + Math.max(0, Math.min(budget, deadline - start));
+
+        if (board == null || !group.optimizeRepeated(board, optimizer, config, groupDeadline)) {
+            group.optimize(optimizer, config, groupDeadline);
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static double share(DrillGroup group, int total, int parallelism) {
+        return total == 0 ? 1 : Math.min(1.0, (double) parallelism * group.size() / total);
+    }
+
+    private int getParallelism() {
+        int threads = config.getOptimizationThreads();
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
     public OutputConfig getConfig() {
         return config;
     }
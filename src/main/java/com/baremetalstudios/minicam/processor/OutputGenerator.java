@@ -68,7 +68,14 @@ public class OutputGenerator {
         int i = 0;
         for (Polygon polygon : polygons) {
             if (polygon instanceof Circle || !polygon.isInner() || config.generateInnerCut()) {
-                generateSinglePolygon(polygon, ++i);
+                // step and repeat instances share template, translation is applied here
+                for (Point translation : polygon.getTranslations()) {
+                    if (isArc(polygon)) {
+                        generateSingleCircle((Circle) polygon, translation, ++i);
+                    } else {
+                        generateSinglePolygon(polygon, translation, ++i);
+                    }
+                }
             }
         }
     }
@@ -101,6 +108,14 @@ public class OutputGenerator {
         return String.format("X%.5f Y%.5f", scaleX(point.getX()), scaleY(point.getY()));
     }
 
+    private String point(Point point, Point translation) {
+        return point(point.getX(), point.getY(), translation);
+    }
+
+    private String point(double x, double y, Point translation) {
+        return String.format("X%.5f Y%.5f", scaleX(x + translation.getX()), scaleY(y + translation.getY()));
+    }
+
     private double calculateDrillZ(DrillGroup group) {
         double extraLength = config.isAdjustDrillDepth() ? group.getDiameter() / 2 * DRILL_ADJUST_SCALER : 0;
 
@@ -120,36 +135,71 @@ public class OutputGenerator {
         writer.printf("G04 P%.5f ( wait while spindle reach full speed )%s", (double) config.getSpindleDelay(), config.getSeparator());
     }
 
-    private void generateSinglePolygon(Polygon polygon, int ordinal) {
+    private void generateSinglePolygon(Polygon polygon, Point translation, int ordinal) {
         writer.printf("( Polygon  %d, %d points, %.3fmm x %.3fmm )%s", ordinal, polygon.count(), polygon.getSizeX(), polygon.getSizeY(), config.getSeparator());
-        writer.printf("G00 %s Z%.5f ( rapid move to begin )%s", point(polygon.getFirst()), config.getZSafe(), config.getSeparator());
+        writer.printf("G00 %s Z%.5f ( rapid move to begin )%s", point(polygon.getFirst(), translation), config.getZSafe(), config.getSeparator());
 
         plunge();
 
         boolean retracted = false;
-        for (Point point : polygon.getPoints()) {
-            writer.printf("%s%s", point(point), config.getSeparator());
+        for (int i = 0; i < polygon.count(); i++) {
+            writer.printf("%s%s", point(polygon.getX(i), polygon.getY(i), translation), config.getSeparator());
 
-            if (retracted && !point.isRetract()) {
+            if (retracted && !polygon.isRetract(i)) {
                 retracted = plunge();
             }
-            if (point.isRetract()) {
+            if (polygon.isRetract(i)) {
                 retracted = retract();
             }
         }
         retract();
     }
 
+    // arc can't be used if circle is interrupted by tabs or is scaled into ellipse
+    private boolean isArc(Polygon polygon) {
+        return polygon instanceof Circle && config.isMillDrillsAsArcs() && polygon.count() > 1 && !polygon.hasRetracts()
+               && Math.abs(config.getXScale()) == Math.abs(config.getYScale());
+    }
+
+    /*
+     * Circle is milled as single full circle arc which starts and ends at the first vertex. With more
+     * than one pass configured, tool is plunged to the depth of the first pass only and cut depth is
+     * reached by helical turns, followed by one more turn at the cut depth.
+     */
+    private void generateSingleCircle(Circle circle, Point translation, int ordinal) {
+        Point start = circle.getFirst();
+        Point center = circle.getCenter();
+        // mirroring by negative scale changes direction of the arc
+        boolean clockwise = circle.isClockwise() == (config.getXScale() * config.getYScale() > 0);
+        String arc = String.format("%s %s I%.5f J%.5f", clockwise ? "G02" : "G03", point(start, translation),
+                                   scaleX(center.getX() - start.getX()), scaleY(center.getY() - start.getY()));
+        int passes = config.getMillDrillsPasses();
+
+        writer.printf("( Circle  %d, %.3fmm )%s", ordinal, circle.getRadius() * 2, config.getSeparator());
+        writer.printf("G00 %s Z%.5f ( rapid move to begin )%s", point(start, translation), config.getZSafe(), config.getSeparator());
+
+        plunge(config.getZCut() / passes);
+        for (int i = 2; i <= passes; i++) {
+            writer.printf("%s Z%.5f%s", arc, config.getZCut() * i / passes, config.getSeparator());
+        }
+        writer.printf("%s%s", arc, config.getSeparator());
+        retract();
+    }
+
     private boolean retract() {
         writer.printf("G00 Z%.5f ( retract )%s", config.getZSafe(), config.getSeparator());
         return true;
     }
 
     private boolean plunge() {
-        writer.printf("G01 Z%.5f F%.5f ( plunge )%s", config.getZCut(), config.getCutFeedRate(), config.getSeparator());
+        plunge(config.getZCut());
         return false;
     }
 
+    private void plunge(double z) {
+        writer.printf("G01 Z%.5f F%.5f ( plunge )%s", z, config.getCutFeedRate(), config.getSeparator());
+    }
+
     private void toolChangeRetract() {
         writer.printf("G00 Z%.5f ( retract )%s", config.getToolChangeZ(), config.getSeparator());
     }
@@ -186,7 +236,7 @@ public class OutputGenerator {
         }
 
         if (polygons != null) {
-            toolChange(1, config.getCutterDiameter(), "mill", polygons.size());
+            toolChange(1, config.getCutterDiameter(), "mill", polygons.stream().mapToInt(Polygon::getInstanceCount).sum());
         } else {
             DrillGroup group = drills.get(0);
             toolChange(group.getOrdinal(), group.getDiameter(), "drill", group.getDrills().size());
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.baremetalstudios.minicam.config.OutputConfig;
+import com.baremetalstudios.minicam.geometry.DrillGroup;
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+/*
+ * Chains tool paths so each one starts near the point where the previous one has finished.
+ * Polygons are milled first, then drill groups are drilled in list order. Polygons with tabs keep
+ * their start point, since tabs are already placed relative to it. Optionally polygons and drill
+ * groups are reordered greedily by entry cost, inner polygons are always cut before outer ones.
+ */
+public class PathSequencer {
+    private OutputConfig config;
+
+    public PathSequencer(OutputConfig config) {
+        this.config = config;
+    }
+
+    public Point sequence(List<Polygon> polygons, List<DrillGroup> drills, Point start) {
+        if (!config.isSequencePaths()) {
+            return start;
+        }
+
+        double before = linkLength(polygons, drills, start);
+        Point position = sequencePolygons(polygons, start);
+        position = sequenceDrills(drills, position);
+        double after = linkLength(polygons, drills, start);
+
+        System.out.printf("Moves between tool paths %.2fmm, before sequencing %.2fmm\n", after, before);
+        return position;
+    }
+
+    public Point sequencePolygons(List<Polygon> polygons, Point start) {
+        List<Polygon> remaining = new ArrayList<>(polygons);
+        remaining.removeIf(polygon -> polygon == null || polygon.getPoints().isEmpty());
+
+        if (config.isSequenceReorder()) {
+            List<Polygon> outer = new ArrayList<>(remaining);
+            outer.removeIf(Polygon::isInner);
+            remaining.removeIf(polygon -> !polygon.isInner());
+
+            polygons.removeIf(polygon -> polygon != null && !polygon.getPoints().isEmpty());
+            Point position = reorderPolygons(remaining, start, polygons);
+            return reorderPolygons(outer, position, polygons);
+        }
+
+        Point position = start;
+        for (Polygon polygon : remaining) {
+            position = enter(polygon, position);
+        }
+        return position;
+    }
+
+    public Point sequenceDrills(List<DrillGroup> drills, Point start) {
+        List<DrillGroup> remaining = new ArrayList<>(drills);
+        remaining.removeIf(DrillGroup::isEmpty);
+
+        Point position = start;
+
+        if (config.isSequenceReorder()) {
+            drills.removeIf(group -> !group.isEmpty());
+
+            while (!remaining.isEmpty()) {
+                DrillGroup next = remaining.get(0);
+                double bestCost = next.entryCost(position);
+
+                for (DrillGroup group : remaining) {
+                    double cost = group.entryCost(position);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        next = group;
+                    }
+                }
+                remaining.remove(next);
+                drills.add(next);
+                position = next.reorder(position);
+            }
+            return position;
+        }
+
+        for (DrillGroup group : remaining) {
+            position = group.reorder(position);
+        }
+        return position;
+    }
+
+    private Point reorderPolygons(List<Polygon> remaining, Point start, List<Polygon> result) {
+        Point position = start;
+
+        while (!remaining.isEmpty()) {
+            Polygon next = remaining.get(0);
+            double bestDistance = Point.distance(position, entryPoint(next, position));
+
+            for (Polygon polygon : remaining) {
+                double distance = Point.distance(position, entryPoint(polygon, position));
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    next = polygon;
+                }
+            }
+            remaining.remove(next);
+            result.add(next);
+            position = enter(next, position);
+        }
+        return position;
+    }
+
+    private Point enter(Polygon polygon, Point position) {
+        if (!isFixed(polygon)) {
+            polygon.reorder(position);
+        }
+        return exitPoint(polygon);
+    }
+
+    // step and repeat instances are cut in order, so path continues from the last one
+    private static Point exitPoint(Polygon polygon) {
+        if (!polygon.isInstanced()) {
+            return polygon.getLast();
+        }
+        List<Point> translations = polygon.getTranslations();
+        Point translation = translations.get(translations.size() - 1);
+        return Point.at(polygon.getLast().getX() + translation.getX(), polygon.getLast().getY() + translation.getY());
+    }
+
+    private Point entryPoint(Polygon polygon, Point position) {
+        if (isFixed(polygon)) {
+            return polygon.getFirst();
+        }
+        return polygon.getPoint(polygon.findNearest(position));
+    }
+
+    private static boolean isFixed(Polygon polygon) {
+        return !polygon.isClosed() || polygon.hasRetracts();
+    }
+
+    public static double linkLength(List<Polygon> polygons, List<DrillGroup> drills, Point start) {
+        Point position = start;
+        double result = 0;
+
+        for (Polygon polygon : polygons) {
+            if (polygon != null && !polygon.getPoints().isEmpty()) {
+                result += Point.distance(position, polygon.getFirst());
+                position = polygon.getLast();
+            }
+        }
+        for (DrillGroup group : drills) {
+            if (!group.isEmpty()) {
+                result += Point.distance(position, Point.at(group.getX(0), group.getY(0)));
+                position = Point.at(group.getX(group.size() - 1), group.getY(group.size() - 1));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.processor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+/*
+ * Builds containment hierarchy of the outline polygons. Candidates are found with a sweep over
+ * polygons sorted by left edge of their bounding boxes: only polygons which are still "active" (their
+ * right edge is not passed yet) can contain the current one. Active polygons are registered in every
+ * horizontal slab their bounding box crosses, containing polygon covers bottom edge of the tested one,
+ * so only one slab is scanned. Candidates with bounding box covering the tested one are then checked
+ * by exact point in polygon test, so concave boards (L-shaped, for example) do not swallow neighbours
+ * which only fall into their bounding box.
+ * Nesting depth is the number of containing polygons, any polygon with non-zero depth is inner.
+ */
+public final class PolygonNesting {
+    private PolygonNesting() {
+    }
+
+    public static void classify(List<Polygon> polygons) {
+        if (polygons.isEmpty()) {
+            return;
+        }
+        List<Polygon> sorted = new ArrayList<>(polygons);
+        // containing polygon goes before contained one even if left edges are the same
+        sorted.sort(Comparator.comparingDouble(Polygon::getMinX).thenComparing(Polygon::getMaxX, Comparator.reverseOrder()));
+
+        Slabs slabs = new Slabs(sorted);
+        for (Polygon polygon : sorted) {
+            List<Polygon> active = slabs.get(slabs.index(polygon.getMinY()));
+            active.removeIf(candidate -> candidate.getMaxX() < polygon.getMinX());
+
+            int depth = 0;
+            for (Polygon candidate : active) {
+                if (contains(candidate, polygon)) {
+                    depth++;
+                }
+            }
+            polygon.setDepth(depth);
+            if (depth > 0) {
+                polygon.setInner(true);
+            }
+            slabs.add(polygon);
+        }
+    }
+
+    /**
+     * Checks whether tested polygon lies inside of the given one. Polygons which share whole boundary
+     * (or are degenerate) are compared by bounding boxes only.
+     */
+    public static boolean contains(Polygon polygon, Polygon tested) {
+        if (polygon == tested || !PolygonProcessor.contains(polygon, tested)) {
+            return false;
+        }
+
+        for (int i = 0; i < tested.count(); i++) {
+            int location = locate(polygon, tested.getX(i), tested.getY(i));
+            if (location != 0) {
+                return location > 0;
+            }
+        }
+        return true;
+    }
+
+    // 1 - inside, -1 - outside, 0 - on the boundary
+    static int locate(Polygon polygon, double x, double y) {
+        boolean inside = false;
+        int size = polygon.count();
+
+        for (int i = 0, j = size - 1; i < size; j = i++) {
+            double ax = polygon.getX(j);
+            double ay = polygon.getY(j);
+            double bx = polygon.getX(i);
+            double by = polygon.getY(i);
+
+            if (segmentDistance(ax, ay, bx, by, x, y) < Polygon.PRECISION) {
+                return 0;
+            }
+            if ((ay > y) != (by > y) && x < ax + (y - ay) * (bx - ax) / (by - ay)) {
+                inside = !inside;
+            }
+        }
+        return inside ? 1 : -1;
+    }
+
+    private static double segmentDistance(double ax, double ay, double bx, double by, double x, double y) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double length = dx * dx + dy * dy;
+        double t = (length == 0) ? 0 : ((x - ax) * dx + (y - ay) * dy) / length;
+        t = Math.max(0, Math.min(1, t));
+        double px = ax + t * dx - x;
+        double py = ay + t * dy - y;
+        return Math.sqrt(px * px + py * py);
+    }
+
+    // passed polygons are removed lazily, when slab is scanned
+    private static class Slabs {
+        private final List<List<Polygon>> slabs = new ArrayList<>();
+        private final double minY;
+        private final double height;
+
+        Slabs(List<Polygon> polygons) {
+            double low = Double.MAX_VALUE;
+            double high = -Double.MAX_VALUE;
+            for (Polygon polygon : polygons) {
+                low = Math.min(low, polygon.getMinY());
+                high = Math.max(high, polygon.getMaxY());
+            }
+            int count = Math.max(1, (int) Math.sqrt(polygons.size()));
+            for (int i = 0; i < count; i++) {
+                slabs.add(new ArrayList<>());
+            }
+            minY = low;
+            height = (high - low) / count;
+        }
+
+        List<Polygon> get(int index) {
+            return slabs.get(index);
+        }
+
+        int index(double y) {
+            if (height <= 0) {
+                return 0;
+            }
+            return Math.max(0, Math.min(slabs.size() - 1, (int) ((y - minY) / height)));
+        }
+
+        void add(Polygon polygon) {
+            int last = index(polygon.getMaxY());
+            for (int i = index(polygon.getMinY()); i <= last; i++) {
+                slabs.get(i).add(polygon);
+            }
+        }
+    }
+}
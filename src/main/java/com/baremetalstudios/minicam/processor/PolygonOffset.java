@@ -0,0 +1,824 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.processor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+/*
+ * Polygon offsetting for tool compensation, organized like the one in Clipper library.
+ *
+ * Vertexes are snapped to fixed-point grid and all topological decisions (duplicate and collinear
+ * vertexes, segment intersections) are made with exact integer arithmetic on the grid, while offset
+ * geometry itself is computed from original coordinates. Each vertex is handled according to the
+ * side of offset: on the outer side of the corner edges are connected with miter (squared once miter
+ * gets longer than MITER_LIMIT offsets) or round join, on the inner side offset edges are intersected.
+ * Raw offset path may intersect itself (for example, where concave feature is narrower than cutter),
+ * so result is the boundary of the area which raw path winds around in the direction of the source
+ * polygon. Path is cut at intersection points and pieces are classified by winding number, which is
+ * propagated along the path across simple crossings and evaluated explicitly at degenerate ones.
+ */
+public class PolygonOffset {
+    public enum Join {
+        MITER, ROUND;
+
+        public static Join forName(String name) {
+            for (Join join : values()) {
+                if (join.name().equalsIgnoreCase(name.trim())) {
+                    return join;
+                }
+            }
+            System.out.println("WARNING: unknown outline join '" + name + "', using 'miter'");
+            return MITER;
+        }
+    }
+
+    static final double SCALE = 1e7;
+    private static final double MITER_LIMIT = 2.0;
+    private static final double ARC_TOLERANCE = Polygon.PRECISION / 4;
+    private static final double STRAIGHT = 1e-9;
+    private static final double NUDGE = Polygon.PRECISION / 100;
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+    private static final int CELLS_PER_SEGMENT = 4;
+
+    private final Join join;
+
+    public PolygonOffset(Join join) {
+        this.join = join;
+    }
+
+    /**
+     * Offsets closed polygon by given distance, positive distance moves edges to the right of
+     * their direction. Returns null if polygon is open, degenerate or disappears after offsetting.
+     */
+    public Contours offset(Polygon polygon, double distance) {
+        if (polygon.count() < 3 || !polygon.isClosed()) {
+            return null;
+        }
+
+        Path source = simplify(polygon);
+        double area = source.area();
+        if (source.size < 3 || Math.abs(area) < Polygon.PRECISION * Polygon.PRECISION) {
+            return null;
+        }
+
+        List<Path> loops = new ArrayList<>();
+        for (Path loop : union(offsetPath(source, distance), (int) Math.signum(area))) {
+            loop = simplify(loop);
+            if (loop.size >= 3 && Math.signum(loop.area()) == Math.signum(area)) {
+                loops.add(loop);
+            }
+        }
+        return loops.isEmpty() ? null : new Contours(loops, polygon.count() - 1);
+    }
+
+    private static Path simplify(Polygon polygon) {
+        Path path = new Path();
+        for (int i = 0; i < polygon.count() - 1; i++) {
+            path.add(polygon.getX(i), polygon.getY(i), i);
+        }
+        return simplify(path);
+    }
+
+    // drops duplicate and collinear vertexes, spikes (turns by 180 degrees) are kept
+    private static Path simplify(Path path) {
+        boolean changed = true;
+        while (changed && path.size >= 3) {
+            changed = false;
+            Path result = new Path();
+            int n = path.size;
+
+            for (int i = 0; i < n; i++) {
+                int a = (i + n - 1) % n;
+                int c = (i + 1) % n;
+                boolean duplicate = path.qx[a] == path.qx[i] && path.qy[a] == path.qy[i];
+                boolean straight = orientation(path, a, i, c) == 0
+                    && (path.qx[i] - path.qx[a]) * (double) (path.qx[c] - path.qx[i])
+                       + (path.qy[i] - path.qy[a]) * (double) (path.qy[c] - path.qy[i]) > 0;
+
+                if (duplicate || straight) {
+                    changed = true;
+                } else {
+                    result.add(path, i);
+                }
+            }
+            path = result;
+        }
+        return path;
+    }
+
+    private Path offsetPath(Path source, double distance) {
+        Path result = new Path();
+        int n = source.size;
+        double[] retreats = retreats(source, distance);
+
+        for (int i = 0; i < n; i++) {
+            int a = (i + n - 1) % n;
+            int c = (i + 1) % n;
+            double bx = source.xs[i];
+            double by = source.ys[i];
+
+            double l1 = Math.hypot(bx - source.xs[a], by - source.ys[a]);
+            double l2 = Math.hypot(source.xs[c] - bx, source.ys[c] - by);
+            double e1x = (bx - source.xs[a]) / l1;
+            double e1y = (by - source.ys[a]) / l1;
+            double e2x = (source.xs[c] - bx) / l2;
+            double e2y = (source.ys[c] - by) / l2;
+
+            double n1x = e1y * distance;
+            double n1y = -e1x * distance;
+            double n2x = e2y * distance;
+            double n2y = -e2x * distance;
+
+            double sin = e1x * e2y - e1y * e2x;
+            double cos = e1x * e2x + e1y * e2y;
+            int owner = source.owners[i];
+            boolean withinLimit = 1 + cos > 2 / (MITER_LIMIT * MITER_LIMIT);
+            boolean fits = retreats[a] + retreats[i] <= l1 && retreats[i] + retreats[c] <= l2;
+
+            if (Math.abs(sin) < STRAIGHT && cos > 0) {
+                result.add(bx + n1x, by + n1y, owner);
+            } else if (sin * distance < 0 && withinLimit && fits) {
+                // inner side of the corner, offset edges intersect
+                addIntersection(result, source, a, i, c, distance, n1x, n1y, owner);
+            } else if (sin * distance < 0) {
+                // Sharp inner corner or offset edge which is reversed by its corners. Edges are kept
+                // whole and connected through the vertex, resulting loops are removed by union().
+                result.add(bx + n1x, by + n1y, owner);
+                result.add(bx, by, owner);
+                result.add(bx + n2x, by + n2y, owner);
+            } else if (join == Join.ROUND) {
+                addArc(result, bx, by, n1x, n1y, Math.atan2(sin, cos), Math.abs(distance), owner);
+            } else if (withinLimit) {
+                addIntersection(result, source, a, i, c, distance, n1x, n1y, owner);
+            } else {
+                addSquare(result, bx, by, e1x, e1y, e2x, e2y, n1x, n1y, n2x, n2y, Math.abs(distance), owner);
+            }
+        }
+        return result;
+    }
+
+    // how far intersection of offset edges at the inner corner moves back along adjacent edges
+    private static double[] retreats(Path source, double distance) {
+        int n = source.size;
+        double[] result = new double[n];
+        for (int i = 0; i < n; i++) {
+            int a = (i + n - 1) % n;
+            int c = (i + 1) % n;
+            double e1x = source.xs[i] - source.xs[a];
+            double e1y = source.ys[i] - source.ys[a];
+            double e2x = source.xs[c] - source.xs[i];
+            double e2y = source.ys[c] - source.ys[i];
+            double l = Math.hypot(e1x, e1y) * Math.hypot(e2x, e2y);
+            double sin = (e1x * e2y - e1y * e2x) / l;
+            double cos = (e1x * e2x + e1y * e2y) / l;
+
+            if (sin * distance < 0 && 1 + cos > 2 / (MITER_LIMIT * MITER_LIMIT)) {
+                result[i] = Math.abs(distance * sin) / (1 + cos);
+            }
+        }
+        return result;
+    }
+
+    private static void addIntersection(Path result, Path source, int a, int b, int c, double distance,
+                                        double n1x, double n1y, int owner) {
+        Point corner = PolygonProcessor.insetCorner(source.point(a), source.point(b), source.point(c), distance);
+        if (corner == null) {
+            result.add(source.xs[b] + n1x, source.ys[b] + n1y, owner);
+        } else {
+            result.add(corner.getX(), corner.getY(), owner);
+        }
+    }
+
+    private static void addArc(Path result, double x, double y, double nx, double ny, double angle, double radius,
+                               int owner) {
+        double step = (ARC_TOLERANCE < radius) ? 2 * Math.acos(1 - ARC_TOLERANCE / radius) : Math.PI / 2;
+        int steps = Math.max(1, (int) Math.ceil(Math.abs(angle) / step));
+
+        for (int i = 0; i <= steps; i++) {
+            double phi = angle * i / steps;
+            double cos = Math.cos(phi);
+            double sin = Math.sin(phi);
+            result.add(x + nx * cos - ny * sin, y + nx * sin + ny * cos, owner);
+        }
+    }
+
+    // miter cut by line perpendicular to the bisector at MITER_LIMIT offsets from the vertex
+    private static void addSquare(Path result, double x, double y, double e1x, double e1y, double e2x, double e2y,
+                                  double n1x, double n1y, double n2x, double n2y, double radius, int owner) {
+        double ux = n1x + n2x;
+        double uy = n1y + n2y;
+        double length = Math.hypot(ux, uy);
+        if (length < radius * STRAIGHT) {
+            ux = e1x;
+            uy = e1y;
+        } else {
+            ux /= length;
+            uy /= length;
+        }
+
+        double limit = MITER_LIMIT * radius;
+        double t1 = (limit - (n1x * ux + n1y * uy)) / (e1x * ux + e1y * uy);
+        double t2 = ((n2x * ux + n2y * uy) - limit) / (e2x * ux + e2y * uy);
+
+        result.add(x + n1x + e1x * t1, y + n1y + e1y * t1, owner);
+        result.add(x + n2x - e2x * t2, y + n2y - e2y * t2, owner);
+    }
+
+    /**
+     * Extracts boundary of the area which raw offset path winds around (in the direction of the source
+     * polygon) at least once. Path is cut into chains at self-intersection points, chain is kept if
+     * it separates such area from the rest of the plane, kept chains are linked into loops.
+     */
+    static List<Path> union(Path path, int orientation) {
+        path = path.withoutDuplicates();
+        List<Path> result = new ArrayList<>();
+        if (path.size < 3) {
+            return result;
+        }
+
+        List<double[]> crossings = findIntersections(path);
+        if (crossings.isEmpty()) {
+            if (Math.signum(path.area()) == orientation) {
+                result.add(path);
+            }
+            return result;
+        }
+
+        Path nodes = new Path();
+        int[] turns = new int[crossings.size() * 2];
+        int[] cuts = cut(path, crossings, nodes, turns);
+        WindingIndex winding = new WindingIndex(path);
+        int target = orientation > 0 ? 1 : 0;
+        boolean[] kept = new boolean[cuts.length];
+        int left = UNKNOWN;
+
+        for (int k = 0; k < cuts.length; k++) {
+            int end = chainEnd(nodes, cuts, k);
+            // Crossing a single other edge changes winding on the left side by one, so it is
+            // computed from the previous chain, touching and coinciding crossings are evaluated
+            if (left != UNKNOWN && turns[k] != 0 && !sameLocation(nodes, cuts[k], cuts[k - 1])
+                && !sameLocation(nodes, cuts[k], end % nodes.size)) {
+                left += turns[k];
+                kept[k] = left == target;
+            } else {
+                double[] probe = probe(nodes, cuts[k], end);
+                if (probe == null) {
+                    left = UNKNOWN;
+                    continue;
+                }
+                left = winding.at(probe[0] + probe[2], probe[1] + probe[3]);
+                int right = winding.at(probe[0] - probe[2], probe[1] - probe[3]);
+                kept[k] = orientation > 0 ? left >= 1 && right < 1 : right <= -1 && left >= 0;
+            }
+        }
+        return link(nodes, cuts, kept);
+    }
+
+    // intersection is {segment, t, other segment, other t, x, y, 1 if segments cross and 0 if they touch}
+    // Segments are put into uniform grid cells covered by their bounding boxes. Each pair is tested
+    // only in the cell which contains the lower corner of the overlap of their bounding boxes.
+    private static List<double[]> findIntersections(Path path) {
+        int n = path.size;
+        long[] bounds = new long[4 * n];
+        long minX = Long.MAX_VALUE;
+        long minY = Long.MAX_VALUE;
+        long maxX = Long.MIN_VALUE;
+        long maxY = Long.MIN_VALUE;
+        double extent = 0;
+        for (int i = 0; i < n; i++) {
+            int i1 = (i + 1) % n;
+            bounds[4 * i] = Math.min(path.qx[i], path.qx[i1]);
+            bounds[4 * i + 1] = Math.min(path.qy[i], path.qy[i1]);
+            bounds[4 * i + 2] = Math.max(path.qx[i], path.qx[i1]);
+            bounds[4 * i + 3] = Math.max(path.qy[i], path.qy[i1]);
+            minX = Math.min(minX, bounds[4 * i]);
+            minY = Math.min(minY, bounds[4 * i + 1]);
+            maxX = Math.max(maxX, bounds[4 * i + 2]);
+            maxY = Math.max(maxY, bounds[4 * i + 3]);
+            extent += Math.max(bounds[4 * i + 2] - bounds[4 * i], bounds[4 * i + 3] - bounds[4 * i + 1]);
+        }
+
+        long cell = Math.max((long) (extent / n), 1);
+        while (((maxX - minX) / cell + 1.0) * ((maxY - minY) / cell + 1.0) > CELLS_PER_SEGMENT * n) {
+            cell *= 2;
+        }
+        int columns = (int) ((maxX - minX) / cell) + 1;
+        int rows = (int) ((maxY - minY) / cell) + 1;
+
+        int[] offsets = new int[columns * rows + 1];
+        for (int i = 0; i < n; i++) {
+            for (int r = cell(bounds[4 * i + 1], minY, cell); r <= cell(bounds[4 * i + 3], minY, cell); r++) {
+                for (int c = cell(bounds[4 * i], minX, cell); c <= cell(bounds[4 * i + 2], minX, cell); c++) {
+                    offsets[r * columns + c + 1]++;
+                }
+            }
+        }
+        for (int k = 0; k < columns * rows; k++) {
+            offsets[k + 1] += offsets[k];
+        }
+        int[] fill = Arrays.copyOf(offsets, columns * rows);
+        int[] segments = new int[offsets[columns * rows]];
+        for (int i = 0; i < n; i++) {
+            for (int r = cell(bounds[4 * i + 1], minY, cell); r <= cell(bounds[4 * i + 3], minY, cell); r++) {
+                for (int c = cell(bounds[4 * i], minX, cell); c <= cell(bounds[4 * i + 2], minX, cell); c++) {
+                    segments[fill[r * columns + c]++] = i;
+                }
+            }
+        }
+
+        List<double[]> result = new ArrayList<>();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                int from = offsets[r * columns + c];
+                int to = offsets[r * columns + c + 1];
+                for (int p = from; p < to; p++) {
+                    int a = segments[p];
+                    for (int q = p + 1; q < to; q++) {
+                        int b = segments[q];
+                        long x = Math.max(bounds[4 * a], bounds[4 * b]);
+                        long y = Math.max(bounds[4 * a + 1], bounds[4 * b + 1]);
+                        if (a == (b + 1) % n || b == (a + 1) % n
+                            || x > Math.min(bounds[4 * a + 2], bounds[4 * b + 2])
+                            || y > Math.min(bounds[4 * a + 3], bounds[4 * b + 3])
+                            || cell(x, minX, cell) != c || cell(y, minY, cell) != r) {
+                            continue;
+                        }
+                        double[] crossing = intersect(path, Math.min(a, b), Math.max(a, b));
+                        if (crossing != null) {
+                            result.add(crossing);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int cell(long value, long min, long size) {
+        return (int) ((value - min) / size);
+    }
+
+    private static double[] intersect(Path path, int i, int j) {
+        int n = path.size;
+        int i1 = (i + 1) % n;
+        int j1 = (j + 1) % n;
+
+        if (Math.max(path.qy[i], path.qy[i1]) < Math.min(path.qy[j], path.qy[j1])
+            || Math.max(path.qy[j], path.qy[j1]) < Math.min(path.qy[i], path.qy[i1])) {
+            return null;
+        }
+
+        int o1 = orientation(path, i, i1, j);
+        int o2 = orientation(path, i, i1, j1);
+        int o3 = orientation(path, j, j1, i);
+        int o4 = orientation(path, j, j1, i1);
+
+        if (o1 * o2 < 0 && o3 * o4 < 0) {
+            return cross(path, i, j);
+        }
+
+        // Path touches itself. Each vertex is the start of one segment and the end of other, so only
+        // segment starts are checked, otherwise the same touching point would be reported twice.
+        if (path.qx[i] == path.qx[j] && path.qy[i] == path.qy[j]) {
+            return new double[] {i, 0, j, 0, path.xs[i], path.ys[i], 0};
+        }
+        if (o3 == 0 && isInside(path, j, j1, i)) {
+            return new double[] {i, 0, j, parameter(path, j, j1, i), path.xs[i], path.ys[i], 0};
+        }
+        if (o1 == 0 && isInside(path, i, i1, j)) {
+            return new double[] {i, parameter(path, i, i1, j), j, 0, path.xs[j], path.ys[j], 0};
+        }
+        return null;
+    }
+
+    private static double[] cross(Path path, int i, int j) {
+        int n = path.size;
+        // computed from the lower segment, so result does not depend on order of the arguments
+        boolean swap = path.qx[j] < path.qx[i] || (path.qx[j] == path.qx[i] && path.qy[j] < path.qy[i]);
+        if (swap) {
+            int tmp = i;
+            i = j;
+            j = tmp;
+        }
+        int i1 = (i + 1) % n;
+        int j1 = (j + 1) % n;
+
+        double dx1 = path.xs[i1] - path.xs[i];
+        double dy1 = path.ys[i1] - path.ys[i];
+        double dx2 = path.xs[j1] - path.xs[j];
+        double dy2 = path.ys[j1] - path.ys[j];
+        double rx = path.xs[j] - path.xs[i];
+        double ry = path.ys[j] - path.ys[i];
+        double denominator = dx1 * dy2 - dy1 * dx2;
+        double t = (rx * dy2 - ry * dx2) / denominator;
+        double u = (rx * dy1 - ry * dx1) / denominator;
+
+        double x = path.xs[i] + dx1 * t;
+        double y = path.ys[i] + dy1 * t;
+        return swap ? new double[] {j, u, i, t, x, y, 1} : new double[] {i, t, j, u, x, y, 1};
+    }
+
+    // point c lies on the line through a and b; checks that it is strictly between them
+    private static boolean isInside(Path path, int a, int b, int c) {
+        long dot1 = (path.qx[c] - path.qx[a]) * Long.signum(path.qx[b] - path.qx[a])
+                    + (path.qy[c] - path.qy[a]) * Long.signum(path.qy[b] - path.qy[a]);
+        long dot2 = (path.qx[b] - path.qx[c]) * Long.signum(path.qx[b] - path.qx[a])
+                    + (path.qy[b] - path.qy[c]) * Long.signum(path.qy[b] - path.qy[a]);
+        return dot1 > 0 && dot2 > 0;
+    }
+
+    private static double parameter(Path path, int a, int b, int c) {
+        double dx = path.xs[b] - path.xs[a];
+        double dy = path.ys[b] - path.ys[a];
+        return ((path.xs[c] - path.xs[a]) * dx + (path.ys[c] - path.ys[a]) * dy) / (dx * dx + dy * dy);
+    }
+
+    // Fills nodes with path vertexes and crossings in order along the path and returns positions of
+    // crossings. Chain k runs from node cuts[k] to node cuts[k + 1] (wrapping around), both included.
+    // For crossing of other edge from the right to the left turn is 1, it is -1 for opposite
+    // direction and 0 for touches.
+    private static int[] cut(Path path, List<double[]> crossings, Path nodes, int[] turns) {
+        int n = path.size;
+        int[] offsets = new int[n + 1];
+        for (double[] crossing : crossings) {
+            offsets[(int) crossing[0] + 1]++;
+            offsets[(int) crossing[2] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        double[] ts = new double[offsets[n]];
+        int[] refs = new int[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int k = 0; k < crossings.size(); k++) {
+            double[] crossing = crossings.get(k);
+            for (int side = 0; side < 4; side += 2) {
+                int segment = (int) crossing[side];
+                ts[fill[segment]] = crossing[side + 1];
+                refs[fill[segment]++] = k;
+            }
+        }
+
+        int[] cuts = new int[offsets[n]];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            nodes.add(path, i);
+
+            // there are only few crossings per segment, so they are ordered by insertion sort
+            for (int a = offsets[i] + 1; a < offsets[i + 1]; a++) {
+                double t = ts[a];
+                int ref = refs[a];
+                int b = a - 1;
+                while (b >= offsets[i] && ts[b] > t) {
+                    ts[b + 1] = ts[b];
+                    refs[b + 1] = refs[b];
+                    b--;
+                }
+                ts[b + 1] = t;
+                refs[b + 1] = ref;
+            }
+            for (int a = offsets[i]; a < offsets[i + 1]; a++) {
+                double[] crossing = crossings.get(refs[a]);
+                if (crossing[6] != 0) {
+                    int other = (int) (crossing[0] == i ? crossing[2] : crossing[0]);
+                    turns[count] = turn(path, other, i);
+                }
+                cuts[count++] = nodes.size;
+                nodes.add(crossing[4], crossing[5], path.owners[i]);
+            }
+        }
+        return cuts;
+    }
+
+    // sign of cross product of directions of segments a and b
+    private static int turn(Path path, int a, int b) {
+        int n = path.size;
+        long ax = path.qx[(a + 1) % n] - path.qx[a];
+        long ay = path.qy[(a + 1) % n] - path.qy[a];
+        long bx = path.qx[(b + 1) % n] - path.qx[b];
+        long by = path.qy[(b + 1) % n] - path.qy[b];
+        return compareProducts(ax, by, ay, bx);
+    }
+
+    private static boolean sameLocation(Path path, int a, int b) {
+        return path.qx[a] == path.qx[b] && path.qy[a] == path.qy[b];
+    }
+
+    // node indexes past the end of the path wrap around
+    private static int chainEnd(Path nodes, int[] cuts, int k) {
+        return k + 1 < cuts.length ? cuts[k + 1] : cuts[0] + nodes.size;
+    }
+
+    // {x, y, dx, dy} - middle of the longest segment of the chain and short step to its left side,
+    // null for chains of zero length
+    private static double[] probe(Path nodes, int from, int to) {
+        int n = nodes.size;
+        int longest = -1;
+        double length = NUDGE * 2;
+        for (int i = from; i < to; i++) {
+            int a = i % n;
+            int b = (i + 1) % n;
+            double segment = Math.hypot(nodes.xs[b] - nodes.xs[a], nodes.ys[b] - nodes.ys[a]);
+            if (segment > length) {
+                length = segment;
+                longest = a;
+            }
+        }
+        if (longest < 0) {
+            return null;
+        }
+
+        int next = (longest + 1) % n;
+        return new double[] {(nodes.xs[longest] + nodes.xs[next]) / 2, (nodes.ys[longest] + nodes.ys[next]) / 2,
+                             -(nodes.ys[next] - nodes.ys[longest]) / length * NUDGE,
+                             (nodes.xs[next] - nodes.xs[longest]) / length * NUDGE};
+    }
+
+    private static List<Path> link(Path nodes, int[] cuts, boolean[] kept) {
+        int n = nodes.size;
+        Map<Long, List<Integer>> starts = new HashMap<>();
+        for (int k = 0; k < cuts.length; k++) {
+            if (kept[k]) {
+                starts.computeIfAbsent(locationKey(nodes, cuts[k]), key -> new ArrayList<>()).add(k);
+            }
+        }
+
+        List<Path> result = new ArrayList<>();
+        boolean[] used = new boolean[cuts.length];
+        for (int k = 0; k < cuts.length; k++) {
+            if (!kept[k] || used[k]) {
+                continue;
+            }
+
+            int start = cuts[k];
+            Path loop = new Path();
+            int current = k;
+            boolean closed = false;
+            while (current >= 0) {
+                used[current] = true;
+                int end = chainEnd(nodes, cuts, current) % n;
+                for (int i = cuts[current]; i != end; i = (i + 1) % n) {
+                    loop.add(nodes, i);
+                }
+
+                if (nodes.qx[end] == nodes.qx[start] && nodes.qy[end] == nodes.qy[start]) {
+                    closed = true;
+                    break;
+                }
+                current = -1;
+                for (int next : starts.getOrDefault(locationKey(nodes, end), List.of())) {
+                    if (!used[next] && nodes.qx[cuts[next]] == nodes.qx[end] && nodes.qy[cuts[next]] == nodes.qy[end]) {
+                        current = next;
+                        break;
+                    }
+                }
+            }
+            if (closed && loop.size >= 3) {
+                result.add(loop);
+            }
+        }
+        return result;
+    }
+
+    private static long locationKey(Path path, int idx) {
+        return path.qx[idx] * 31 + path.qy[idx];
+    }
+
+    // exact sign of cross product (b - a) x (c - a) on the grid
+    static int orientation(Path path, int a, int b, int c) {
+        long abx = path.qx[b] - path.qx[a];
+        long aby = path.qy[b] - path.qy[a];
+        long acx = path.qx[c] - path.qx[a];
+        long acy = path.qy[c] - path.qy[a];
+        return compareProducts(abx, acy, aby, acx);
+    }
+
+    // sign of (a * b - c * d) computed on 128 bits
+    static int compareProducts(long a, long b, long c, long d) {
+        long high1 = Math.multiplyHigh(a, b);
+        long high2 = Math.multiplyHigh(c, d);
+        if (high1 != high2) {
+            return high1 < high2 ? -1 : 1;
+        }
+        return Long.signum(Long.compareUnsigned(a * b, c * d));
+    }
+
+    /*
+     * Result of offsetting: one or more closed loops. Each point remembers source polygon vertex it
+     * was produced for, so loops can be started at any vertex without offsetting polygon again.
+     */
+    public static class Contours {
+        private final List<Path> loops;
+        private final int vertexCount;
+
+        Contours(List<Path> loops, int vertexCount) {
+            this.loops = loops;
+            this.vertexCount = vertexCount;
+        }
+
+        public int size() {
+            return loops.size();
+        }
+
+        /**
+         * Builds closed polygons starting at the point produced for given source vertex (or nearest
+         * following one). Loops are ordered by that distance too, polygon properties are copied from
+         * the source polygon.
+         */
+        public List<Polygon> toPolygons(Polygon source, int start) {
+            List<int[]> starts = new ArrayList<>();
+            for (int i = 0; i < loops.size(); i++) {
+                Path loop = loops.get(i);
+                int best = 0;
+                int bestKey = Integer.MAX_VALUE;
+                for (int k = 0; k < loop.size; k++) {
+                    int key = Math.floorMod(loop.owners[k] - start, vertexCount);
+                    if (key < bestKey) {
+                        bestKey = key;
+                        best = k;
+                    }
+                }
+                starts.add(new int[] {bestKey, i, best});
+            }
+            starts.sort(Comparator.<int[]>comparingInt(entry -> entry[0]).thenComparingInt(entry -> entry[1]));
+
+            List<Polygon> result = new ArrayList<>();
+            for (int[] entry : starts) {
+                Path loop = loops.get(entry[1]);
+                List<Point> points = new ArrayList<>(loop.size + 1);
+                for (int k = 0; k < loop.size; k++) {
+                    int idx = (entry[2] + k) % loop.size;
+                    points.add(new Point(loop.xs[idx], loop.ys[idx]));
+                }
+                points.add(new Point(points.get(0)));
+
+                Polygon polygon = new Polygon(points);
+                polygon.setDirection(source.getDirection());
+                polygon.setInner(source.isInner());
+                polygon.setDepth(source.getDepth());
+                polygon.copyTranslations(source);
+                result.add(polygon);
+            }
+            return result;
+        }
+    }
+
+    /*
+     * Winding number of the closed path around given point. Edges are bucketed into horizontal rows,
+     * so only edges of the row containing the point are checked.
+     */
+    private static class WindingIndex {
+        private static final int MAX_ROWS = 4096;
+
+        private final Path path;
+        private final double minY;
+        private final double maxY;
+        private final double rowHeight;
+        private final int rowCount;
+        private final int[][] rows;
+
+        WindingIndex(Path path) {
+            this.path = path;
+            double low = Double.MAX_VALUE;
+            double high = -Double.MAX_VALUE;
+            for (int i = 0; i < path.size; i++) {
+                low = Math.min(low, path.ys[i]);
+                high = Math.max(high, path.ys[i]);
+            }
+            this.minY = low;
+            this.maxY = high;
+
+            this.rowCount = Math.max(1, Math.min(path.size / 4, MAX_ROWS));
+            this.rowHeight = Math.max((high - low) / rowCount, Double.MIN_NORMAL);
+
+            int[] sizes = new int[rowCount];
+            for (int i = 0; i < path.size; i++) {
+                for (int row = firstRow(i); row <= lastRow(i); row++) {
+                    sizes[row]++;
+                }
+            }
+            this.rows = new int[rowCount][];
+            for (int row = 0; row < rowCount; row++) {
+                rows[row] = new int[sizes[row]];
+                sizes[row] = 0;
+            }
+            for (int i = 0; i < path.size; i++) {
+                for (int row = firstRow(i); row <= lastRow(i); row++) {
+                    rows[row][sizes[row]++] = i;
+                }
+            }
+        }
+
+        int at(double x, double y) {
+            if (y < minY || y > maxY) {
+                return 0;
+            }
+
+            int winding = 0;
+            for (int a : rows[row(y)]) {
+                int b = (a + 1) % path.size;
+                double ay = path.ys[a];
+                double by = path.ys[b];
+                double side = (path.xs[b] - path.xs[a]) * (y - ay) - (x - path.xs[a]) * (by - ay);
+
+                if (ay <= y && by > y && side > 0) {
+                    winding++;
+                } else if (ay > y && by <= y && side < 0) {
+                    winding--;
+                }
+            }
+            return winding;
+        }
+
+        private int firstRow(int edge) {
+            return row(Math.min(path.ys[edge], path.ys[(edge + 1) % path.size]));
+        }
+
+        private int lastRow(int edge) {
+            return row(Math.max(path.ys[edge], path.ys[(edge + 1) % path.size]));
+        }
+
+        private int row(double y) {
+            return Math.max(0, Math.min((int) ((y - minY) / rowHeight), rowCount - 1));
+        }
+    }
+
+    static class Path {
+        private double[] xs = new double[16];
+        private double[] ys = new double[16];
+        private long[] qx = new long[16];
+        private long[] qy = new long[16];
+        private int[] owners = new int[16];
+        private int size;
+
+        void add(double x, double y, int owner) {
+            if (size == xs.length) {
+                int capacity = size * 2;
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+                qx = Arrays.copyOf(qx, capacity);
+                qy = Arrays.copyOf(qy, capacity);
+                owners = Arrays.copyOf(owners, capacity);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            qx[size] = Math.round(x * SCALE);
+            qy[size] = Math.round(y * SCALE);
+            owners[size] = owner;
+            size++;
+        }
+
+        void add(Path path, int idx) {
+            add(path.xs[idx], path.ys[idx], path.owners[idx]);
+        }
+
+        Point point(int idx) {
+            return new Point(xs[idx], ys[idx]);
+        }
+
+        Path withoutDuplicates() {
+            Path result = new Path();
+            for (int i = 0; i < size; i++) {
+                int last = result.size - 1;
+                if (last < 0 || result.qx[last] != qx[i] || result.qy[last] != qy[i]) {
+                    result.add(this, i);
+                }
+            }
+            while (result.size > 1 && result.qx[0] == result.qx[result.size - 1] && result.qy[0] == result.qy[result.size - 1]) {
+                result.size--;
+            }
+            return result;
+        }
+
+        double area() {
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                int j = (i + 1) % size;
+                sum += xs[i] * ys[j] - xs[j] * ys[i];
+            }
+            return sum / 2;
+        }
+    }
+}
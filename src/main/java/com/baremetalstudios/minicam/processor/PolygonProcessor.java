@@ -17,6 +17,7 @@ package com.baremetalstudios.minicam.processor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import com.baremetalstudios.minicam.config.OutputConfig;
 import com.baremetalstudios.minicam.geometry.Direction;
@@ -32,19 +33,27 @@ import com.baremetalstudios.minicam.geometry.Polygon;
 public class PolygonProcessor {
     private static final double MIN_OFFSET = 0.005;
     private OutputConfig config;
+    private final PolygonOffset offset;
 
     public PolygonProcessor(OutputConfig config) {
         this.config = config;
+        this.offset = new PolygonOffset(PolygonOffset.Join.forName(config.getOutlineJoin()));
     }
 
     public List<Polygon> process(List<Polygon> polygonList, List<DrillGroup> drillList, Point center) {
         List<Polygon> polygons = mergeOpenPolygons(polygonList);
         polygons = optimizePolygons(polygons);
-        markInnerPolygon(polygons);
+        PolygonNesting.classify(polygons);
         markPolygonDirection(polygons);
+        if (config.isDetectRepeats()) {
+            polygons = RepeatDetector.collapse(polygons);
+        }
         polygons.forEach(polygon -> polygon.reorder(center));
 
-        polygons = insetPolygons(polygons);
+        return addTabs(insetPolygons(polygons), drillList);
+    }
+
+    List<Polygon> addTabs(List<Polygon> polygons, List<DrillGroup> drillList) {
         if (!generateTabs(polygons, drillList)) {
             System.out.println("WARNING: no tabs were generated! Perhaps tab distance is too big for this board.");
         }
@@ -57,23 +66,32 @@ public class PolygonProcessor {
     }
 
     private List<Polygon> insetPolygons(List<Polygon> polygons) {
+        return polygons.parallelStream()
+            .flatMap(polygon -> inset(polygon).stream())
+            .collect(Collectors.toList());
+    }
+
+    List<Polygon> inset(Polygon polygon) {
+        return inset(offset, polygon, insetDistance(polygon));
+    }
+
+    PolygonOffset getOffset() {
+        return offset;
+    }
+
+    double insetDistance(Polygon polygon) {
         double outherCutterRadius = (config.getCutterDiameter() + config.getTabDrillDiameter()) / 2;
         double innerCutterRadius  = config.getCutterDiameter() / 2;
-        List<Polygon> result = new ArrayList<>();
-
-        for (Polygon polygon : polygons) {
-            double insetDistance = polygon.isInner() ? -innerCutterRadius : -outherCutterRadius;
+        double insetDistance = polygon.isInner() ? -innerCutterRadius : -outherCutterRadius;
 
-            if (polygon.getDirection() == Direction.CCW) {
-                insetDistance = -insetDistance;
-            }
+        if (polygon.getDirection() == Direction.CCW) {
+            insetDistance = -insetDistance;
+        }
 
-            if (polygon.isInner()) {
-                insetDistance = -insetDistance;
-            }
-            result.add(insetPolygon(polygon, insetDistance));
+        if (polygon.isInner()) {
+            insetDistance = -insetDistance;
         }
-        return result;
+        return insetDistance;
     }
 
     private boolean generateTabs(List<Polygon> polygons, List<DrillGroup> drills) {
@@ -90,80 +108,92 @@ public class PolygonProcessor {
         return true;
     }
 
+    // Polygon vertexes and tab points are written into new outline in a single pass
     private void generateTabsForPolygon(DrillGroup group, int numDrills, Polygon polygon) {
-        Point startPoint = polygon.getFirst();
         Point polygonCenter = new Point(polygon.getMinX() + polygon.sizeX() / 2, polygon.getMinY() + polygon.getSizeY() / 2);
+        Polygon outline = new Polygon(new double[polygon.count() * 2], 0);
+        DrillGroup tabs = new DrillGroup(group.getId(), group.getDiameter());
+        Point startPoint = polygon.getFirst();
+        outline.append(startPoint.getX(), startPoint.getY(), polygon.isRetract(0));
 
-        for (int i = 1; i < polygon.getPoints().size(); i++) {
-            Point endPoint = polygon.getPoints().get(i);
-            double length = Point.distance(startPoint, endPoint);
-            int numSplits = (int) Math.round(length / config.getMinTabDistance());
-
-            if (numSplits < 2 || hasSlope(startPoint, endPoint)) {
-                startPoint = endPoint;
-                continue;
-            }
+        for (int i = 1; i < polygon.count(); i++) {
+            Point endPoint = polygon.getPoint(i);
+            generateTabsForSegment(tabs, numDrills, polygon, polygonCenter, startPoint, endPoint, outline);
+            outline.append(endPoint.getX(), endPoint.getY(), polygon.isRetract(i));
+            startPoint = endPoint;
+        }
 
-            boolean swap = (startPoint.getX() - endPoint.getX()) > 0.1 || (startPoint.getY() - endPoint.getY()) > 0.1;
-            double offset = length / numSplits;
-            double halfTab = (config.getTabWidth() + config.getCutterDiameter()) / 2.0;
+        if (outline.count() != polygon.count()) {
+            polygon.setPoints(outline);
+        }
 
-            if (swap) {
-                offset = -offset;
-                halfTab = -halfTab;
+        // tab drills are real holes, so each instance of the polygon gets its own copy of them,
+        // one instance after another, as if instances were separate polygons
+        for (Point translation : polygon.getTranslations()) {
+            for (int i = 0; i < tabs.size(); i++) {
+                group.addDrill(tabs.getX(i) + translation.getX(), tabs.getY(i) + translation.getY());
             }
+        }
+    }
 
-            boolean horizontal = coordinateDifference(startPoint.getX(), endPoint.getX()) < MIN_OFFSET;
+    private void generateTabsForSegment(DrillGroup group, int numDrills, Polygon polygon, Point polygonCenter,
+                                        Point startPoint, Point endPoint, Polygon outline) {
+        double length = Point.distance(startPoint, endPoint);
+        int numSplits = (int) Math.round(length / config.getMinTabDistance());
 
-            double drillShift = -(config.getCutterDiameter() / 2 - config.getTabDrillDiameter() / 2);
+        if (numSplits < 2 || hasSlope(startPoint, endPoint)) {
+            return;
+        }
 
-            if (negativeShiftIsCloser(startPoint, polygonCenter, drillShift, horizontal)) {
-                drillShift = -drillShift;
-            }
+        boolean swap = (startPoint.getX() - endPoint.getX()) > 0.1 || (startPoint.getY() - endPoint.getY()) > 0.1;
+        double offset = length / numSplits;
+        double halfTab = (config.getTabWidth() + config.getCutterDiameter()) / 2.0;
+
+        if (swap) {
+            offset = -offset;
+            halfTab = -halfTab;
+        }
 
-            double x1 = startPoint.getX();
-            double y1 = startPoint.getY();
-            for (int j = 1; j < numSplits; j++) {
-                Point point1;
-                Point point2;
+        boolean horizontal = coordinateDifference(startPoint.getX(), endPoint.getX()) < MIN_OFFSET;
 
-                if (horizontal) {
-                    y1 += offset;
+        double drillShift = -(config.getCutterDiameter() / 2 - config.getTabDrillDiameter() / 2);
 
-                    point1 = new Point(x1, y1 - halfTab);
-                    point2 = new Point(x1, y1 + halfTab);
+        if (negativeShiftIsCloser(startPoint, polygonCenter, drillShift, horizontal)) {
+            drillShift = -drillShift;
+        }
 
-                    addHorizontalDrills(group, x1, y1, drillShift, numDrills);
-                } else {
-                    x1 += offset;
+        double x1 = startPoint.getX();
+        double y1 = startPoint.getY();
+        for (int j = 1; j < numSplits; j++) {
+            if (horizontal) {
+                y1 += offset;
 
-                    point1 = new Point(x1 - halfTab, y1);
-                    point2 = new Point(x1 + halfTab, y1);
+                outline.append(x1, y1 - halfTab, true);
+                outline.append(x1, y1 + halfTab, false);
 
-                    addVerticalDrills(group, x1, y1, drillShift, numDrills);
-                }
+                addHorizontalDrills(group, x1, y1, drillShift, numDrills);
+            } else {
+                x1 += offset;
 
-                point1.setRetract(true);
-                polygon.insert(point2, i);
-                polygon.insert(point1, i);
+                outline.append(x1 - halfTab, y1, true);
+                outline.append(x1 + halfTab, y1, false);
 
-                i += 2;
+                addVerticalDrills(group, x1, y1, drillShift, numDrills);
             }
-            startPoint = endPoint;
         }
     }
 
     private void addVerticalDrills(DrillGroup group, double x1, double y1, double drillShift, int numDrills) {
         double drillOffset = config.getTabDrillDiameter() * 2;
         for (int i = -numDrills / 2; i <= numDrills / 2; i++) {
-            group.addDrill(new Point(x1 + drillOffset * i, y1 + drillShift));
+            group.addDrill(x1 + drillOffset * i, y1 + drillShift);
         }
     }
 
     private void addHorizontalDrills(DrillGroup group, double x1, double y1, double drillShift, int numDrills) {
         double drillOffset = config.getTabDrillDiameter() * 2;
         for (int i = -numDrills / 2; i <= numDrills / 2; i++) {
-            group.addDrill(new Point((x1 + drillShift), (y1 + drillOffset * i)));
+            group.addDrill(x1 + drillShift, y1 + drillOffset * i);
         }
     }
 
@@ -194,42 +224,23 @@ public class PolygonProcessor {
     }
 
     private void markPolygonDirection(List<Polygon> polygons) {
-        for (Polygon polygon : polygons) {
-            double sum = 0;
-            List<Point> points = polygon.getPoints();
-            for (int i = 0; i < points.size(); i++) {
-                Point p2 = points.get((i + 1) % points.size());
-                Point p1 = points.get(i);
-                sum += (p2.getX() - p1.getX()) * (p2.getY() + p1.getY());
-            }
-
-            polygon.setDirection((sum > 0) ? Direction.CW : Direction.CCW);
-        }
+        polygons.forEach(PolygonProcessor::markDirection);
     }
 
-    private void markInnerPolygon(List<Polygon> polygons) {
-        for (Polygon polygon : polygons) {
-            if (polygon.isInner()) {
-                continue;
-            }
-
-            if (foundContaining(polygons, polygon)) {
-                polygon.setInner(true);
-            }
+    static void markDirection(Polygon polygon) {
+        double sum = 0;
+        int size = polygon.count();
+        for (int i = 0; i < size; i++) {
+            int next = (i + 1) % size;
+            sum += (polygon.getX(next) - polygon.getX(i)) * (polygon.getY(next) + polygon.getY(i));
         }
+
+        polygon.setDirection((sum > 0) ? Direction.CW : Direction.CCW);
     }
 
-    private boolean foundContaining(List<Polygon> polygons, Polygon testedPolygon) {
-        for (Polygon polygon : polygons) {
-            if (polygon == testedPolygon) {
-                continue;
-            }
-            if (polygon.getMinX() <= testedPolygon.getMinX() && polygon.getMaxX() >= testedPolygon.getMaxX()
-                            && polygon.getMinY() <= testedPolygon.getMinY() && polygon.getMaxY() >= testedPolygon.getMaxY()) {
-                return true;
-            }
-        }
-        return false;
+    static boolean contains(Polygon polygon, Polygon testedPolygon) {
+        return polygon.getMinX() <= testedPolygon.getMinX() && polygon.getMaxX() >= testedPolygon.getMaxX()
+                        && polygon.getMinY() <= testedPolygon.getMinY() && polygon.getMaxY() >= testedPolygon.getMaxY();
     }
 
     private List<Polygon> mergeOpenPolygons(List<Polygon> polygons) {
@@ -239,47 +250,11 @@ public class PolygonProcessor {
 
         List<Polygon> result = new ArrayList<>();
         result.addAll(closedPolygons);
-        result.addAll(mergePolygons(openPolygons));
-
-        return result;
-    }
-
-    private List<Polygon> mergePolygons(List<Polygon> openPolygons) {
-        List<Polygon> result = new ArrayList<>();
-
-        while (!openPolygons.isEmpty()) {
-            Polygon polygon = openPolygons.iterator().next();
-
-            int idx = findPrecedingPolygon(polygon, openPolygons);
-            if (idx != -1) {
-                Polygon preceding = openPolygons.remove(idx);
-                openPolygons.remove(0);
-                Polygon merged = Polygon.merge(preceding, polygon);
-                if (merged.isClosed()) {
-                    result.add(merged);
-                } else {
-                    openPolygons.add(merged);
-                }
-            } else {
-                openPolygons.remove(0);
-                result.add(polygon);
-            }
-        }
+        result.addAll(new PolygonStitcher(config.getStitchGap()).stitch(openPolygons));
 
         return result;
     }
 
-    private int findPrecedingPolygon(Polygon polygon, List<Polygon> openPolygons) {
-        for (int i = 0; i < openPolygons.size(); i++) {
-            double distance = Point.distance(openPolygons.get(i).getLast(), polygon.getFirst());
-            if (distance < Polygon.PRECISION) {
-                return i;
-            }
-        }
-
-        return -1;
-    }
-
     private void splitPolygons(List<Polygon> polygons, List<Polygon> openPolygons, List<Polygon> closedPolygons) {
         for (Polygon polygon : polygons) {
             if (polygon.isClosed()) {
@@ -350,33 +325,19 @@ public class PolygonProcessor {
     }
 
     public static Polygon insetPolygon(Polygon polygon, double insetDistance) {
-        List<Point> points = new ArrayList<>();
-
-        if (polygon.count() < 3 || !polygon.isClosed()) {
-            return null;
-        }
+        List<Polygon> result = inset(new PolygonOffset(PolygonOffset.Join.MITER), polygon, insetDistance);
+        return result.isEmpty() ? null : result.get(0);
+    }
 
-        int size = polygon.count() - 1;
-        List<Point> inPoints = polygon.getPoints().subList(0, size);
+    private static List<Polygon> inset(PolygonOffset offset, Polygon polygon, double insetDistance) {
+        PolygonOffset.Contours contours = offset.offset(polygon, insetDistance);
 
-        Point cd = inPoints.get(size - 1);
-        Point ef = inPoints.get(0);
-        for (int i = 0; i < size; i++) {
-            Point ab = cd;
-            cd = ef;
-            ef = inPoints.get((i + 1) % size);
-            Point corner = insetCorner(ab, cd, ef, insetDistance);
-            if (corner == null) {
-                System.out.println("Unable to calculate inset: ab=" + ab + ", cd=" + cd + ", ef=" + ef + ", distance=" + insetDistance);
-            }
-            points.add(corner);
+        if (contours == null) {
+            System.out.println("WARNING: unable to calculate inset of " + polygon + " at distance " + insetDistance
+                               + ", polygon is skipped. Verify output file manually!!!");
+            return List.of();
         }
-        points.add(new Point(points.get(0)));
-
-        Polygon result = new Polygon(points);
-        result.setDirection(polygon.getDirection());
-        result.setInner(polygon.isInner());
-        return result;
+        return contours.toPolygons(polygon, 0);
     }
 
     public OutputConfig getConfig() {
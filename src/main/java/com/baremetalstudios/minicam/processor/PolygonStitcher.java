@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.processor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+/*
+ * Joins open polygons (outline exported as separate segments) into chains in linear time.
+ *
+ * Both ends of every segment are put into a hash grid with cell size equal to matching distance, so
+ * the matching end is found by looking into 3x3 cells around the point. Ends are paired first as
+ * "last point of one segment meets first point of other", then in any direction (segment is reversed)
+ * and finally remaining ends which are closer than the gap are bridged. Paired ends link segments into
+ * paths and cycles, each of them is copied into the resulting polygon once. Only segments with the same
+ * step and repeat translations are joined.
+ *
+ * Segments can also be added one by one while outline is parsed. Every joint where last point of one
+ * segment meets first point of other is paired at once and cycle closed that way is returned
+ * immediately, so it can be processed before whole outline is read. Joints where more than two ends
+ * meet would be resolved differently by the order of arrival, so then all segments are stitched by
+ * finish() as a whole. Otherwise finish() pairs remaining ends only. Either way result is the same
+ * as stitch() of all added segments.
+ */
+public class PolygonStitcher {
+    private static final int NONE = -1;
+
+    private final double gap;
+
+    // state of incremental stitching
+    private final List<Polygon> added = new ArrayList<>();
+    private final Map<Long, List<Integer>> ends = new HashMap<>();
+    private final Map<Integer, Polygon> cycles = new HashMap<>();
+    private int[] mates = new int[0];
+    private int[] neighbours = new int[0];
+    // for ends of the chain: opposite end of the chain and lowest index of segment in it
+    private int[] chainEnds = new int[0];
+    private int[] chainSeeds = new int[0];
+    private boolean[] visited = new boolean[0];
+    private boolean ambiguous;
+
+    public PolygonStitcher(double gap) {
+        this.gap = gap;
+    }
+
+    public List<Polygon> stitch(List<Polygon> segments) {
+        int count = segments.size();
+        int[] mates = new int[count * 2];
+        Arrays.fill(mates, NONE);
+
+        // end 2*i is the first point of segment i, 2*i+1 is the last one
+        pair(segments, mates, Polygon.PRECISION, true);
+        return finish(segments, mates, new boolean[count], Map.of());
+    }
+
+    /**
+     * Adds open segment for incremental stitching.
+     *
+     * @return closed polygon if segment closes a cycle of segments, null otherwise
+     */
+    public Polygon add(Polygon segment) {
+        int index = added.size();
+        added.add(segment);
+        ensureCapacity(index + 1);
+
+        int closed = NONE;
+        for (int end = 2 * index; end <= 2 * index + 1; end++) {
+            mates[end] = NONE;
+            chainEnds[end] = opposite(end);
+            chainSeeds[end] = index;
+        }
+        for (int end = 2 * index; end <= 2 * index + 1 && !ambiguous; end++) {
+            int seed = link(end);
+            if (seed != NONE) {
+                closed = seed;
+            }
+        }
+
+        Point point = segment.getFirst();
+        ends.computeIfAbsent(key(cell(point.getX(), Polygon.PRECISION), cell(point.getY(), Polygon.PRECISION)),
+                             k -> new ArrayList<>()).add(2 * index);
+        point = segment.getLast();
+        ends.computeIfAbsent(key(cell(point.getX(), Polygon.PRECISION), cell(point.getY(), Polygon.PRECISION)),
+                             k -> new ArrayList<>()).add(2 * index + 1);
+
+        if (ambiguous || closed == NONE) {
+            return null;
+        }
+        Polygon cycle = buildChain(added, mates, visited, closed);
+        cycles.put(closed, cycle);
+        return cycle;
+    }
+
+    /**
+     * Stitches segments which were added but not closed into cycles yet. Returns polygons in the
+     * same order as {@link #stitch(List)} of all added segments, including already returned cycles.
+     */
+    public List<Polygon> finish() {
+        if (ambiguous) {
+            return stitch(added);
+        }
+        return finish(added, Arrays.copyOf(mates, added.size() * 2), visited, cycles);
+    }
+
+    private List<Polygon> finish(List<Polygon> segments, int[] mates, boolean[] visited, Map<Integer, Polygon> cycles) {
+        pair(segments, mates, Polygon.PRECISION, false);
+        if (gap > Polygon.PRECISION) {
+            pair(segments, mates, gap, false);
+        }
+
+        List<Polygon> result = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            Polygon cycle = cycles.get(i);
+            if (cycle != null) {
+                result.add(cycle);
+            } else if (!visited[i]) {
+                result.add(buildChain(segments, mates, visited, i));
+            }
+        }
+        return result;
+    }
+
+    // Pairs new end with the only end it meets, if that one is of opposite kind (last point meets
+    // first point). Chain ends are relinked, returns seed of the chain if it is closed into cycle.
+    private int link(int end) {
+        Point point = endPoint(added, end);
+        long cx = cell(point.getX(), Polygon.PRECISION);
+        long cy = cell(point.getY(), Polygon.PRECISION);
+        int mate = NONE;
+
+        for (long x = cx - 1; x <= cx + 1; x++) {
+            for (long y = cy - 1; y <= cy + 1; y++) {
+                for (int other : ends.getOrDefault(key(x, y), List.of())) {
+                    if (Point.distance(point, endPoint(added, other)) >= Polygon.PRECISION) {
+                        continue;
+                    }
+                    if (++neighbours[other] > 1 || ++neighbours[end] > 1) {
+                        ambiguous = true;
+                        return NONE;
+                    }
+                    mate = other;
+                }
+            }
+        }
+
+        if (mate == NONE || isLast(mate) == isLast(end) || !added.get(end / 2).hasSameTranslations(added.get(mate / 2))) {
+            return NONE;
+        }
+        mates[end] = mate;
+        mates[mate] = end;
+
+        int far = chainEnds[end];
+        int otherFar = chainEnds[mate];
+        int seed = Math.min(chainSeeds[end], chainSeeds[mate]);
+        chainEnds[end] = NONE;
+        chainEnds[mate] = NONE;
+        if (far == mate) {
+            return seed;
+        }
+        chainEnds[far] = otherFar;
+        chainEnds[otherFar] = far;
+        chainSeeds[far] = seed;
+        chainSeeds[otherFar] = seed;
+        return NONE;
+    }
+
+    private void ensureCapacity(int count) {
+        if (visited.length >= count) {
+            return;
+        }
+        int capacity = Math.max(count, visited.length * 2);
+        mates = Arrays.copyOf(mates, capacity * 2);
+        neighbours = Arrays.copyOf(neighbours, capacity * 2);
+        chainEnds = Arrays.copyOf(chainEnds, capacity * 2);
+        chainSeeds = Arrays.copyOf(chainSeeds, capacity * 2);
+        visited = Arrays.copyOf(visited, capacity);
+    }
+
+    private static void pair(List<Polygon> segments, int[] mates, double distance, boolean forwardOnly) {
+        Map<Long, List<Integer>> grid = new HashMap<>();
+
+        for (int end = 0; end < mates.length; end++) {
+            if (mates[end] == NONE) {
+                Point point = endPoint(segments, end);
+                grid.computeIfAbsent(key(cell(point.getX(), distance), cell(point.getY(), distance)), k -> new ArrayList<>()).add(end);
+            }
+        }
+
+        for (int end = 0; end < mates.length; end++) {
+            if (mates[end] != NONE || (forwardOnly && !isLast(end))) {
+                continue;
+            }
+            int mate = findMate(segments, mates, grid, end, distance, forwardOnly);
+            if (mate != NONE) {
+                mates[end] = mate;
+                mates[mate] = end;
+            }
+        }
+    }
+
+    private static int findMate(List<Polygon> segments, int[] mates, Map<Long, List<Integer>> grid, int end,
+                                double distance, boolean forwardOnly) {
+        Point point = endPoint(segments, end);
+        Polygon segment = segments.get(end / 2);
+        long cx = cell(point.getX(), distance);
+        long cy = cell(point.getY(), distance);
+        int best = NONE;
+        double bestDistance = distance;
+
+        for (long x = cx - 1; x <= cx + 1; x++) {
+            for (long y = cy - 1; y <= cy + 1; y++) {
+                for (int other : grid.getOrDefault(key(x, y), List.of())) {
+                    if (other == end || mates[other] != NONE || (forwardOnly && isLast(other))) {
+                        continue;
+                    }
+                    // closing single segment on itself makes sense only if it is more than a line
+                    if (other / 2 == end / 2 && segment.count() < 3) {
+                        continue;
+                    }
+                    double d = Point.distance(point, endPoint(segments, other));
+                    if (d < bestDistance && segment.hasSameTranslations(segments.get(other / 2))) {
+                        bestDistance = d;
+                        best = other;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static Polygon buildChain(List<Polygon> segments, int[] mates, boolean[] visited, int seed) {
+        // walk back to the beginning of the path, for cycles stop once seed is reached again
+        int start = 2 * seed;
+        while (mates[start] != NONE && mates[start] / 2 != seed) {
+            start = opposite(mates[start]);
+        }
+        boolean cycle = mates[start] != NONE;
+        if (cycle) {
+            start = 2 * seed;
+        }
+
+        List<Point> points = new ArrayList<>();
+        int end = start;
+        Polygon first = segments.get(start / 2);
+        do {
+            Polygon segment = segments.get(end / 2);
+            visited[end / 2] = true;
+            appendSegment(points, segment.getPoints(), isLast(end));
+            end = mates[opposite(end)];
+        } while (end != NONE && end != start);
+
+        if (cycle && Point.distance(points.get(0), points.get(points.size() - 1)) >= Polygon.PRECISION) {
+            points.add(new Point(points.get(0)));
+        }
+
+        Polygon result = new Polygon(points);
+        result.copyTranslations(first);
+        return result;
+    }
+
+    // joint point is shared by adjacent segments, so it is not repeated unless segments are bridged
+    private static void appendSegment(List<Point> points, List<Point> segment, boolean reversed) {
+        int size = segment.size();
+        for (int i = 0; i < size; i++) {
+            Point point = segment.get(reversed ? size - 1 - i : i);
+            if (i == 0 && !points.isEmpty() && Point.distance(points.get(points.size() - 1), point) < Polygon.PRECISION) {
+                continue;
+            }
+            points.add(point);
+        }
+    }
+
+    private static Point endPoint(List<Polygon> segments, int end) {
+        Polygon segment = segments.get(end / 2);
+        return isLast(end) ? segment.getLast() : segment.getFirst();
+    }
+
+    private static boolean isLast(int end) {
+        return (end & 1) != 0;
+    }
+
+    private static int opposite(int end) {
+        return end ^ 1;
+    }
+
+    private static long cell(double value, double size) {
+        return (long) Math.floor(value / size);
+    }
+
+    private static long key(long x, long y) {
+        return (x << 32) ^ (y & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.processor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import com.baremetalstudios.minicam.geometry.DrillGroup;
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+/*
+ * Streaming counterpart of PolygonProcessor.process(). Plotter passes every completed polygon as soon
+ * as it is available and all per-polygon work is done on a single worker thread while parsing goes on:
+ * closed polygons are optimized, their direction is marked and inset is computed as for outer polygon.
+ * Open segments are stitched incrementally, so polygon closed by the segment is handled the same way
+ * as soon as its last segment arrives. Only segments which are not closed that way (reversed, with gaps
+ * or meeting at ambiguous joints) are stitched once whole outline is read. Nesting and panel center are
+ * known only at that point, so selection of start point, insets of inner polygons, detection of
+ * repeated copies and tabs are left for process().
+ * Result is the same as produced by PolygonProcessor.
+ */
+public class PolygonStream implements Consumer<Polygon> {
+    private final PolygonProcessor processor;
+    private final ExecutorService worker;
+    private final List<Entry> closedEntries = new ArrayList<>();
+    private final List<Entry> stitchedEntries = new ArrayList<>();
+    private final Map<Polygon, Entry> cycles = new IdentityHashMap<>();
+    private final PolygonStitcher stitcher;
+    private volatile RuntimeException failure;
+    private boolean finished;
+
+    public PolygonStream(PolygonProcessor processor) {
+        this.processor = processor;
+        this.stitcher = new PolygonStitcher(processor.getConfig().getStitchGap());
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "polygon-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void accept(Polygon polygon) {
+        if (finished) {
+            throw new IllegalStateException("Polygon stream is already finished");
+        }
+        worker.execute(() -> {
+            if (failure != null) {
+                return;
+            }
+            try {
+                if (polygon.isClosed()) {
+                    closedEntries.add(entry(polygon));
+                } else {
+                    Polygon cycle = stitcher.add(polygon);
+                    if (cycle != null) {
+                        cycles.put(cycle, entry(cycle));
+                    }
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        });
+    }
+
+    /**
+     * Waits until all received polygons are handled and returns them in the same order as
+     * PolygonProcessor does: polygons received closed, then stitched ones, then segments which
+     * could not be stitched into closed polygons.
+     */
+    public List<Polygon> getPolygons() {
+        boolean first = !finished;
+        if (first) {
+            finished = true;
+            await();
+        }
+
+        List<Polygon> result = new ArrayList<>();
+        entries().forEach(entry -> result.add(entry.polygon));
+        if (first) {
+            PolygonNesting.classify(result);
+        }
+        return result;
+    }
+
+    public List<Polygon> process(List<DrillGroup> drillList, Point center) {
+        List<Polygon> polygons = getPolygons();
+        Set<Polygon> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(processor.getConfig().isDetectRepeats() ? RepeatDetector.collapse(polygons) : polygons);
+
+        List<Polygon> result = new ArrayList<>();
+        for (Entry entry : entries()) {
+            if (!kept.contains(entry.polygon)) {
+                continue;
+            }
+            result.addAll(entry.inset(center));
+        }
+        return processor.addTabs(result, drillList);
+    }
+
+    private void await() {
+        try {
+            worker.submit(this::stitch).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for polygon processing", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Polygon processing failed", e.getCause());
+        } finally {
+            worker.shutdown();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void stitch() {
+        if (failure != null) {
+            return;
+        }
+        // cycles are dropped if stitcher had to start over
+        for (Polygon polygon : stitcher.finish()) {
+            Entry entry = cycles.get(polygon);
+            stitchedEntries.add(entry != null ? entry : entry(polygon));
+        }
+    }
+
+    private List<Entry> entries() {
+        List<Entry> result = new ArrayList<>(closedEntries);
+        result.addAll(stitchedEntries);
+        return result;
+    }
+
+    private Entry entry(Polygon polygon) {
+        polygon.optimize();
+        PolygonProcessor.markDirection(polygon);
+
+        Entry entry = new Entry(polygon);
+        entry.computeContours(processor.insetDistance(polygon));
+        return entry;
+    }
+
+    private class Entry {
+        private final Polygon polygon;
+        private PolygonOffset.Contours contours;
+        private boolean inner;
+
+        Entry(Polygon polygon) {
+            this.polygon = polygon;
+        }
+
+        // Offset keeps track of source vertexes, so it can be started at whatever vertex
+        // Polygon.reorder() would choose later. Null if inset can't be calculated.
+        void computeContours(double insetDistance) {
+            inner = polygon.isInner();
+            contours = processor.getOffset().offset(polygon, insetDistance);
+        }
+
+        List<Polygon> inset(Point center) {
+            // failures are reported by the regular code path
+            if (contours == null || inner != polygon.isInner()) {
+                polygon.reorder(center);
+                return processor.inset(polygon);
+            }
+
+            int start = Math.max(polygon.findNearest(center), 0) % (polygon.count() - 1);
+            return contours.toPolygons(polygon, start);
+        }
+    }
+}
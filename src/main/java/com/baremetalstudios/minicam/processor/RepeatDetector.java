@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.processor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.baremetalstudios.minicam.geometry.Circle;
+import com.baremetalstudios.minicam.geometry.Direction;
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+/*
+ * Finds polygons which are translated copies of each other, like boards repeated by panelization
+ * tools. Polygons are hashed by nesting, direction and number of vertexes, polygons within one bucket
+ * are compared vertex by vertex relative to their lowest left vertex. Panelization tools round
+ * coordinates of each copy separately, so vertexes are matched with Polygon.MATCH_TOLERANCE. Copies
+ * are replaced by the first of them with list of translations, so inset and tabs are calculated
+ * only once.
+ *
+ * Only translated copies are detected. Instances of a polygon are stored as translations, and output,
+ * path sequencing and tabs rely on that, so rotated copies are kept as separate polygons and are
+ * processed as usual. Mirrored copies could not reuse the inset anyway, since mirroring reverses
+ * milling direction.
+ */
+public class RepeatDetector {
+    private RepeatDetector() {
+    }
+
+    /**
+     * Returns polygons with repeated copies removed. First copy is kept in place and receives
+     * translations of all copies. Polygons which already have translations are kept as is.
+     */
+    public static List<Polygon> collapse(List<Polygon> polygons) {
+        Map<Key, List<Group>> buckets = new HashMap<>();
+        List<Group> groups = new ArrayList<>();
+        List<Polygon> result = new ArrayList<>();
+
+        for (Polygon polygon : polygons) {
+            if (polygon instanceof Circle || polygon.isInstanced() || polygon.count() < 2) {
+                result.add(polygon);
+                continue;
+            }
+            Shape shape = new Shape(polygon);
+            List<Group> bucket = buckets.computeIfAbsent(new Key(polygon), key -> new ArrayList<>());
+            Group group = bucket.stream().filter(candidate -> candidate.shape.matches(shape)).findFirst().orElse(null);
+
+            if (group == null) {
+                group = new Group(shape);
+                bucket.add(group);
+                groups.add(group);
+                result.add(polygon);
+            }
+            group.copies.add(shape);
+        }
+
+        for (Group group : groups) {
+            if (group.copies.size() < 2) {
+                continue;
+            }
+            List<Point> translations = new ArrayList<>();
+            for (Shape copy : group.copies) {
+                translations.add(new Point(copy.origin.getX() - group.shape.origin.getX(),
+                                           copy.origin.getY() - group.shape.origin.getY()));
+            }
+            group.shape.polygon.setTranslations(translations);
+        }
+        return result;
+    }
+
+    /**
+     * Returns outer polygon with the largest number of copies (the largest one if there are
+     * several), i.e. repeated board outline. Null if there are no repeated outer polygons.
+     */
+    public static Polygon findRepeatedBoard(List<Polygon> polygons) {
+        Polygon result = null;
+
+        for (Polygon polygon : polygons) {
+            if (polygon.isInner() || polygon.getInstanceCount() < 2) {
+                continue;
+            }
+            if (result == null || polygon.getInstanceCount() > result.getInstanceCount()
+                || (polygon.getInstanceCount() == result.getInstanceCount() && area(polygon) > area(result))) {
+                result = polygon;
+            }
+        }
+        return result;
+    }
+
+    private static double area(Polygon polygon) {
+        return polygon.getSizeX() * polygon.getSizeY();
+    }
+
+    private static final class Key {
+        private final boolean inner;
+        private final boolean closed;
+        private final Direction direction;
+        private final int count;
+
+        Key(Polygon polygon) {
+            this.inner = polygon.isInner();
+            this.closed = polygon.isClosed();
+            this.direction = polygon.getDirection();
+            this.count = polygon.count();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(inner, closed, direction, count);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return inner == other.inner && closed == other.closed && direction == other.direction && count == other.count;
+        }
+    }
+
+    private static final class Group {
+        private final Shape shape;
+        private final List<Shape> copies = new ArrayList<>();
+
+        Group(Shape shape) {
+            this.shape = shape;
+        }
+    }
+
+    // Vertexes relative to the origin vertex. Closed path is walked as a loop starting from its
+    // lowest left vertex, open one is walked from its first vertex.
+    private static final class Shape {
+        private final Polygon polygon;
+        private final Point origin;
+        private final double[] coordinates;
+
+        Shape(Polygon polygon) {
+            int size = polygon.isClosed() ? polygon.count() - 1 : polygon.count();
+            int start = polygon.isClosed() ? lowestVertex(polygon, size) : 0;
+
+            this.polygon = polygon;
+            this.origin = polygon.getPoint(start);
+            this.coordinates = new double[size * 2];
+
+            for (int i = 0; i < size; i++) {
+                int idx = (start + i) % size;
+                coordinates[i * 2] = polygon.getX(idx) - origin.getX();
+                coordinates[i * 2 + 1] = polygon.getY(idx) - origin.getY();
+            }
+        }
+
+        boolean matches(Shape other) {
+            if (Math.abs(polygon.getSizeX() - other.polygon.getSizeX()) > Polygon.MATCH_TOLERANCE
+                || Math.abs(polygon.getSizeY() - other.polygon.getSizeY()) > Polygon.MATCH_TOLERANCE) {
+                return false;
+            }
+            for (int i = 0; i < coordinates.length; i++) {
+                if (Math.abs(coordinates[i] - other.coordinates[i]) > Polygon.MATCH_TOLERANCE) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // index of vertex with the lowest X, ties (within tolerance) are resolved by the lowest Y
+        private static int lowestVertex(Polygon polygon, int size) {
+            int best = 0;
+
+            for (int i = 1; i < size; i++) {
+                double dX = polygon.getX(i) - polygon.getX(best);
+                if (dX < -Polygon.MATCH_TOLERANCE || (dX < Polygon.MATCH_TOLERANCE && polygon.getY(i) < polygon.getY(best))) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+    }
+}
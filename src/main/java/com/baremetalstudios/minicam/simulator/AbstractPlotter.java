@@ -18,21 +18,27 @@ package com.baremetalstudios.minicam.simulator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+
 public abstract class AbstractPlotter implements Plotter {
     private final Logger logger = LogManager.getLogger();
     
     private ExposureMode exposure = SimulatorDefaults.EXPOSURE;
-    private final EnumSet<PlotterMode> opts = SimulatorDefaults.OPTIONS;
+    private final EnumSet<PlotterMode> opts = EnumSet.copyOf(SimulatorDefaults.OPTIONS);
     
     private FormatParser formatX = new FormatParser();
     private FormatParser formatY = new FormatParser();
     
     private final Map<Integer, Aperture> appertures = new HashMap<>();
     private final Map<String, ApertureMacro> definitions = new HashMap<>();
+    private Aperture aperture;
 
     public AbstractPlotter() {
     }
@@ -93,6 +99,41 @@ public abstract class AbstractPlotter implements Plotter {
     @Override
     public void setAperture(int parseInt) {
         //System.out.println("setAperture(" + parseInt + ")");
+        aperture = appertures.get(parseInt);
+    }
+
+    /**
+     * Outlines of dark shapes of the selected macro aperture flashed at given position (in
+     * millimeters). Clear shapes only remove copper inside dark ones, so they are not returned.
+     * Empty if selected aperture is not a macro.
+     */
+    protected List<Polygon> getFlashOutlines(double x, double y) {
+        List<Polygon> result = new ArrayList<>();
+        if (!(aperture instanceof MacroAperture)) {
+            return result;
+        }
+
+        // macro geometry is in units of the file and is shared by all flashes of the aperture
+        double scale = formatX.getScale();
+        for (MacroShape shape : ((MacroAperture) aperture).getGeometry()) {
+            if (!shape.isDark()) {
+                continue;
+            }
+            Polygon outline = shape.getOutline();
+            List<Point> points = new ArrayList<>(outline.count());
+            for (int i = 0; i < outline.count(); i++) {
+                points.add(new Point(x + outline.getX(i) * scale, y + outline.getY(i) * scale));
+            }
+            result.add(new Polygon(points));
+        }
+        return result;
+    }
+
+    /**
+     * Currently selected aperture or null if selected aperture is not defined.
+     */
+    public Aperture getAperture() {
+        return aperture;
     }
 
     @Override
@@ -20,6 +20,7 @@ import java.util.List;
 public class ApertureMacro {
     private String image;
     private List<MacroPrimitive> primitives;
+    private CompiledMacro compiled;
 
     public ApertureMacro(String image, List<MacroPrimitive> primitives) {
         this.image = image;
@@ -34,4 +35,18 @@ public class ApertureMacro {
     public String getName() {
         return image;
     }
+
+    public List<MacroPrimitive> getPrimitives() {
+        return primitives;
+    }
+
+    /**
+     * Macro compiled for evaluation. Compilation is done once, on first use.
+     */
+    public synchronized CompiledMacro compile() {
+        if (compiled == null) {
+            compiled = new CompiledMacro(primitives);
+        }
+        return compiled;
+    }
 }
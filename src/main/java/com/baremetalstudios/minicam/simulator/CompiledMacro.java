@@ -0,0 +1,383 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.baremetalstudios.minicam.geometry.Circle;
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+/*
+ * Aperture macro compiled into flat program for a small stack machine. Each instruction is single int,
+ * lower bits hold operation, upper bits hold operand (index of constant or number of variable).
+ * Arguments of all primitives are calculated in one pass and then converted into shapes. Expressions
+ * which do not depend on variables are folded into constants during compilation.
+ */
+public class CompiledMacro {
+    private static final int CONST = 0;
+    private static final int VAR = 1;
+    private static final int ADD = 2;
+    private static final int SUBTRACT = 3;
+    private static final int MULTIPLY = 4;
+    private static final int DIVIDE = 5;
+    private static final int STORE = 6;
+    private static final int OPERATION_BITS = 3;
+    private static final int OPERATION_MASK = (1 << OPERATION_BITS) - 1;
+
+    private final MacroPrimitiveType[] types;
+    private final int[] argStarts;
+    private final int[] argCounts;
+    private final int[] code;
+    private final double[] constants;
+    private final int numArgs;
+    private final int stackSize;
+    private final int numVariables;
+
+    public CompiledMacro(List<MacroPrimitive> primitives) {
+        List<SimpleMacroPrimitive> shapes = new ArrayList<>();
+        for (MacroPrimitive primitive : primitives) {
+            if (primitive instanceof SimpleMacroPrimitive) {
+                shapes.add((SimpleMacroPrimitive) primitive);
+            }
+        }
+
+        types = new MacroPrimitiveType[shapes.size()];
+        argStarts = new int[shapes.size()];
+        argCounts = new int[shapes.size()];
+
+        Assembler assembler = new Assembler();
+        int args = 0;
+        int stack = 1;
+        for (int i = 0; i < shapes.size(); i++) {
+            SimpleMacroPrimitive shape = shapes.get(i);
+            types[i] = shape.getType();
+            argStarts[i] = args;
+            argCounts[i] = shape.getExprs().size();
+
+            for (MacroPrimitive expr : shape.getExprs()) {
+                stack = Math.max(stack, assembler.compile(expr));
+                assembler.emit(STORE, 0);
+                args++;
+            }
+        }
+
+        code = Arrays.copyOf(assembler.code, assembler.codeSize);
+        constants = Arrays.copyOf(assembler.constants, assembler.constantSize);
+        numArgs = args;
+        stackSize = stack;
+        numVariables = assembler.maxVariable + 1;
+    }
+
+    public int getCodeSize() {
+        return code.length;
+    }
+
+    /**
+     * Evaluates macro with given aperture modifiers, modifier N is the value of variable $N.
+     * Variables without modifier are 0.
+     */
+    public List<MacroShape> evaluate(List<Double> modifiers) {
+        double[] variables = new double[numVariables];
+        for (int i = 1; i < numVariables && i <= modifiers.size(); i++) {
+            Double value = modifiers.get(i - 1);
+            variables[i] = (value == null) ? 0 : value;
+        }
+
+        double[] args = run(variables);
+
+        List<MacroShape> result = new ArrayList<>();
+        for (int i = 0; i < types.length; i++) {
+            addShapes(result, types[i], Arrays.copyOfRange(args, argStarts[i], argStarts[i] + argCounts[i]));
+        }
+        return result;
+    }
+
+    private double[] run(double[] variables) {
+        double[] args = new double[numArgs];
+        double[] stack = new double[stackSize];
+        int sp = 0;
+        int arg = 0;
+
+        for (int instruction : code) {
+            int operand = instruction >>> OPERATION_BITS;
+            switch (instruction & OPERATION_MASK) {
+                case CONST:
+                    stack[sp++] = constants[operand];
+                    break;
+                case VAR:
+                    stack[sp++] = variables[operand];
+                    break;
+                case ADD:
+                    sp--;
+                    stack[sp - 1] += stack[sp];
+                    break;
+                case SUBTRACT:
+                    sp--;
+                    stack[sp - 1] -= stack[sp];
+                    break;
+                case MULTIPLY:
+                    sp--;
+                    stack[sp - 1] *= stack[sp];
+                    break;
+                case DIVIDE:
+                    sp--;
+                    stack[sp - 1] /= stack[sp];
+                    break;
+                default:
+                    args[arg++] = stack[--sp];
+                    break;
+            }
+        }
+        return args;
+    }
+
+    private static int operation(BinaryOperation operator) {
+        switch (operator) {
+            case ADD:
+                return ADD;
+            case SUBTRACT:
+                return SUBTRACT;
+            case MULTIPLY:
+                return MULTIPLY;
+            default:
+                return DIVIDE;
+        }
+    }
+
+    private static double apply(BinaryOperation operator, double lhs, double rhs) {
+        switch (operator) {
+            case ADD:
+                return lhs + rhs;
+            case SUBTRACT:
+                return lhs - rhs;
+            case MULTIPLY:
+                return lhs * rhs;
+            default:
+                return lhs / rhs;
+        }
+    }
+
+    // Argument order follows Gerber specification, rotation is always around macro origin
+    private static void addShapes(List<MacroShape> result, MacroPrimitiveType type, double[] args) {
+        switch (type) {
+            case CIRCLE:
+                result.add(new MacroShape(type, dark(args), circle(arg(args, 2), arg(args, 3), arg(args, 1), arg(args, 4))));
+                break;
+            case LINE_VECTOR:
+                addVectorLine(result, args);
+                break;
+            case LINE_CENTER:
+                result.add(new MacroShape(type, dark(args), rectangle(arg(args, 3), arg(args, 4), arg(args, 1), arg(args, 2), arg(args, 5))));
+                break;
+            case LINE_LL:
+                result.add(new MacroShape(type, dark(args), rectangle(arg(args, 3) + arg(args, 1) / 2, arg(args, 4) + arg(args, 2) / 2,
+                                                                      arg(args, 1), arg(args, 2), arg(args, 5))));
+                break;
+            case OUTLINE:
+                addOutline(result, args);
+                break;
+            case POLYGON:
+                addPolygon(result, args);
+                break;
+            case MOIRE:
+                addMoire(result, args);
+                break;
+            case THERMAL:
+                addThermal(result, args);
+                break;
+        }
+    }
+
+    private static void addVectorLine(List<MacroShape> result, double[] args) {
+        double width = arg(args, 1);
+        double startX = arg(args, 2);
+        double startY = arg(args, 3);
+        double endX = arg(args, 4);
+        double endY = arg(args, 5);
+        double length = Math.hypot(endX - startX, endY - startY);
+
+        if (length == 0) {
+            return;
+        }
+
+        double dx = -(endY - startY) / length * width / 2;
+        double dy = (endX - startX) / length * width / 2;
+        double rotation = arg(args, 6);
+
+        result.add(new MacroShape(MacroPrimitiveType.LINE_VECTOR, dark(args), polygon(rotation,
+            startX + dx, startY + dy, endX + dx, endY + dy, endX - dx, endY - dy, startX - dx, startY - dy)));
+    }
+
+    private static void addOutline(List<MacroShape> result, double[] args) {
+        int numPoints = (int) arg(args, 1) + 1;
+        double[] coordinates = new double[numPoints * 2];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = arg(args, 2 + i);
+        }
+        double rotation = arg(args, 2 + coordinates.length);
+
+        result.add(new MacroShape(MacroPrimitiveType.OUTLINE, dark(args), polygon(rotation, coordinates)));
+    }
+
+    private static void addPolygon(List<MacroShape> result, double[] args) {
+        int numVertices = Math.max((int) arg(args, 1), 3);
+        double centerX = arg(args, 2);
+        double centerY = arg(args, 3);
+        double radius = arg(args, 4) / 2;
+        double[] coordinates = new double[numVertices * 2];
+
+        for (int i = 0; i < numVertices; i++) {
+            double angle = 2 * Math.PI * i / numVertices;
+            coordinates[i * 2] = centerX + radius * Math.cos(angle);
+            coordinates[i * 2 + 1] = centerY + radius * Math.sin(angle);
+        }
+
+        result.add(new MacroShape(MacroPrimitiveType.POLYGON, dark(args), polygon(arg(args, 5), coordinates)));
+    }
+
+    private static void addMoire(List<MacroShape> result, double[] args) {
+        double centerX = arg(args, 0);
+        double centerY = arg(args, 1);
+        double diameter = arg(args, 2);
+        double thickness = arg(args, 3);
+        double gap = arg(args, 4);
+        int maxRings = (int) arg(args, 5);
+        double crossThickness = arg(args, 6);
+        double crossLength = arg(args, 7);
+        double rotation = arg(args, 8);
+
+        for (int i = 0; i < maxRings && diameter > 0; i++) {
+            result.add(new MacroShape(MacroPrimitiveType.MOIRE, true, circle(centerX, centerY, diameter, rotation)));
+            if (diameter - thickness * 2 > 0) {
+                result.add(new MacroShape(MacroPrimitiveType.MOIRE, false, circle(centerX, centerY, diameter - thickness * 2, rotation)));
+            }
+            diameter -= (thickness + gap) * 2;
+        }
+        result.add(new MacroShape(MacroPrimitiveType.MOIRE, true, rectangle(centerX, centerY, crossLength, crossThickness, rotation)));
+        result.add(new MacroShape(MacroPrimitiveType.MOIRE, true, rectangle(centerX, centerY, crossThickness, crossLength, rotation)));
+    }
+
+    private static void addThermal(List<MacroShape> result, double[] args) {
+        double centerX = arg(args, 0);
+        double centerY = arg(args, 1);
+        double outer = arg(args, 2);
+        double inner = arg(args, 3);
+        double gap = arg(args, 4);
+        double rotation = arg(args, 5);
+
+        result.add(new MacroShape(MacroPrimitiveType.THERMAL, true, circle(centerX, centerY, outer, rotation)));
+        result.add(new MacroShape(MacroPrimitiveType.THERMAL, false, circle(centerX, centerY, inner, rotation)));
+        result.add(new MacroShape(MacroPrimitiveType.THERMAL, false, rectangle(centerX, centerY, outer, gap, rotation)));
+        result.add(new MacroShape(MacroPrimitiveType.THERMAL, false, rectangle(centerX, centerY, gap, outer, rotation)));
+    }
+
+    private static Polygon circle(double centerX, double centerY, double diameter, double rotation) {
+        return new Circle(rotate(centerX, centerY, rotation), diameter);
+    }
+
+    private static Polygon rectangle(double centerX, double centerY, double width, double height, double rotation) {
+        double halfWidth = width / 2;
+        double halfHeight = height / 2;
+
+        return polygon(rotation,
+            centerX - halfWidth, centerY - halfHeight, centerX + halfWidth, centerY - halfHeight,
+            centerX + halfWidth, centerY + halfHeight, centerX - halfWidth, centerY + halfHeight);
+    }
+
+    // closed polygon, first point is repeated at the end unless it's there already
+    private static Polygon polygon(double rotation, double... coordinates) {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i + 1 < coordinates.length; i += 2) {
+            points.add(rotate(coordinates[i], coordinates[i + 1], rotation));
+        }
+        if (!points.isEmpty() && Point.distance(points.get(0), points.get(points.size() - 1)) >= Polygon.PRECISION) {
+            points.add(new Point(points.get(0)));
+        }
+        return new Polygon(points);
+    }
+
+    private static Point rotate(double x, double y, double degrees) {
+        if (degrees == 0) {
+            return Point.at(x, y);
+        }
+        double angle = Math.toRadians(degrees);
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        return Point.at(x * cos - y * sin, x * sin + y * cos);
+    }
+
+    private static boolean dark(double[] args) {
+        return arg(args, 0) != 0;
+    }
+
+    private static double arg(double[] args, int idx) {
+        return idx < args.length ? args[idx] : 0;
+    }
+
+    private static class Assembler {
+        private int[] code = new int[16];
+        private int codeSize;
+        private double[] constants = new double[16];
+        private int constantSize;
+        private int maxVariable;
+
+        // returns stack depth required to evaluate expression
+        private int compile(MacroPrimitive expr) {
+            if (expr instanceof MacroConstant) {
+                emitConstant(((MacroConstant) expr).getValue());
+                return 1;
+            }
+            if (expr instanceof MacroVariable) {
+                int variable = ((MacroVariable) expr).getVariable();
+                maxVariable = Math.max(maxVariable, variable);
+                emit(VAR, variable);
+                return 1;
+            }
+            if (expr instanceof MacroBinOp) {
+                MacroBinOp binOp = (MacroBinOp) expr;
+                if (binOp.getLhs() instanceof MacroConstant && binOp.getRhs() instanceof MacroConstant) {
+                    emitConstant(apply(binOp.getOperator(),
+                                       ((MacroConstant) binOp.getLhs()).getValue(),
+                                       ((MacroConstant) binOp.getRhs()).getValue()));
+                    return 1;
+                }
+                int lhsDepth = compile(binOp.getLhs());
+                int rhsDepth = compile(binOp.getRhs());
+                emit(operation(binOp.getOperator()), 0);
+                return Math.max(lhsDepth, rhsDepth + 1);
+            }
+            throw new IllegalArgumentException("Unsupported macro expression " + expr);
+        }
+
+        private void emitConstant(double value) {
+            if (constantSize == constants.length) {
+                constants = Arrays.copyOf(constants, constantSize * 2);
+            }
+            constants[constantSize] = value;
+            emit(CONST, constantSize++);
+        }
+
+        private void emit(int operation, int operand) {
+            if (codeSize == code.length) {
+                code = Arrays.copyOf(code, codeSize * 2);
+            }
+            code[codeSize++] = operation | (operand << OPERATION_BITS);
+        }
+    }
+}
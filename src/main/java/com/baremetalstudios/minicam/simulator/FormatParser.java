@@ -21,26 +21,70 @@ public class FormatParser {
     public static final double IMPERIAL_SCALE = 25.4;
     public static final double METRIC_SCALE = 1.0;
 
-    private int trailingDigits;
     private int totalLength;
+    private double divisor = 1.0;
     private double scale = IMPERIAL_SCALE;
 
     public void setFormat(int leadingDigits, int trailingDigits) {
-        this.trailingDigits = trailingDigits;
         this.totalLength = leadingDigits + trailingDigits;
+        this.divisor = Math.pow(10, trailingDigits);
     }
 
     public double parse(String text) {
-        if (text.length() != totalLength) {
+        return parse(units(text));
+    }
+
+    /**
+     * Converts value in format units (digits as written in the file) into millimeters.
+     */
+    public double parse(long units) {
+        return units / divisor * scale;
+    }
+
+    /**
+     * Converts fixed length value into format units.
+     */
+    public long units(String text) {
+        checkLength(text, text.length());
+
+        int start = (text.startsWith("-") || text.startsWith("+")) ? 1 : 0;
+        if (start == text.length()) {
             throw new ParseException("Invalid value " + text);
         }
 
-        Double value = Double.valueOf(text);
-        for (int i = 0; i < trailingDigits; i++) {
-            value /= 10.0;
+        long value = 0;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new ParseException("Invalid value " + text);
+            }
+            value = value * 10 + (c - '0');
         }
+        return (text.charAt(0) == '-') ? -value : value;
+    }
+
+    /**
+     * Validates value which is already converted into format units by the caller. Length is the
+     * number of characters of the value as written in the file, including sign, and is checked
+     * the same way as by {@link #units(String)}.
+     */
+    public long units(long value, int length) {
+        checkLength(value, length);
+        return value;
+    }
+
+    // coordinates are fixed length, so omitted leading or trailing zeros can't be confused
+    private void checkLength(Object value, int length) {
+        if (length != totalLength) {
+            throw new ParseException("Invalid value " + value);
+        }
+    }
 
-        return value*scale;
+    /**
+     * Returns number of millimeters in one unit of the file (inch or millimeter).
+     */
+    public double getScale() {
+        return scale;
     }
 
     public void setModeImperial() {
@@ -15,19 +15,32 @@
  ******************************************************************************/
 package com.baremetalstudios.minicam.simulator;
 
+import java.util.Collections;
 import java.util.List;
 
 public class MacroAperture extends SimpleAperture {
     private final ApertureMacro macro;
+    private List<MacroShape> geometry;
 
     public MacroAperture(int num, ApertureMacro macro, List<Double> modifiers) {
         super(ApertureType.MACRO, num, modifiers);
         this.macro = macro;
     }
+
+    /**
+     * Shapes of this aperture in units of the file. Macro is evaluated on first call only, same aperture
+     * usually is flashed many times.
+     */
+    public synchronized List<MacroShape> getGeometry() {
+        if (geometry == null) {
+            geometry = (macro == null) ? Collections.emptyList() : macro.compile().evaluate(getModifiers());
+        }
+        return geometry;
+    }
     
     @Override
     protected String extraText() {
      
-        return macro.toString();
+        return String.valueOf(macro);
     }
 }
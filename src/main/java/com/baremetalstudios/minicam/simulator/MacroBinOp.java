@@ -26,6 +26,18 @@ public class MacroBinOp implements MacroExpression {
         this.rhs = rhs;
     }
     
+    public BinaryOperation getOperator() {
+        return operator;
+    }
+
+    public MacroExpression getLhs() {
+        return lhs;
+    }
+
+    public MacroExpression getRhs() {
+        return rhs;
+    }
+
     @Override
     public String toString() {
         return lhs + " " + operator + " " + rhs;
@@ -22,6 +22,10 @@ public class MacroConstant implements MacroExpression {
         this.value = value;
     }
 
+    public double getValue() {
+        return value;
+    }
+
     @Override
     public String toString() {
         return "constant " + value;
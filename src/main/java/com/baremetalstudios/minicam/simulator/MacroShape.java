@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.simulator;
+
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+/*
+ * Evaluated aperture macro primitive. Dark shape adds copper, clear one removes copper added by
+ * preceding shapes of the same aperture.
+ */
+public class MacroShape {
+    private final MacroPrimitiveType type;
+    private final boolean dark;
+    private final Polygon outline;
+
+    public MacroShape(MacroPrimitiveType type, boolean dark, Polygon outline) {
+        this.type = type;
+        this.dark = dark;
+        this.outline = outline;
+    }
+
+    public MacroPrimitiveType getType() {
+        return type;
+    }
+
+    public boolean isDark() {
+        return dark;
+    }
+
+    public Polygon getOutline() {
+        return outline;
+    }
+
+    @Override
+    public String toString() {
+        return type + (dark ? " dark " : " clear ") + outline.getPoints();
+    }
+}
@@ -23,6 +23,10 @@ public class MacroVariable implements MacroExpression {
         this.variable = variable;
     }
 
+    public int getVariable() {
+        return variable;
+    }
+
     @Override
     public String toString() {
         return "var " + variable;
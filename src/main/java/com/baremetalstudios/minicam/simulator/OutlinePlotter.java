@@ -17,9 +17,11 @@ package com.baremetalstudios.minicam.simulator;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import com.baremetalstudios.minicam.geometry.Point;
 import com.baremetalstudios.minicam.geometry.Polygon;
+import com.baremetalstudios.minicam.parser.ParseException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -28,10 +30,22 @@ public class OutlinePlotter extends AbstractPlotter {
     
     private List<Point> points = new ArrayList<>();
     private List<Polygon> polygons = new ArrayList<>();
-    private Point point;
+    private Consumer<Polygon> consumer;
+    private List<Point> translations;
+    private boolean hasPoint;
+    private double x;
+    private double y;
     
     public OutlinePlotter() {
     }
+
+    /**
+     * Creates plotter which passes polygons to consumer instead of collecting them. Last polygon
+     * still may be extended, so it is passed once next one is started or plotting is done.
+     */
+    public OutlinePlotter(Consumer<Polygon> consumer) {
+        this.consumer = consumer;
+    }
     
     @Override
     public void setMode(PlotterMode mode) {
@@ -41,47 +55,149 @@ public class OutlinePlotter extends AbstractPlotter {
     @Override
     public void setCenter(String stringX, String stringY) {
         if (logger.isDebugEnabled()) {
-            logger.debug("setCenter(" + getFormatX().parse(stringX) + ", " + getFormatY().parse(stringY) + ")");
+            setCenter(units(getFormatX(), stringX), length(stringX), units(getFormatY(), stringY), length(stringY),
+                      axes(stringX, stringY));
+        }
+    }
+
+    @Override
+    public void setCenter(long i, int lengthI, long j, int lengthJ, int axes) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("setCenter(" + getFormatX().parse(i) + ", " + getFormatY().parse(j) + ")");
         }
     }
 
     @Override
     public void setPosition(String stringX, String stringY) {
-        point = new Point(getFormatX().parse(stringX), getFormatY().parse(stringY));
+        setPosition(units(getFormatX(), stringX), length(stringX), units(getFormatY(), stringY), length(stringY),
+                    axes(stringX, stringY));
+    }
+
+    @Override
+    public void setPosition(long unitsX, int lengthX, long unitsY, int lengthY, int axes) {
+        // missing coordinate keeps its previous value
+        if ((axes & AXIS_X) != 0) {
+            x = getFormatX().parse(getFormatX().units(unitsX, lengthX));
+        }
+        if ((axes & AXIS_Y) != 0) {
+            y = getFormatY().parse(getFormatY().units(unitsY, lengthY));
+        }
+        hasPoint = true;
+
         if (logger.isDebugEnabled()) {
-            logger.debug("setPosition(" + getFormatX().parse(stringX) + ", " + getFormatY().parse(stringY) + ")");
+            logger.debug("setPosition(" + x + ", " + y + ")");
+        }
+
+        // D03 is modal, so every position in flash mode is a flash
+        if (getExposure() == ExposureMode.FLASH) {
+            flash();
+        }
+    }
+
+    private static long units(FormatParser format, String text) {
+        return (text == null) ? 0 : format.units(text);
+    }
+
+    private static int length(String text) {
+        return (text == null) ? 0 : text.length();
+    }
+
+    private static int axes(String stringX, String stringY) {
+        return ((stringX != null) ? AXIS_X : 0) | ((stringY != null) ? AXIS_Y : 0);
+    }
+
+    /**
+     * Opens step and repeat block (closing previous one, if any). Polygons plotted inside block are
+     * stored once and receive list of translations, one per repeated copy.
+     */
+    @Override
+    public void stepAndRepeat(String stringX, String stringY, String stringI, String stringJ) {
+        if (getExposure() == ExposureMode.OPEN && !points.isEmpty()) {
+            points.add(new Point(x, y));
+            flush();
+            points.add(new Point(x, y));
+        }
+
+        int countX = stringX.isEmpty() ? 1 : Integer.parseInt(stringX.substring(1));
+        int countY = stringY.isEmpty() ? 1 : Integer.parseInt(stringY.substring(1));
+        double stepX = stringI.isEmpty() ? 0 : Double.parseDouble(stringI.substring(1)) * getFormatX().getScale();
+        double stepY = stringJ.isEmpty() ? 0 : Double.parseDouble(stringJ.substring(1)) * getFormatY().getScale();
+
+        if (countX < 1 || countY < 1) {
+            throw new ParseException("Invalid step and repeat count " + stringX + stringY);
+        }
+
+        if (countX == 1 && countY == 1) {
+            translations = null;
+            return;
+        }
+
+        translations = new ArrayList<>(countX * countY);
+        for (int j = 0; j < countY; j++) {
+            for (int i = 0; i < countX; i++) {
+                translations.add(new Point(stepX * i, stepY * j));
+            }
         }
     }
 
     @Override
     public void setExposure(ExposureMode mode) {
         if (getExposure() == ExposureMode.OPEN && mode == ExposureMode.CLOSED) {
-            points.add(new Point(point));
+            points.add(new Point(x, y));
             flush();
         }
         if (mode == ExposureMode.OPEN) {
-            points.add(new Point(point));
+            points.add(new Point(x, y));
         }
         super.setExposure(mode);
     }
     
+    /**
+     * Flash of macro aperture adds outlines of its shapes, other apertures are ignored.
+     */
+    @Override
+    public void addFlash() {
+        super.addFlash();
+        flash();
+    }
+
     @Override
     public void done() {
-        if (point != null) {
-            points.add(new Point(point));
+        if (hasPoint) {
+            points.add(new Point(x, y));
         }
         flush();
+
+        if (consumer != null) {
+            polygons.forEach(consumer);
+            polygons.clear();
+        }
     }
     
     public List<Polygon> getPolygons() {
         return polygons;
     }
 
+    private void flash() {
+        getFlashOutlines(x, y).forEach(this::add);
+    }
+
+    private void add(Polygon polygon) {
+        if (consumer != null) {
+            polygons.forEach(consumer);
+            polygons.clear();
+        }
+        if (translations != null) {
+            polygon.setTranslations(translations);
+        }
+        polygons.add(polygon);
+    }
+
     private void flush() {
         if (points.size() > 1) {
-            polygons.add(new Polygon(points));
+            add(new Polygon(points));
             points.clear();
-        } else if(!points.isEmpty()) {
+        } else if(!points.isEmpty() && !polygons.isEmpty()) {
             Polygon lastPolygon = polygons.get(polygons.size() - 1);
             double distance = Point.distance(lastPolygon.getLast(), points.get(0));
             //System.out.println("trying to extend polygon with " + points.get(0) + " with distance " + distance);
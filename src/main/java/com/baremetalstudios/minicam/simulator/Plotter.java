@@ -16,6 +16,9 @@
 package com.baremetalstudios.minicam.simulator;
 
 public interface Plotter {
+    int AXIS_X = 1;
+    int AXIS_Y = 2;
+
     boolean askContinue(int beginLine, int i);
 
     void setMode(PlotterMode mode);
@@ -29,6 +32,35 @@ public interface Plotter {
 
     void setPosition(String string, String string2);
 
+    /**
+     * Same as {@link #setCenter(String, String)} with values in format units (as written in the
+     * file, without decimal point). Lengths are the numbers of characters of the values as written,
+     * including sign, they are needed to validate values against coordinate format. Axes present
+     * in the command are given by AXIS_X (I) and AXIS_Y (J) bits of the mask.
+     */
+    default void setCenter(long i, int lengthI, long j, int lengthJ, int axes) {
+        setCenter(((axes & AXIS_X) != 0) ? written(i, lengthI) : null, ((axes & AXIS_Y) != 0) ? written(j, lengthJ) : null);
+    }
+
+    /**
+     * Same as {@link #setPosition(String, String)} with values in format units.
+     */
+    default void setPosition(long x, int lengthX, long y, int lengthY, int axes) {
+        setPosition(((axes & AXIS_X) != 0) ? written(x, lengthX) : null, ((axes & AXIS_Y) != 0) ? written(y, lengthY) : null);
+    }
+
+    /**
+     * Restores text of the value in format units, leading zeros are added up to given length.
+     */
+    static String written(long value, int length) {
+        StringBuilder result = new StringBuilder(value < 0 ? "-" : "");
+        String digits = Long.toString(Math.abs(value));
+        for (int i = result.length() + digits.length(); i < length; i++) {
+            result.append('0');
+        }
+        return result.append(digits).toString();
+    }
+
     void setExposure(ExposureMode mode);
 
     void setAperture(int parseInt);
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2014, 2015, 2020 Sergiy Yevtushenko
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.baremetalstudios.minicam.simulator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Plotter which records text form of every callback. Used to compare output of different
+ * parsers. Does not extend AbstractPlotter to keep shared plotter options intact.
+ */
+public class RecordingPlotter implements Plotter {
+    private final List<String> calls = new ArrayList<>();
+    private final Map<String, ApertureMacro> definitions = new HashMap<>();
+
+    public List<String> getCalls() {
+        return calls;
+    }
+
+    private void record(String format, Object... args) {
+        calls.add(String.format(format, args));
+    }
+
+    @Override
+    public boolean askContinue(int beginLine, int i) {
+        record("askContinue(%d, %d)", beginLine, i);
+        return false;
+    }
+
+    @Override
+    public void setMode(PlotterMode mode) {
+        record("setMode(%s)", mode);
+    }
+
+    @Override
+    public void resetMode(PlotterMode mode) {
+        record("resetMode(%s)", mode);
+    }
+
+    @Override
+    public void comment(int beginLine, String image) {
+        record("comment(%d, %s)", beginLine, image);
+    }
+
+    @Override
+    public void addFlash() {
+        record("addFlash()");
+    }
+
+    // coordinates are recorded in format units with their length as written, so text and primitive
+    // callbacks are comparable
+    @Override
+    public void setCenter(String string, String string2) {
+        record("setCenter(%s, %s)", units(string), units(string2));
+    }
+
+    @Override
+    public void setCenter(long i, int lengthI, long j, int lengthJ, int axes) {
+        record("setCenter(%s, %s)", units(i, lengthI, axes & AXIS_X), units(j, lengthJ, axes & AXIS_Y));
+    }
+
+    @Override
+    public void setPosition(String string, String string2) {
+        record("setPosition(%s, %s)", units(string), units(string2));
+    }
+
+    @Override
+    public void setPosition(long x, int lengthX, long y, int lengthY, int axes) {
+        record("setPosition(%s, %s)", units(x, lengthX, axes & AXIS_X), units(y, lengthY, axes & AXIS_Y));
+    }
+
+    // sign is dropped, but length is kept, so coordinates of different length are not equal
+    private static String units(String text) {
+        try {
+            return (text == null) ? null : Plotter.written(Long.parseLong(text), text.length());
+        } catch (NumberFormatException e) {
+            return text;
+        }
+    }
+
+    private static String units(long value, int length, int present) {
+        return (present != 0) ? Plotter.written(value, length) : null;
+    }
+
+    @Override
+    public void setExposure(ExposureMode mode) {
+        record("setExposure(%s)", mode);
+    }
+
+    @Override
+    public void setAperture(int parseInt) {
+        record("setAperture(%d)", parseInt);
+    }
+
+    @Override
+    public void setFormatX(int parseInt, int parseInt2) {
+        record("setFormatX(%d, %d)", parseInt, parseInt2);
+    }
+
+    @Override
+    public void setFormatY(int parseInt, int parseInt2) {
+        record("setFormatY(%d, %d)", parseInt, parseInt2);
+    }
+
+    @Override
+    public void addAperture(Aperture aperture) {
+        record("addAperture(%s)", aperture);
+    }
+
+    @Override
+    public ApertureMacro getMacro(String type) {
+        record("getMacro(%s)", type);
+        return definitions.get(type);
+    }
+
+    @Override
+    public void addMacro(ApertureMacro macro) {
+        record("addMacro(%s)", macro);
+        definitions.put(macro.getName(), macro);
+    }
+
+    @Override
+    public void selectAxis(String image, String image2) {
+        record("selectAxis(%s, %s)", image, image2);
+    }
+
+    @Override
+    public void setImagePolarity(String image) {
+        record("setImagePolarity(%s)", image);
+    }
+
+    @Override
+    public void setLayerPolarity(String image) {
+        record("setLayerPolarity(%s)", image);
+    }
+
+    @Override
+    public void setOffset(String a, String b) {
+        record("setOffset(%s, %s)", a, b);
+    }
+
+    @Override
+    public void setScaleFactor(String a, String b) {
+        record("setScaleFactor(%s, %s)", a, b);
+    }
+
+    @Override
+    public void stepAndRepeat(String x, String y, String i, String j) {
+        record("stepAndRepeat(%s, %s, %s, %s)", x, y, i, j);
+    }
+
+    @Override
+    public void done() {
+        record("done()");
+    }
+}
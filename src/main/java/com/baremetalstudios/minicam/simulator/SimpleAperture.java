@@ -39,6 +39,10 @@ public class SimpleAperture implements Aperture {
         return type;
     }
     
+    public List<Double> getModifiers() {
+        return modifiers;
+    }
+
     @Override
     public String toString() {
         return toString(null);
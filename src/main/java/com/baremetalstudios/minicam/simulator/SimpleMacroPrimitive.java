@@ -41,4 +41,9 @@ public class SimpleMacroPrimitive implements MacroPrimitive {
     public void setExprs(List<MacroPrimitive> exprs) {
         this.exprs = exprs;
     }
+
+    @Override
+    public String toString() {
+        return type + " " + exprs;
+    }
 }
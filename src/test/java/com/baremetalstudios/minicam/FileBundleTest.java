@@ -3,6 +3,7 @@ package com.baremetalstudios.minicam;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
+import java.util.Arrays;
 
 import org.junit.jupiter.api.Test;
 
@@ -143,4 +144,21 @@ public class FileBundleTest {
 
         assertFalse(bundle.isValid());
     }
+
+    @Test
+    public void severalOutlineAndDrillFilesAreKeptInOrder() {
+        FileBundle bundle = new FileBundle();
+        File first = new File("first");
+        File second = new File("second");
+
+        bundle.addInFile(first);
+        bundle.addInFile(second);
+        bundle.addDrillFile(second);
+        bundle.addDrillFile(first);
+
+        assertEquals(Arrays.asList(first, second), bundle.getInFiles());
+        assertEquals(Arrays.asList(second, first), bundle.getDrillFiles());
+        assertSame(first, bundle.getInFile());
+        assertSame(second, bundle.getDrillFile());
+    }
 }
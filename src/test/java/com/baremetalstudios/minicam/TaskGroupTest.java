@@ -0,0 +1,60 @@
+package com.baremetalstudios.minicam;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+public class TaskGroupTest {
+
+    @Test
+    public void resultsAreAvailableAfterJoin() throws IOException {
+        try (TaskGroup tasks = new TaskGroup()) {
+            Future<Integer> first = tasks.fork(() -> 20);
+            Future<Integer> second = tasks.fork(() -> TaskGroup.result(first) + 22);
+
+            tasks.join();
+
+            assertEquals(42, TaskGroup.result(second));
+        }
+    }
+
+    @Test
+    public void failureIsRethrownAndOtherTasksAreCancelled() {
+        IOException failure = new IOException("broken file");
+        CountDownLatch started = new CountDownLatch(1);
+
+        try (TaskGroup tasks = new TaskGroup()) {
+            Future<Object> blocked = tasks.fork(() -> {
+                started.countDown();
+                Thread.sleep(60_000);
+                return null;
+            });
+            tasks.fork(() -> {
+                started.await();
+                throw failure;
+            });
+
+            assertSame(failure, assertThrows(IOException.class, tasks::join));
+            assertTrue(blocked.isCancelled());
+        }
+    }
+
+    @Test
+    public void failureOfDependencyIsReportedInsteadOfDependentOne() {
+        try (TaskGroup tasks = new TaskGroup()) {
+            Future<Object> config = tasks.fork(() -> {
+                throw new IllegalArgumentException("bad config");
+            });
+            tasks.fork(() -> config.get());
+
+            assertEquals("bad config", assertThrows(IllegalArgumentException.class, tasks::join).getMessage());
+        }
+    }
+}
@@ -73,7 +73,7 @@ public class ConfigurationReaderTest {
     public void configurationReadSuccessFully() throws Exception {
         OutputConfig config = ConfigurationReader.readConfig(toBufferedReader(configText));
 
-        assertEquals(27, config.getVarCount());
+        assertEquals(43, config.getVarCount());
 
         assertEquals(Double.valueOf(  0.05), config.get(OutputConfig.DRILL_DIAMETER_STEP, Double.class ).getValue());
         assertEquals(Double.valueOf(   0.6), config.get(OutputConfig.TAB_DRILL_DIAMETER , Double.class ).getValue());
@@ -38,6 +38,26 @@ public class OutputConfigTest {
         assertFalse(config.isDoublePass());
     }
 
+    @Test
+    public void defaultIsStreamOutlineIsTrue() {
+        assertTrue(config.isStreamOutline());
+    }
+
+    @Test
+    public void defaultIsDetectRepeatsIsTrue() {
+        assertTrue(config.isDetectRepeats());
+    }
+
+    @Test
+    public void defaultStitchGapIsZero() {
+        assertEquals(0.0, config.getStitchGap());
+    }
+
+    @Test
+    public void defaultOutlineJoinIsMiter() {
+        assertEquals("miter", config.getOutlineJoin());
+    }
+
     @Test
     public void defaultIsReplaceDrillsWithPolygonsIsFalse() {
         assertFalse(config.isReplaceDrillsWithPolygons());
@@ -123,6 +143,52 @@ public class OutputConfigTest {
         assertEquals(5, config.getOptimizationLevel());
     }
 
+    @Test
+    public void defaultOptimizationSeed() {
+        assertEquals(0, config.getOptimizationSeed());
+    }
+
+    @Test
+    public void defaultOptimizationThreadsIsAuto() {
+        assertEquals(0, config.getOptimizationThreads());
+    }
+
+    @Test
+    public void defaultOptimizationAlgorithm() {
+        assertEquals("2opt", config.getOptimizationAlgorithm());
+    }
+
+    @Test
+    public void defaultOptimizationCacheIsDisabled() {
+        assertEquals("", config.getOptimizationCacheDir());
+        assertEquals(64, config.getOptimizationCacheSize());
+    }
+
+    @Test
+    public void defaultGerberParserIsFast() {
+        assertEquals("fast", config.getGerberParser());
+    }
+
+    @Test
+    public void defaultOptimizationTimeIsDisabled() {
+        assertEquals(0, config.getOptimizationTime());
+    }
+
+    @Test
+    public void defaultOptimizationMinImprovement() {
+        assertEquals(0.01, config.getOptimizationMinImprovement(), 0.000001);
+    }
+
+    @Test
+    public void defaultSequencePathsIsTrue() {
+        assertTrue(config.isSequencePaths());
+    }
+
+    @Test
+    public void defaultSequenceReorderIsFalse() {
+        assertFalse(config.isSequenceReorder());
+    }
+
     @Test
     public void defaultGenerateInnerCutIsFalse() {
         assertFalse(config.generateInnerCut());
@@ -156,8 +222,8 @@ public class OutputConfigTest {
     // --- getVarCount ---
 
     @Test
-    public void getVarCountReturns27() {
-        assertEquals(27, config.getVarCount());
+    public void getVarCountReturns43() {
+        assertEquals(43, config.getVarCount());
     }
 
     // --- getVarNames ---
@@ -165,7 +231,7 @@ public class OutputConfigTest {
     @Test
     public void getVarNamesReturnsAllKeys() {
         var names = config.getVarNames();
-        assertEquals(27, names.size());
+        assertEquals(43, names.size());
         assertTrue(names.contains(OutputConfig.ZSAFE));
         assertTrue(names.contains(OutputConfig.ZCUT));
         assertTrue(names.contains(OutputConfig.CUT_FEED_RATE));
@@ -186,6 +252,20 @@ public class OutputConfigTest {
         assertTrue(names.contains(OutputConfig.BOARD_HEIGHT));
         assertTrue(names.contains(OutputConfig.BOARD_WIDTH));
         assertTrue(names.contains(OutputConfig.OPTIMIZATION_LEVEL));
+        assertTrue(names.contains(OutputConfig.OPTIMIZATION_SEED));
+        assertTrue(names.contains(OutputConfig.OPTIMIZATION_THREADS));
+        assertTrue(names.contains(OutputConfig.OPTIMIZATION_ALGORITHM));
+        assertTrue(names.contains(OutputConfig.OPTIMIZATION_CACHE_DIR));
+        assertTrue(names.contains(OutputConfig.OPTIMIZATION_CACHE_SIZE));
+        assertTrue(names.contains(OutputConfig.OPTIMIZATION_TIME));
+        assertTrue(names.contains(OutputConfig.OPTIMIZATION_MIN_IMPROVEMENT));
+        assertTrue(names.contains(OutputConfig.OPTIMIZATION_SEQUENCE));
+        assertTrue(names.contains(OutputConfig.OPTIMIZATION_SEQUENCE_REORDER));
+        assertTrue(names.contains(OutputConfig.GERBER_PARSER));
+        assertTrue(names.contains(OutputConfig.STREAM_OUTLINE));
+        assertTrue(names.contains(OutputConfig.DETECT_REPEATS));
+        assertTrue(names.contains(OutputConfig.STITCH_GAP));
+        assertTrue(names.contains(OutputConfig.OUTLINE_JOIN));
         assertTrue(names.contains(OutputConfig.DRILL_DEPTH_AUTOADJUST));
         assertTrue(names.contains(OutputConfig.DOUBLE_PASS_OUTLINE));
         assertTrue(names.contains(OutputConfig.REPLACE_DRILLS_WITH_POLYGONS));
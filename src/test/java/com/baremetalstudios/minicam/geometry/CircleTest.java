@@ -10,4 +10,19 @@ public class CircleTest {
     public void isCircleClosed() throws Exception {
         assertTrue(new Circle(Point.at(10, 10), 2.8).isClosed());
     }
+
+    @Test
+    public void centerAndDirectionFollowTransforms() {
+        Circle circle = new Circle(Point.at(10, 0), 4);
+
+        assertTrue(circle.isClockwise());
+
+        circle.rotate90(Direction.CCW);
+        circle.translate(1, 1);
+
+        assertEquals(1.0, circle.getCenter().getX(), 0.000001);
+        assertEquals(11.0, circle.getCenter().getY(), 0.000001);
+        assertEquals(2.0, circle.getRadius(), 0.000001);
+        assertTrue(circle.isClockwise());
+    }
 }
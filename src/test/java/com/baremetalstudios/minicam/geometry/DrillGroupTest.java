@@ -1,15 +1,22 @@
 package com.baremetalstudios.minicam.geometry;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.Test;
 
+import com.baremetalstudios.minicam.config.NamedVar;
 import com.baremetalstudios.minicam.config.OutputConfig;
+import com.baremetalstudios.minicam.optimizer.DrillPathOptimizers;
 import com.baremetalstudios.minicam.parser.ExcellonParser;
 
 
@@ -23,14 +30,284 @@ public class DrillGroupTest {
         assertTrue(d > group.calculatePathLenght());
     }
 
+    @Test
+    public void optimizedPathIsNotLongerThanRandomSwapSearch() throws Exception {
+        // path lengths produced by previous random swap search at default level
+        DrillGroup group = loadDrillGroup();
+        group.optimize(new OutputConfig());
+        assertTrue(group.calculatePathLenght() <= 530.312357);
+
+        double[] reference = {164.808451, 432.475883, 487.432486, 160.762044, 277.297896};
+        List<DrillGroup> groups = loadDrillGroups("src/test/resources/merge2.drd");
+        for (int i = 0; i < reference.length; i++) {
+            DrillGroup drillGroup = groups.get(i);
+            int count = drillGroup.getDrills().size();
+            drillGroup.optimize(new OutputConfig());
+            assertTrue(drillGroup.calculatePathLenght() <= reference[i]);
+            assertEquals(count, drillGroup.getDrills().size());
+        }
+    }
+
+    @Test
+    public void timeBudgetedOptimizationIsNotWorseThanLevelBased() throws Exception {
+        OutputConfig config = new OutputConfig();
+        config.put(new NamedVar<Integer>(OutputConfig.OPTIMIZATION_TIME, 1000));
+        DrillGroup group = loadDrillGroup();
+        int count = group.getDrills().size();
+
+        long start = System.nanoTime();
+        group.optimize(config);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsed < 3000, "budget exceeded: " + elapsed + " ms");
+        assertTrue(group.calculatePathLenght() <= 530.312357);
+        assertEquals(count, group.getDrills().size());
+    }
+
+    @Test
+    public void timeBudgetedOptimizationStopsWhenPathStopsImproving() throws Exception {
+        OutputConfig config = new OutputConfig();
+        config.put(new NamedVar<Integer>(OutputConfig.OPTIMIZATION_TIME, 600_000));
+        config.put(new NamedVar<Double>(OutputConfig.OPTIMIZATION_MIN_IMPROVEMENT, 100.0));
+        DrillGroup group = loadDrillGroup();
+
+        long start = System.nanoTime();
+        group.optimize(config);
+
+        assertTrue(System.nanoTime() - start < 60_000_000_000L);
+    }
+
+    @Test
+    public void reorderDoesNotMakeEntryAndPathLongerThanNearestRotation() throws Exception {
+        DrillGroup group = loadDrillGroup();
+        group.optimize(new OutputConfig());
+        Point start = new Point(0, 0);
+        double before = group.calculatePathLenght();
+        double cost = group.entryCost(start);
+
+        group.reorder(start);
+
+        double entry = Point.distance(start, group.getDrills().get(0));
+        assertEquals(cost, entry + group.calculatePathLenght() - before, 0.000001);
+        assertTrue(cost <= Point.distance(start, group.getDrills().get(Point.findNearest(start, group.getDrills(), false)))
+                           + Point.distance(group.getDrills().get(0), group.getDrills().get(group.getDrills().size() - 1)));
+    }
+
+    @Test
+    public void reorderReversesPathWhenLastPointIsNearer() {
+        DrillGroup group = new DrillGroup("T01", 0.5, List.of(new Point(0, 0), new Point(1, 0), new Point(2, 0)));
+
+        Point last = group.reorder(new Point(3, 0));
+
+        assertEquals(2.0, group.getDrills().get(0).getX(), 0.000001);
+        assertEquals(0.0, last.getX(), 0.000001);
+        assertEquals(2.0, group.calculatePathLenght(), 0.000001);
+    }
+
+    @Test
+    public void transformationsAreAppliedToAllDrills() {
+        DrillGroup group = new DrillGroup("T01", 0.5, List.of(new Point(10, 20), new Point(30, 40)));
+
+        group.translate(10, 20);
+        assertEquals(20.0, group.getX(0), 0.000001);
+        assertEquals(40.0, group.getY(0), 0.000001);
+
+        group.rotate90(Direction.CW);
+        assertEquals(40.0, group.getX(0), 0.000001);
+        assertEquals(-20.0, group.getY(0), 0.000001);
+
+        group.rotate90(Direction.CCW);
+        group.scaleDown();
+        assertEquals(4.0, group.getX(1), 0.000001);
+        assertEquals(6.0, group.getY(1), 0.000001);
+    }
+
+    @Test
+    public void drillsGrowBeyondInitialCapacityAndAreExposedAsPoints() {
+        DrillGroup group = new DrillGroup("T01", 0.5);
+        for (int i = 0; i < 100; i++) {
+            group.addDrill(i, 2 * i);
+        }
+
+        List<Point> drills = group.getDrills();
+        assertEquals(100, drills.size());
+        assertEquals(99.0, drills.get(99).getX(), 0.000001);
+        assertEquals(198.0, drills.get(99).getY(), 0.000001);
+        assertEquals(99 * Math.sqrt(5), group.calculatePathLenght(), 0.000001);
+    }
+
+    @Test
+    public void optimizationResultDoesNotDependOnParallelism() throws Exception {
+        DrillGroup sequential = loadDrillGroup();
+        DrillGroup parallel = loadDrillGroup();
+        OutputConfig config = new OutputConfig();
+        config.put(new NamedVar<Integer>(OutputConfig.OPTIMIZATION_LEVEL, 9));
+
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            pool.submit(() -> sequential.optimize(config)).get();
+        } finally {
+            pool.shutdown();
+        }
+        parallel.optimize(config);
+
+        assertEquals(sequential.getDrills().size(), parallel.getDrills().size());
+        for (int i = 0; i < sequential.getDrills().size(); i++) {
+            assertEquals(sequential.getDrills().get(i).getX(), parallel.getDrills().get(i).getX(), 0.0);
+            assertEquals(sequential.getDrills().get(i).getY(), parallel.getDrills().get(i).getY(), 0.0);
+        }
+    }
+
+    @Test
+    public void repeatedClusterIsOptimizedOnceAndChainedAcrossCopies() {
+        Polygon board = new Polygon(List.of(new Point(0, 0), new Point(0, 10), new Point(10, 10),
+                                            new Point(10, 0), new Point(0, 0)));
+        board.setTranslations(List.of(new Point(0, 0), new Point(20, 0), new Point(40, 0)));
+        List<Point> cluster = List.of(new Point(1, 1), new Point(9, 9), new Point(1, 9), new Point(9, 1));
+        DrillGroup group = new DrillGroup("T01", 0.5);
+        for (int copy = 2; copy >= 0; copy--) {
+            for (Point point : cluster) {
+                group.addDrill(point.getX() + copy * 20, point.getY() + 0.001 * copy);
+            }
+        }
+        OutputConfig config = new OutputConfig();
+
+        assertTrue(group.optimizeRepeated(board, DrillPathOptimizers.forName(config.getOptimizationAlgorithm()), config,
+                                          System.nanoTime() + 1_000_000_000L));
+
+        assertEquals(12, group.size());
+        // each copy is drilled completely before moving to the next one
+        for (int i = 0; i < group.size(); i++) {
+            assertEquals(i / 4, (int) (group.getX(i) / 20));
+        }
+        assertTrue(group.calculatePathLenght() < 3 * 24 + 2 * 12 + 0.01);
+    }
+
+    @Test
+    public void repeatedOptimizationRespectsDeadline() {
+        Polygon board = new Polygon(List.of(new Point(0, 0), new Point(0, 100), new Point(100, 100),
+                                            new Point(100, 0), new Point(0, 0)));
+        List<Point> translations = new ArrayList<>();
+        for (int copy = 0; copy < 10; copy++) {
+            translations.add(new Point(copy * 200, 0));
+        }
+        board.setTranslations(translations);
+        Random random = new Random(42);
+        List<Point> cluster = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            cluster.add(new Point(1 + random.nextDouble() * 98, 1 + random.nextDouble() * 98));
+        }
+        DrillGroup group = new DrillGroup("T01", 0.5);
+        for (Point translation : translations) {
+            cluster.forEach(point -> group.addDrill(point.getX() + translation.getX(), point.getY()));
+        }
+        OutputConfig config = new OutputConfig();
+        config.put(new NamedVar<Integer>(OutputConfig.OPTIMIZATION_TIME, 1));
+
+        long start = System.nanoTime();
+        assertTrue(group.optimizeRepeated(board, DrillPathOptimizers.forName(config.getOptimizationAlgorithm()), config,
+                                          start));
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsed < 1000, "deadline exceeded: " + elapsed + " ms");
+        assertEquals(3000, group.size());
+    }
+
+    @Test
+    public void repeatedOptimizationIsNotWorseThanRegularAndKeepsDrills() {
+        Polygon board = new Polygon(List.of(new Point(0, 0), new Point(0, 10), new Point(10, 10),
+                                            new Point(10, 0), new Point(0, 0)));
+        List<Point> translations = new ArrayList<>();
+        for (int copy = 0; copy < 6; copy++) {
+            translations.add(new Point((copy % 3) * 11, (copy / 3) * 11));
+        }
+        board.setTranslations(translations);
+        Random random = new Random(3);
+        List<Point> cluster = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            cluster.add(new Point(0.5 + random.nextDouble() * 9, 0.5 + random.nextDouble() * 9));
+        }
+        List<Point> drills = new ArrayList<>();
+        for (Point translation : translations) {
+            // copies are rounded separately
+            cluster.forEach(point -> drills.add(new Point(point.getX() + translation.getX() + random.nextDouble() * 0.005,
+                                                          point.getY() + translation.getY())));
+        }
+        OutputConfig config = new OutputConfig();
+        DrillGroup regular = new DrillGroup("T01", 0.5, drills);
+        regular.optimize(config);
+        DrillGroup group = new DrillGroup("T01", 0.5, drills);
+
+        assertTrue(group.optimizeRepeated(board, DrillPathOptimizers.forName(config.getOptimizationAlgorithm()), config,
+                                          System.nanoTime()));
+
+        assertTrue(group.calculatePathLenght() <= regular.calculatePathLenght() + 0.000001);
+        List<String> expected = new ArrayList<>();
+        drills.forEach(point -> expected.add(point.toString()));
+        List<String> actual = new ArrayList<>();
+        group.getDrills().forEach(point -> actual.add(point.toString()));
+        expected.sort(null);
+        actual.sort(null);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void drillsWhichAreNotCopiesAreNotOptimizedAsRepeated() {
+        Polygon board = new Polygon(List.of(new Point(0, 0), new Point(0, 10), new Point(10, 10),
+                                            new Point(10, 0), new Point(0, 0)));
+        board.setTranslations(List.of(new Point(0, 0), new Point(20, 0)));
+        DrillGroup group = new DrillGroup("T01", 0.5, List.of(new Point(1, 1), new Point(21, 2)));
+        OutputConfig config = new OutputConfig();
+
+        assertFalse(group.optimizeRepeated(board, DrillPathOptimizers.forName(config.getOptimizationAlgorithm()), config,
+                                           System.nanoTime() + 1_000_000_000L));
+        assertEquals(1.0, group.getY(0), 0.000001);
+    }
+
+    @Test
+    public void transformIsAppliedToExistingDrillsOnly() {
+        DrillGroup group = new DrillGroup("T1", 1.0, List.of(new Point(1, 0), new Point(3, 0)));
+
+        group.rotate90(Direction.CW);
+        group.translate(0, 5);
+        group.addDrill(0, 0);
+
+        // (x, y) -> (y, -x + 5)
+        assertEquals(3, group.size());
+        assertEquals(0.0, group.getX(0), 0.000001);
+        assertEquals(4.0, group.getY(0), 0.000001);
+        assertEquals(2.0, group.getY(1), 0.000001);
+        assertEquals(0.0, group.getY(2), 0.000001);
+        assertEquals(4.0, group.calculatePathLenght(), 0.000001);
+    }
+
+    @Test
+    public void entryCostOfTransformedGroupIsCalculatedFromTransformedDrills() {
+        DrillGroup group = new DrillGroup("T1", 1.0, List.of(new Point(1, 0), new Point(3, 0), new Point(3, 4)));
+        group.rotate90(Direction.CCW);
+        group.translate(10, 0);
+        DrillGroup copy = new DrillGroup("T1", 1.0, group.getDrills());
+        Point start = new Point(5, 5);
+
+        assertEquals(copy.entryCost(start), group.entryCost(start), 0.000001);
+        Point expected = copy.reorder(start);
+        Point last = group.reorder(start);
+        assertEquals(expected.getX(), last.getX(), 0.000001);
+        assertEquals(expected.getY(), last.getY(), 0.000001);
+    }
+
     private DrillGroup loadDrillGroup() {
-        File drillfile = new File("src/test/resources/opt.drd");
+        List<DrillGroup> drills = loadDrillGroups("src/test/resources/opt.drd");
+        return drills == null ? null : drills.get(0);
+    }
+
+    private List<DrillGroup> loadDrillGroups(String name) {
+        File drillfile = new File(name);
         FileInputStream drillStream = null;
 
         try {
             drillStream = new FileInputStream(drillfile);
-            List<DrillGroup> drills = new ExcellonParser(drillStream).parse();
-            return drills.get(0);
+            return new ExcellonParser(drillStream).parse();
         } catch (IOException e) {
             return null;
         } finally {
@@ -0,0 +1,161 @@
+package com.baremetalstudios.minicam.geometry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class LocalSearchTest {
+    @Test
+    public void improvedPathIsPermutationOfInput() {
+        int n = 500;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        int[] order = new int[n];
+        Random random = new Random(1);
+
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextDouble() * 100;
+            ys[i] = random.nextDouble() * 100;
+            order[i] = i;
+        }
+
+        LocalSearch search = new LocalSearch(xs, ys);
+        double before = search.pathLength(order);
+        assertTrue(search.improve(order, 10) > 0);
+        assertTrue(search.pathLength(order) < before / 5);
+
+        boolean[] seen = new boolean[n];
+        for (int idx : order) {
+            assertFalse(seen[idx]);
+            seen[idx] = true;
+        }
+    }
+
+    @Test
+    public void crossingIsRemoved() {
+        double[] xs = {0, 1, 0, 1};
+        double[] ys = {0, 1, 1, 0};
+        int[] order = {0, 1, 2, 3};
+
+        LocalSearch search = new LocalSearch(xs, ys);
+        search.improve(order, 1);
+
+        assertEquals(3.0, search.pathLength(order), 0.000001);
+    }
+
+    @Test
+    public void pathEndsAreNotFixed() {
+        double[] xs = {5, 0, 1, 2, 3, 4};
+        double[] ys = {0, 0, 0, 0, 0, 0};
+        int[] order = {0, 1, 2, 3, 4, 5};
+
+        LocalSearch search = new LocalSearch(xs, ys);
+        search.improve(order, 1);
+
+        assertEquals(5.0, search.pathLength(order), 0.000001);
+    }
+
+    @Test
+    public void expiredDeadlineStopsSearch() {
+        int n = 2000;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        int[] limited = new int[n];
+        Random random = new Random(1);
+
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextDouble() * 100;
+            ys[i] = random.nextDouble() * 100;
+            limited[i] = i;
+        }
+        int[] unlimited = limited.clone();
+
+        LocalSearch search = new LocalSearch(xs, ys);
+        int moves = search.improve(limited, 10, System.nanoTime() - 1);
+
+        assertTrue(moves < search.improve(unlimited, 10));
+        boolean[] seen = new boolean[n];
+        for (int idx : limited) {
+            assertFalse(seen[idx]);
+            seen[idx] = true;
+        }
+    }
+
+    @Test
+    public void zeroPassesKeepOrder() {
+        double[] xs = {0, 1, 0, 1};
+        double[] ys = {0, 1, 1, 0};
+        int[] order = {0, 1, 2, 3};
+
+        assertEquals(0, new LocalSearch(xs, ys).improve(order, 0));
+        assertArrayEquals(new int[] {0, 1, 2, 3}, order);
+    }
+
+    @Test
+    public void localChangeIsRepairedFromTouchedNodes() {
+        int n = 1000;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        int[] order = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            xs[i] = i;
+            order[i] = i;
+        }
+        order[500] = 501;
+        order[501] = 500;
+
+        LocalSearch search = new LocalSearch(xs, ys);
+        int moves = search.improveAround(order, System.nanoTime() + 10_000_000_000L, 500, 501);
+
+        assertTrue(moves > 0);
+        assertEquals(n - 1, search.pathLength(order), 0.000001);
+    }
+
+    @Test
+    public void swappedSegmentsKeepTrackedLengthAndRollBack() {
+        int n = 200;
+        Random random = new Random(7);
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextDouble() * 100;
+            ys[i] = random.nextDouble() * 100;
+            order[i] = i;
+        }
+        LocalSearch search = new LocalSearch(xs, ys);
+        search.improve(order, Integer.MAX_VALUE);
+
+        for (int trial = 0; trial < 200; trial++) {
+            int first = 1 + random.nextInt(trial % 3 == 0 ? 1 : 20);
+            int second = 1 + random.nextInt(trial % 5 == 0 ? 1 : 20);
+            int from = random.nextInt(n - first - second + 1);
+            long deadline = System.nanoTime() + 10_000_000_000L;
+
+            search.begin(order);
+            search.improveAround(deadline, search.swapSegments(from, first, second));
+            int[] changed = new int[n];
+            search.store(changed);
+
+            assertEquals(search.pathLength(changed), search.length(), 0.000001);
+            int[] sorted = changed.clone();
+            Arrays.sort(sorted);
+            for (int i = 0; i < n; i++) {
+                assertEquals(i, sorted[i]);
+            }
+
+            search.begin(order);
+            search.improveAround(deadline, search.swapSegments(from, first, second));
+            search.rollback();
+            int[] restored = new int[n];
+            search.store(restored);
+
+            assertArrayEquals(order, restored);
+            assertEquals(search.pathLength(order), search.length(), 0.000001);
+        }
+    }
+}
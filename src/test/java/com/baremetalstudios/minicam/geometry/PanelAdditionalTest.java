@@ -140,8 +140,8 @@ public class PanelAdditionalTest {
         Panel panel = new Panel(Arrays.asList(p), Arrays.asList(d));
 
         // After constructor, drill should be scaled down by /10
-        assertEquals(100.0, drillPoint.getX(), 0.000001);
-        assertEquals(100.0, drillPoint.getY(), 0.000001);
+        assertEquals(100.0, d.getX(0), 0.000001);
+        assertEquals(100.0, d.getY(0), 0.000001);
     }
 
     @Test
@@ -160,8 +160,8 @@ public class PanelAdditionalTest {
         Panel panel = new Panel(Arrays.asList(p), Arrays.asList(d));
 
         // Drill coordinates should remain unchanged
-        assertEquals(5.0, drillPoint.getX(), 0.000001);
-        assertEquals(5.0, drillPoint.getY(), 0.000001);
+        assertEquals(5.0, d.getX(0), 0.000001);
+        assertEquals(5.0, d.getY(0), 0.000001);
     }
 
     @Test
@@ -0,0 +1,103 @@
+package com.baremetalstudios.minicam.geometry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class PointIndexTest {
+    @Test
+    public void nearestMatchesLinearScan() {
+        int n = 1000;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        Random random = new Random(3);
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextDouble() * 200;
+            ys[i] = random.nextDouble() * 50;
+        }
+
+        PointIndex index = new PointIndex(xs, ys);
+
+        for (int i = 0; i < 200; i++) {
+            double x = random.nextDouble() * 260 - 30;
+            double y = random.nextDouble() * 80 - 15;
+            int idx = index.nearest(x, y);
+            assertEquals(linearScan(xs, ys, x, y, index), distance(xs, ys, idx, x, y), 0.0000001);
+            index.remove(idx);
+        }
+        assertEquals(n - 200, index.size());
+
+        index.restore();
+        assertEquals(n, index.size());
+    }
+
+    @Test
+    public void removedPointsAreNotReturned() {
+        double[] xs = {0, 1, 2};
+        double[] ys = {0, 0, 0};
+        PointIndex index = new PointIndex(xs, ys);
+
+        assertEquals(0, index.nearest(-1, 0));
+        index.remove(0);
+        assertFalse(index.contains(0));
+        assertEquals(1, index.nearest(-1, 0));
+        index.remove(1);
+        index.remove(2);
+        assertTrue(index.isEmpty());
+        assertEquals(-1, index.nearest(-1, 0));
+    }
+
+    @Test
+    public void kNearestAreOrderedByDistance() {
+        int n = 300;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        Random random = new Random(5);
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextDouble() * 100;
+            ys[i] = 7.5;
+        }
+
+        PointIndex index = new PointIndex(xs, ys);
+
+        for (int i = 0; i < n; i++) {
+            int[] result = index.neighbours(i, 5);
+            assertEquals(5, result.length);
+
+            double[] expected = new double[n - 1];
+            for (int j = 0, k = 0; j < n; j++) {
+                if (j != i) {
+                    expected[k++] = distance(xs, ys, j, xs[i], ys[i]);
+                }
+            }
+            Arrays.sort(expected);
+            for (int j = 0; j < result.length; j++) {
+                assertEquals(expected[j], distance(xs, ys, result[j], xs[i], ys[i]), 0.0000001);
+            }
+        }
+    }
+
+    @Test
+    public void emptyIndexIsHandled() {
+        PointIndex index = new PointIndex(new double[0], new double[0]);
+        assertTrue(index.isEmpty());
+        assertEquals(-1, index.nearest(1, 1));
+    }
+
+    private static double linearScan(double[] xs, double[] ys, double x, double y, PointIndex index) {
+        double best = Double.MAX_VALUE;
+        for (int i = 0; i < xs.length; i++) {
+            if (index.contains(i)) {
+                best = Math.min(best, distance(xs, ys, i, x, y));
+            }
+        }
+        return best;
+    }
+
+    private static double distance(double[] xs, double[] ys, int idx, double x, double y) {
+        return Math.sqrt((xs[idx] - x) * (xs[idx] - x) + (ys[idx] - y) * (ys[idx] - y));
+    }
+}
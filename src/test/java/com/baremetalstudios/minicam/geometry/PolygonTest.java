@@ -395,4 +395,118 @@ public class PolygonTest {
         assertEquals(polygon.getLast().getX(), result.getX(), 0.000001);
         assertEquals(polygon.getLast().getY(), result.getY(), 0.000001);
     }
+
+    @Test
+    public void translationsExtendBoundsAndRotateWithPolygon() {
+        Polygon polygon = new Polygon(Arrays.asList(new Point(0, 0), new Point(0, 1), new Point(2, 1),
+                                                    new Point(2, 0), new Point(0, 0)));
+        polygon.setTranslations(Arrays.asList(new Point(0, 0), new Point(10, 0), new Point(0, 5)));
+
+        assertTrue(polygon.isInstanced());
+        assertEquals(3, polygon.getInstanceCount());
+        assertEquals(2.0, polygon.getMaxX(), 0.000001);
+        assertEquals(12.0, polygon.getExtentMaxX(), 0.000001);
+        assertEquals(6.0, polygon.getExtentMaxY(), 0.000001);
+
+        polygon.rotate90(Direction.CW);
+
+        assertEquals(-12.0, polygon.getExtentMinY(), 0.000001);
+        assertEquals(6.0, polygon.getExtentMaxX(), 0.000001);
+    }
+
+    @Test
+    public void mergeKeepsTranslations() {
+        Polygon first = new Polygon(Arrays.asList(new Point(0, 0), new Point(0, 1)));
+        Polygon second = new Polygon(Arrays.asList(new Point(0, 1), new Point(1, 1)));
+        first.setTranslations(Arrays.asList(new Point(0, 0), new Point(3, 0)));
+        second.setTranslations(Arrays.asList(new Point(0, 0), new Point(3, 0)));
+
+        assertTrue(first.hasSameTranslations(second));
+        assertEquals(2, Polygon.merge(first, second).getInstanceCount());
+        assertFalse(first.hasSameTranslations(new Polygon(Arrays.asList(new Point(0, 0), new Point(1, 0)))));
+    }
+
+    @Test
+    public void retractFlagsFollowVertexes() {
+        Point tab = new Point(0, 1);
+        tab.setRetract(true);
+        Polygon polygon = new Polygon(Arrays.asList(new Point(0, 0), tab, new Point(0, 2), new Point(2, 2),
+                                                    new Point(0, 0)));
+
+        assertTrue(polygon.isRetract(1));
+        assertTrue(polygon.hasRetracts());
+
+        polygon.insert(new Point(-1, 0), 0);
+        assertTrue(polygon.isRetract(2));
+        assertFalse(polygon.isRetract(1));
+
+        polygon.reorder(new Point(0, 2));
+        assertEquals(0.0, polygon.getFirst().getX(), 0.000001);
+        assertEquals(2.0, polygon.getFirst().getY(), 0.000001);
+        assertTrue(polygon.isRetract(polygon.count() - 2));
+        assertFalse(polygon.getLast().isRetract());
+    }
+
+    @Test
+    public void pointsViewReturnsCopies() {
+        double[] coordinates = {0, 0, 1, 0, 1, 1};
+        Polygon polygon = new Polygon(coordinates, 3);
+
+        polygon.getPoints().get(1).translate(5, 5);
+
+        assertEquals(3, polygon.getPoints().size());
+        assertEquals(1.0, polygon.getPoints().get(1).getX(), 0.000001);
+        assertEquals(1.0, polygon.getMaxX(), 0.000001);
+        assertEquals(1, polygon.findNearest(new Point(2, -1)));
+    }
+
+    @Test
+    public void transformsAreComposedWithoutTouchingCoordinates() {
+        double[] coordinates = {0, 0, 2, 0, 2, 1, 0, 0};
+        Polygon polygon = new Polygon(coordinates, 4);
+
+        polygon.rotate90(Direction.CCW);
+        polygon.translate(10, 20);
+
+        // (x, y) -> (-y + 10, x + 20)
+        assertEquals(9.0, polygon.getX(2), 0.000001);
+        assertEquals(22.0, polygon.getY(2), 0.000001);
+        assertEquals(9.0, polygon.getMinX(), 0.000001);
+        assertEquals(20.0, polygon.getMinY(), 0.000001);
+        assertEquals(10.0, polygon.getMaxX(), 0.000001);
+        assertEquals(22.0, polygon.getMaxY(), 0.000001);
+        assertEquals(2.0, coordinates[2], 0.000001);
+
+        polygon.insert(new Point(9.5, 20), 1);
+
+        assertEquals(5, polygon.count());
+        assertEquals(9.5, polygon.getX(1), 0.000001);
+        assertEquals(10.0, polygon.getX(2), 0.000001);
+        assertEquals(22.0, polygon.getY(3), 0.000001);
+        assertEquals(2.0, coordinates[2], 0.000001);
+    }
+
+    @Test
+    public void appendedVertexesReplacePointsOfAnotherPolygon() {
+        Polygon polygon = new Polygon(List.of(new Point(0, 0), new Point(4, 0), new Point(0, 0)));
+        polygon.translate(1, 1);
+        Polygon outline = new Polygon(new double[2], 0);
+
+        outline.append(1, 1, false);
+        outline.append(3, 1, true);
+        outline.append(5, 2, false);
+
+        assertEquals(3, outline.count());
+        assertEquals(5.0, outline.getMaxX(), 0.000001);
+        assertEquals(2.0, outline.getMaxY(), 0.000001);
+
+        polygon.setPoints(outline);
+
+        assertEquals(3, polygon.count());
+        assertTrue(polygon.isRetract(1));
+        assertFalse(polygon.isRetract(2));
+        assertEquals(5.0, polygon.getX(2), 0.000001);
+        assertEquals(1.0, polygon.getMinX(), 0.000001);
+        assertEquals(2.0, polygon.getMaxY(), 0.000001);
+    }
 }
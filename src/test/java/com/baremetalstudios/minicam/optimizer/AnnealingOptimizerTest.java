@@ -0,0 +1,57 @@
+package com.baremetalstudios.minicam.optimizer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.baremetalstudios.minicam.config.NamedVar;
+import com.baremetalstudios.minicam.config.OutputConfig;
+import com.baremetalstudios.minicam.geometry.LocalSearch;
+import com.baremetalstudios.minicam.geometry.PointIndex;
+
+
+public class AnnealingOptimizerTest {
+    private double[] xs = new double[1000];
+    private double[] ys = new double[1000];
+
+    public AnnealingOptimizerTest() {
+        Random random = new Random(7);
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextDouble() * 200;
+            ys[i] = random.nextDouble() * 100;
+        }
+    }
+
+    @Test
+    public void pathIsNotLongerThanGreedyWithLocalSearch() {
+        int[] greedy = Tours.greedy(new PointIndex(xs, ys), xs, ys, 0);
+        new LocalSearch(xs, ys).improve(greedy, Integer.MAX_VALUE);
+
+        int[] order = new AnnealingOptimizer().optimize(xs, ys, new OutputConfig(), System.nanoTime());
+
+        assertTrue(Tours.length(xs, ys, order) <= Tours.length(xs, ys, greedy));
+    }
+
+    @Test
+    public void resultIsReproducibleForSameSeed() {
+        OutputConfig config = new OutputConfig();
+        config.put(new NamedVar<Integer>(OutputConfig.OPTIMIZATION_SEED, 3));
+
+        assertArrayEquals(new AnnealingOptimizer().optimize(xs, ys, config, System.nanoTime()),
+                          new AnnealingOptimizer().optimize(xs, ys, config, System.nanoTime()));
+    }
+
+    @Test
+    public void timeBudgetIsRespected() {
+        OutputConfig config = new OutputConfig();
+        config.put(new NamedVar<Integer>(OutputConfig.OPTIMIZATION_TIME, 300));
+
+        long start = System.nanoTime();
+        int[] order = new AnnealingOptimizer().optimize(xs, ys, config, start + 300_000_000L);
+
+        assertTrue(System.nanoTime() - start < 2_000_000_000L);
+        assertEquals(xs.length, order.length);
+    }
+}
@@ -0,0 +1,97 @@
+package com.baremetalstudios.minicam.optimizer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.baremetalstudios.minicam.config.NamedVar;
+import com.baremetalstudios.minicam.config.OutputConfig;
+
+
+public class CachingOptimizerTest {
+    private double[] xs = {0, 10, 5, 20, 15};
+    private double[] ys = {0, 10, 0, 10, 0};
+    private OutputConfig config = new OutputConfig();
+    private CountingOptimizer counting = new CountingOptimizer();
+    private Path directory;
+    private CachingOptimizer optimizer;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("minicam-cache");
+        optimizer = new CachingOptimizer(counting, new DrillOrderCache(directory, 1024 * 1024));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void cachedOrderSkipsOptimization() {
+        int[] first = optimizer.optimize(xs, ys, config, 0);
+        int[] second = optimizer.optimize(xs, ys, config, 0);
+
+        assertArrayEquals(first, second);
+        assertEquals(1, counting.calls);
+        assertEquals(1, optimizer.getHits());
+        assertEquals(1, optimizer.getMisses());
+    }
+
+    @Test
+    public void unrelatedSettingsDoNotChangeKey() {
+        String key = optimizer.key(xs, ys, config);
+        config.put(new NamedVar<Double>(OutputConfig.ZDRILL, -1.0));
+        config.put(new NamedVar<Double>(OutputConfig.CUT_FEED_RATE, 50.0));
+
+        assertEquals(key, optimizer.key(xs, ys, config));
+    }
+
+    @Test
+    public void optimizerSettingsChangeKey() {
+        String key = optimizer.key(xs, ys, config);
+        config.put(new NamedVar<Integer>(OutputConfig.OPTIMIZATION_LEVEL, 9));
+
+        assertNotEquals(key, optimizer.key(xs, ys, config));
+    }
+
+    @Test
+    public void keyUsesSnappedCoordinates() {
+        String key = optimizer.key(xs, ys, config);
+        double[] shifted = xs.clone();
+        shifted[1] += 0.0001;
+        double[] moved = xs.clone();
+        moved[1] += 0.01;
+
+        assertEquals(key, optimizer.key(shifted, ys, config));
+        assertNotEquals(key, optimizer.key(moved, ys, config));
+    }
+
+    private static class CountingOptimizer implements DrillPathOptimizer {
+        private int calls;
+
+        @Override
+        public String getName() {
+            return "counting";
+        }
+
+        @Override
+        public int[] optimize(double[] xs, double[] ys, OutputConfig config, long deadline) {
+            calls++;
+            int[] order = Tours.identity(xs.length);
+            order[0] = 1;
+            order[1] = 0;
+            return order;
+        }
+    }
+}
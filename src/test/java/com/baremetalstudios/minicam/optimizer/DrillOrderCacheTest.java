@@ -0,0 +1,81 @@
+package com.baremetalstudios.minicam.optimizer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+
+public class DrillOrderCacheTest {
+    // magic, length and four indexes
+    private static final long ENTRY_SIZE = 24;
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("minicam-cache");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void storedOrderIsReturned() {
+        DrillOrderCache cache = new DrillOrderCache(directory, 1024);
+
+        cache.put("abc", new int[] {2, 0, 3, 1});
+
+        assertArrayEquals(new int[] {2, 0, 3, 1}, cache.get("abc", 4));
+        assertNull(cache.get("abc", 5));
+        assertNull(cache.get("def", 4));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        DrillOrderCache cache = new DrillOrderCache(directory, 2 * ENTRY_SIZE);
+
+        cache.put("a", new int[] {0, 1, 2, 3});
+        cache.put("b", new int[] {1, 0, 2, 3});
+        assertNotNull(cache.get("a", 4));
+        cache.put("c", new int[] {2, 1, 0, 3});
+
+        assertNotNull(cache.get("a", 4));
+        assertNull(cache.get("b", 4));
+        assertNotNull(cache.get("c", 4));
+    }
+
+    @Test
+    public void corruptedEntryIsIgnored() throws IOException {
+        DrillOrderCache cache = new DrillOrderCache(directory, 1024);
+
+        cache.put("abc", new int[] {0, 1, 2, 3});
+        Files.write(directory.resolve("abc.order"), new byte[] {1, 2, 3});
+
+        assertNull(cache.get("abc", 4));
+    }
+
+    @Test
+    public void failedWriteLeavesNoTemporaryFile() throws IOException {
+        DrillOrderCache cache = new DrillOrderCache(directory, 1024);
+        // entry can't be replaced by non-empty directory
+        Files.createDirectories(directory.resolve("abc.order").resolve("blocker"));
+
+        cache.put("abc", new int[] {0, 1, 2, 3});
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.baremetalstudios.minicam.optimizer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.baremetalstudios.minicam.config.OutputConfig;
+
+
+public class DrillPathOptimizersTest {
+    private OutputConfig config = new OutputConfig();
+
+    @Test
+    public void allOptimizersAreDiscovered() {
+        List<String> names = DrillPathOptimizers.all()
+                                                .stream()
+                                                .map(DrillPathOptimizer::getName)
+                                                .collect(Collectors.toList());
+
+        assertEquals(List.of("2opt", "anneal", "curve", "greedy", "portfolio"), names);
+    }
+
+    @Test
+    public void optimizerIsFoundByName() {
+        assertEquals("anneal", DrillPathOptimizers.forName(" Anneal ").getName());
+    }
+
+    @Test
+    public void unknownNameFallsBackToDefault() {
+        assertEquals(DrillPathOptimizers.DEFAULT, DrillPathOptimizers.forName("magic").getName());
+    }
+
+    @Test
+    public void everyOptimizerReturnsPermutationOfDrills() {
+        for (int size : new int[] {0, 1, 2, 3, 4, 500}) {
+            double[] xs = new double[size];
+            double[] ys = new double[size];
+            fill(xs, ys);
+
+            for (DrillPathOptimizer optimizer : DrillPathOptimizers.all()) {
+                int[] order = optimizer.optimize(xs, ys, config, System.nanoTime());
+
+                assertEquals(size, order.length, optimizer.getName());
+                boolean[] seen = new boolean[size];
+                for (int idx : order) {
+                    assertFalse(seen[idx], optimizer.getName());
+                    seen[idx] = true;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void portfolioIsNotWorseThanAnyOtherOptimizer() {
+        double[] xs = new double[300];
+        double[] ys = new double[300];
+        fill(xs, ys);
+
+        double portfolio = Tours.length(xs, ys, new PortfolioOptimizer().optimize(xs, ys, config, System.nanoTime()));
+
+        for (DrillPathOptimizer optimizer : DrillPathOptimizers.all()) {
+            double length = Tours.length(xs, ys, optimizer.optimize(xs, ys, config, System.nanoTime()));
+            assertTrue(portfolio <= length, optimizer.getName());
+        }
+    }
+
+    private static void fill(double[] xs, double[] ys) {
+        Random random = new Random(1);
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextDouble() * 100;
+            ys[i] = random.nextDouble() * 100;
+        }
+    }
+}
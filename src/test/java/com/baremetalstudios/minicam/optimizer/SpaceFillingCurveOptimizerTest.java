@@ -0,0 +1,43 @@
+package com.baremetalstudios.minicam.optimizer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.junit.jupiter.api.Test;
+
+import com.baremetalstudios.minicam.config.OutputConfig;
+
+
+public class SpaceFillingCurveOptimizerTest {
+    @Test
+    public void hilbertCurveVisitsNeighbourCells() {
+        Integer[] cells = new Integer[64];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = i;
+        }
+        Arrays.sort(cells, Comparator.comparingLong(cell -> SpaceFillingCurveOptimizer.hilbertIndex(cell % 8, cell / 8)));
+
+        for (int i = 1; i < cells.length; i++) {
+            int dx = Math.abs(cells[i] % 8 - cells[i - 1] % 8);
+            int dy = Math.abs(cells[i] / 8 - cells[i - 1] / 8);
+            assertEquals(1, dx + dy);
+        }
+    }
+
+    @Test
+    public void gridIsVisitedWithoutLongJumps() {
+        double[] xs = new double[256];
+        double[] ys = new double[256];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = (i * 7) % 16;
+            ys[i] = (i * 7) / 16 % 16;
+        }
+
+        int[] order = new SpaceFillingCurveOptimizer().optimize(xs, ys, new OutputConfig(), System.nanoTime());
+
+        assertEquals(256, order.length);
+        assertTrue(Tours.length(xs, ys, order) < 2 * 255);
+    }
+}
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 
@@ -86,4 +88,68 @@ public class ExcellonParserTest {
         assertEquals(14.7061 * FormatParser.IMPERIAL_SCALE, result.get(0).getDrills().get(0).getX(), 0.0000001);
         assertEquals(20.6511 * FormatParser.IMPERIAL_SCALE, result.get(0).getDrills().get(0).getY(), 0.0000001);
     }
+    @Test
+    public void mappedFileIsParsedSameAsStream() throws Exception {
+        File infile = new File("src/test/resources/merge2.drd");
+        List<DrillGroup> expected = new ExcellonParser(new FileInputStream(infile)).parse();
+        List<DrillGroup> result = new ExcellonParser(MappedInput.map(infile)).parse();
+
+        assertEquals(expected.size(), result.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), result.get(i).getId());
+            assertEquals(expected.get(i).getDiameter(), result.get(i).getDiameter(), 0.0000001);
+            assertEquals(expected.get(i).size(), result.get(i).size());
+            for (int j = 0; j < expected.get(i).size(); j++) {
+                assertEquals(expected.get(i).getX(j), result.get(i).getX(j), 0.0000001);
+                assertEquals(expected.get(i).getY(j), result.get(i).getY(j), 0.0000001);
+            }
+        }
+    }
+    @Test
+    public void bufferWithMixedLineEndingsIsParsedSuccessfully() throws Exception {
+        String text = "M48\r\nT01C0.0118\r\n%\rT01\nX011898Y006937\r\nX012000Y006937";
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+
+        List<DrillGroup> result = new ExcellonParser(buffer).parse();
+
+        assertEquals(1, result.size());
+        assertEquals(2, result.get(0).getDrills().size());
+        assertEquals(1.2 * FormatParser.IMPERIAL_SCALE, result.get(0).getDrills().get(1).getX(), 0.0000001);
+    }
+    @Test
+    public void signedAndModalCoordinatesAreParsedSuccessfully() throws Exception {
+        String text = "M48\nINCH,TZ\nT01C0.0118\n%\nT01\nX-011898Y+6937\nY-5\nX12000\n";
+
+        DrillGroup group = new ExcellonParser(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII))).parse().get(0);
+
+        assertEquals(3, group.size());
+        assertEquals(-1.1898 * FormatParser.IMPERIAL_SCALE, group.getX(0), 0.0000001);
+        assertEquals(0.6937 * FormatParser.IMPERIAL_SCALE, group.getY(0), 0.0000001);
+        assertEquals(-1.1898 * FormatParser.IMPERIAL_SCALE, group.getX(1), 0.0000001);
+        assertEquals(-0.0005 * FormatParser.IMPERIAL_SCALE, group.getY(1), 0.0000001);
+        assertEquals(1.2 * FormatParser.IMPERIAL_SCALE, group.getX(2), 0.0000001);
+        assertEquals(-0.0005 * FormatParser.IMPERIAL_SCALE, group.getY(2), 0.0000001);
+    }
+    @Test
+    public void metricHeaderWithLeadingZerosIsParsedSuccessfully() throws Exception {
+        String text = "M48\r\nMETRIC,LZ,000.000\r\nT01C0.800\r\n%\r\nT01\r\nX0125Y00305\r\nX-01Y1.5\r\n";
+
+        DrillGroup group = new ExcellonParser(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII))).parse().get(0);
+
+        assertEquals(0.8, group.getDiameter(), 0.0000001);
+        assertEquals(2, group.size());
+        assertEquals(12.5, group.getX(0), 0.0000001);
+        assertEquals(3.05, group.getY(0), 0.0000001);
+        assertEquals(-10.0, group.getX(1), 0.0000001);
+        assertEquals(1.5, group.getY(1), 0.0000001);
+    }
+    @Test
+    public void metricHeaderWithTrailingZerosIsParsedSuccessfully() throws Exception {
+        String text = "M48\nMETRIC,TZ,0000.00\nT01C0.800\n%\nT01\nX12500Y305\n";
+
+        DrillGroup group = new ExcellonParser(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII))).parse().get(0);
+
+        assertEquals(125.0, group.getX(0), 0.0000001);
+        assertEquals(3.05, group.getY(0), 0.0000001);
+    }
 }
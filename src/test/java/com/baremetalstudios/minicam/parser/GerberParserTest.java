@@ -0,0 +1,183 @@
+package com.baremetalstudios.minicam.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+import com.baremetalstudios.minicam.parser.ParserTest.TestOutlinePlotter;
+import com.baremetalstudios.minicam.simulator.OutlinePlotter;
+import com.baremetalstudios.minicam.simulator.RecordingPlotter;
+
+public class GerberParserTest {
+    private static final String SAMPLE = "G04 sample board*\r\n"
+        + "%FSLAX24Y24*%\n"
+        + "%MOIN*%\n"
+        + "%OFA0.5B-.25*%\n"
+        + "%SFA1.0B1*%\n"
+        + "%IPPOS*%\n"
+        + "%LPD*%\n"
+        + "%ASAXBY*%\n"
+        + "%INsample*%\n"
+        + "%LNtop*%\n"
+        + "%SRX2Y3I1.5J2.*%\n"
+        + "%AMOC8*5,1,8,0,0,1.08239X$1,22.5*%\n"
+        + "%AMTHERM*7,0,0,$1,$2-0.1,$3x2,45*1,1,.5,0,0*%\n"
+        + "%ADD10C,0.0100*%\n"
+        + "%ADD11R,0.06X0.07*%\n"
+        + "%ADD12OC8,0.08*%\n"
+        + "%ADD13THERM,0.1X0.08X0.01*%\n"
+        + "G54D10*\n"
+        + "G01X1000Y-200D02*\n"
+        + "X+1500D01*\n"
+        + "G75*G03X100Y100I50J-50D01*\n"
+        + "D11*\n"
+        + "X10Y10D03*\n"
+        + "D03*\n"
+        + "G36*G01X0Y0D02*X10D01*Y10D01*G37*\n"
+        + "N12M01*\n"
+        + "M02*\n";
+
+    @Test
+    public void producesSameCallbacksAsGeneratedParserForBoardOutline() throws IOException {
+        assertNull(GerberParserCheck.compare(Files.readAllBytes(Paths.get("src/test/resources/merge2.bor"))));
+    }
+
+    @Test
+    public void producesSameCallbacksAsGeneratedParserForCopperLayer() throws IOException {
+        assertNull(GerberParserCheck.compare(Files.readAllBytes(Paths.get("src/test/resources/merge2.cmp"))));
+    }
+
+    @Test
+    public void producesSameCallbacksAsGeneratedParserForAllSupportedStatements() {
+        assertNull(GerberParserCheck.compare(bytes(SAMPLE)));
+    }
+
+    @Test
+    public void parsesCopperLayer() throws Exception {
+        GerberParser parser = new GerberParser(Files.readAllBytes(Paths.get("src/test/resources/merge2.cmp")));
+        TestOutlinePlotter simulator = new TestOutlinePlotter();
+        parser.setSimulator(simulator);
+        parser.parse();
+        assertEquals(55731, simulator.getCounter());
+    }
+
+    @Test
+    public void reportsLineNumbers() throws Exception {
+        List<String> calls = record(bytes(SAMPLE));
+
+        assertEquals("comment(1,  sample board)", calls.get(0));
+        assertTrue(calls.contains("askContinue(26, 12)"));
+        assertEquals("done()", calls.get(calls.size() - 1));
+    }
+
+    @Test
+    public void parsesCoordinatesAndApertures() throws Exception {
+        List<String> calls = record(bytes("%FSLAX23Y23*%\nD12*\nX-100Y+200D02*\nX5I1J2D01*\nD0203*\nM02*\n"));
+
+        assertEquals("resetMode(INCREMENTAL)", calls.get(0));
+        assertEquals("setFormatX(2, 3)", calls.get(1));
+        assertEquals("setFormatY(2, 3)", calls.get(2));
+        assertEquals("setAperture(12)", calls.get(3));
+        assertEquals("setExposure(CLOSED)", calls.get(4));
+        assertEquals("setPosition(-100, 0200)", calls.get(5));
+        assertEquals("setExposure(OPEN)", calls.get(6));
+        assertEquals("setCenter(1, 2)", calls.get(7));
+        assertEquals("setPosition(5, null)", calls.get(8));
+        assertEquals("setAperture(203)", calls.get(9));
+    }
+
+    @Test
+    public void parsesByteBufferFromItsPosition() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes("garbage D10*M02*"));
+        buffer.position(8);
+
+        GerberParser parser = new GerberParser(buffer);
+        RecordingPlotter plotter = new RecordingPlotter();
+        parser.setSimulator(plotter);
+        parser.parse();
+
+        assertEquals("setAperture(10)", plotter.getCalls().get(0));
+    }
+
+    @Test
+    public void macroDivisionIsParsedAsDivide() throws Exception {
+        String text = "%AMDIV*1,1,$1/2,0,0*%\nM02*\n";
+        List<String> calls = record(bytes(text));
+
+        assertTrue(calls.get(0).contains("var 1 DIVIDE constant 2.0"), calls.get(0));
+        assertNull(GerberParserCheck.compare(bytes(text)));
+    }
+
+    @Test
+    public void rejectsInvalidInput() {
+        assertThrows(ParseException.class, () -> record(bytes("X10Y*")));
+        assertThrows(ParseException.class, () -> record(bytes("%ADD 10C,1*%")));
+        assertThrows(ParseException.class, () -> record(bytes("G01X1?")));
+    }
+
+    @Test
+    public void checkAcceptsInputRejectedByBothParsers() {
+        assertNull(GerberParserCheck.compare(bytes("G01X1Y*")));
+    }
+
+    @Test
+    public void trailingZeroCoordinatesAreScaledSameWayByBothParsers() throws Exception {
+        String text = "%FSTAX24Y24*%\n%MOMM*%\nG01X010000Y-02000D02*\nX+30000D01*\nM02*\n";
+
+        for (List<Polygon> polygons : List.of(outline(text, true), outline(text, false))) {
+            List<Point> points = polygons.get(0).getPoints();
+            assertEquals(1.0, points.get(0).getX(), 0.000001);
+            assertEquals(-0.2, points.get(0).getY(), 0.000001);
+            assertEquals(3.0, points.get(1).getX(), 0.000001);
+        }
+    }
+
+    @Test
+    public void shortCoordinatesAreRejectedByBothParsers() {
+        String text = "%FSTAX24Y24*%\n%MOMM*%\nG01X01Y020000D02*\nX03D01*\nM02*\n";
+
+        assertThrows(ParseException.class, () -> outline(text, true));
+        assertThrows(ParseException.class, () -> outline(text, false));
+        // check mode keeps length of recorded coordinates
+        assertTrue(record(bytes(text)).contains("setPosition(01, 020000)"));
+    }
+
+    private static List<Polygon> outline(String text, boolean fast) throws Exception {
+        OutlinePlotter plotter = new OutlinePlotter();
+        if (fast) {
+            GerberParser parser = new GerberParser(bytes(text));
+            parser.setSimulator(plotter);
+            parser.parse();
+        } else {
+            Parser parser = new Parser(new ByteArrayInputStream(bytes(text)));
+            parser.setSimulator(plotter);
+            parser.Input();
+        }
+        return plotter.getPolygons();
+    }
+
+    private static List<String> record(byte[] data) throws ParseException {
+        GerberParser parser = new GerberParser(data);
+        RecordingPlotter plotter = new RecordingPlotter();
+        parser.setSimulator(plotter);
+        parser.parse();
+        return plotter.getCalls();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -72,8 +72,14 @@ public class ParserTest {
         }
 
         @Override
-        public void setPosition(String string, String string2) {
-            super.setPosition(string, string2);
+        public void setCenter(long i, int lengthI, long j, int lengthJ, int axes) {
+            super.setCenter(i, lengthI, j, lengthJ, axes);
+            counter += 1;
+        }
+
+        @Override
+        public void setPosition(long x, int lengthX, long y, int lengthY, int axes) {
+            super.setPosition(x, lengthX, y, lengthY, axes);
             counter += 1;
         }
 
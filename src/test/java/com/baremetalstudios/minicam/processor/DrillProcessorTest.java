@@ -2,15 +2,18 @@ package com.baremetalstudios.minicam.processor;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.FileInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import com.baremetalstudios.minicam.config.NamedVar;
 import com.baremetalstudios.minicam.config.OutputConfig;
 import com.baremetalstudios.minicam.geometry.DrillGroup;
 import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.parser.ExcellonParser;
 
 
 public class DrillProcessorTest {
@@ -45,4 +48,40 @@ public class DrillProcessorTest {
         assertEquals(0.60, result.get(1).getDiameter(), 0.0000001);
         assertEquals(0.70, result.get(2).getDiameter(), 0.0000001);
     }
+
+    @Test
+    public void parallelOptimizationMatchesSequential() throws Exception {
+        OutputConfig sequentialConfig = new OutputConfig();
+        sequentialConfig.put(new NamedVar<Integer>(OutputConfig.OPTIMIZATION_THREADS, 1));
+        OutputConfig parallelConfig = new OutputConfig();
+        parallelConfig.put(new NamedVar<Integer>(OutputConfig.OPTIMIZATION_THREADS, 4));
+
+        List<DrillGroup> sequential = new DrillProcessor(sequentialConfig).optimize(loadDrills());
+        List<DrillGroup> parallel = new DrillProcessor(parallelConfig).optimize(loadDrills());
+
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).getId(), parallel.get(i).getId());
+            assertEquals(sequential.get(i).calculatePathLenght(), parallel.get(i).calculatePathLenght(), 0.0);
+        }
+    }
+
+    @Test
+    public void timeBudgetIsSharedBetweenGroups() throws Exception {
+        config.put(new NamedVar<Integer>(OutputConfig.OPTIMIZATION_TIME, 500));
+        config.put(new NamedVar<Integer>(OutputConfig.OPTIMIZATION_THREADS, 1));
+        List<DrillGroup> drills = loadDrills();
+
+        long start = System.nanoTime();
+        processor.optimize(drills);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsed < 2500, "budget exceeded: " + elapsed + " ms");
+    }
+
+    private static List<DrillGroup> loadDrills() throws Exception {
+        try (FileInputStream stream = new FileInputStream("src/test/resources/merge2.drd")) {
+            return new ExcellonParser(stream).parse();
+        }
+    }
 }
@@ -10,7 +10,9 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import com.baremetalstudios.minicam.config.NamedVar;
 import com.baremetalstudios.minicam.config.OutputConfig;
+import com.baremetalstudios.minicam.geometry.Circle;
 import com.baremetalstudios.minicam.geometry.DrillGroup;
 import com.baremetalstudios.minicam.geometry.Point;
 import com.baremetalstudios.minicam.geometry.Polygon;
@@ -66,8 +68,79 @@ public class OutputGeneratorTest {
         assertEquals(expected, result);
     }
 
+    @Test
+    public void instancedPolygonIsGeneratedForEachTranslation() throws Exception {
+        Polygon polygon = new Polygon(Arrays.asList(new Point(1, 1), new Point(1, 2), new Point(2, 2),
+                                                    new Point(2, 1), new Point(1, 1)));
+        polygon.setTranslations(Arrays.asList(new Point(0, 0), new Point(10, 0)));
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        PrintStream pw = new PrintStream(os);
+        OutputConfig config = new OutputConfig();
+        config.setSeparator("\n");
+        new OutputGenerator(pw, config).generate(Arrays.asList(polygon), null);
+        pw.close();
+        String result = os.toString("UTF-8");
+
+        assertTrue(result.contains("(MSG, Change tool bit to mill size 1.60 [2])"));
+        assertTrue(result.contains("( Polygon  2, 5 points, 1.000mm x 1.000mm )"));
+        assertTrue(result.contains("G00 X11.00000 Y1.00000 Z6.00000 ( rapid move to begin )"));
+        assertTrue(result.contains("X12.00000 Y2.00000\n"));
+    }
+
+    @Test
+    public void circleIsGeneratedAsSingleArc() throws Exception {
+        OutputConfig config = new OutputConfig();
+
+        String result = generate(new Circle(new Point(5, 5), 2), config);
+
+        assertTrue(result.contains("( Circle  1, 2.000mm )\n"
+                                   + "G00 X6.00000 Y5.00000 Z6.00000 ( rapid move to begin )\n"
+                                   + "G01 Z-2.20000 F150.00000 ( plunge )\n"
+                                   + "G02 X6.00000 Y5.00000 I-1.00000 J0.00000\n"
+                                   + "G00 Z6.00000 ( retract )\n"));
+        assertFalse(result.contains("( Polygon"));
+    }
+
+    @Test
+    public void circleDepthIsReachedByHelicalPasses() throws Exception {
+        OutputConfig config = new OutputConfig();
+        config.put(new NamedVar<Integer>(OutputConfig.MILL_DRILLS_PASSES, 2));
+        config.put(new NamedVar<Double>(OutputConfig.SCALE_Y, -1.0));
+
+        String result = generate(new Circle(new Point(5, 5), 2), config);
+
+        // mirrored output, so arc goes counterclockwise
+        assertTrue(result.contains("G00 X6.00000 Y-5.00000 Z6.00000 ( rapid move to begin )\n"
+                                   + "G01 Z-1.10000 F150.00000 ( plunge )\n"
+                                   + "G03 X6.00000 Y-5.00000 I-1.00000 J-0.00000 Z-2.20000\n"
+                                   + "G03 X6.00000 Y-5.00000 I-1.00000 J-0.00000\n"
+                                   + "G00 Z6.00000 ( retract )\n"));
+        assertFalse(result.contains("Z0.00000"));
+    }
+
+    @Test
+    public void circleIsGeneratedAsPolygonIfArcsAreDisabled() throws Exception {
+        OutputConfig config = new OutputConfig();
+        config.put(new NamedVar<Boolean>(OutputConfig.MILL_DRILLS_AS_ARCS, false));
+
+        String result = generate(new Circle(new Point(5, 5), 2), config);
+
+        assertTrue(result.contains("( Polygon  1, "));
+        assertFalse(result.contains("G02"));
+    }
+
     @Test
     public void testRound() throws Exception {
         assertEquals(0.24, OutputGenerator.round(0.241, 0.01), 0.00000001);
     }
+
+    private static String generate(Polygon polygon, OutputConfig config) throws Exception {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        PrintStream pw = new PrintStream(os);
+        config.setSeparator("\n");
+        new OutputGenerator(pw, config).generate(Arrays.asList(polygon), null);
+        pw.close();
+        return os.toString("UTF-8");
+    }
 }
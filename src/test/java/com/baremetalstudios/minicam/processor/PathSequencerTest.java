@@ -0,0 +1,121 @@
+package com.baremetalstudios.minicam.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.baremetalstudios.minicam.config.NamedVar;
+import com.baremetalstudios.minicam.config.OutputConfig;
+import com.baremetalstudios.minicam.geometry.Circle;
+import com.baremetalstudios.minicam.geometry.DrillGroup;
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+
+public class PathSequencerTest {
+    private OutputConfig config = new OutputConfig();
+
+    @Test
+    public void drillGroupStartsWherePreviousGroupEnds() {
+        DrillGroup group1 = new DrillGroup("T01", 0.5, Arrays.asList(new Point(0, 0), new Point(10, 0), new Point(20, 0)));
+        DrillGroup group2 = new DrillGroup("T02", 0.8, Arrays.asList(new Point(0, 1), new Point(10, 1), new Point(20, 1)));
+        List<DrillGroup> drills = new ArrayList<>(Arrays.asList(group1, group2));
+
+        Point end = new PathSequencer(config).sequenceDrills(drills, new Point(0, 0));
+
+        assertPoint(0, 0, group1.getDrills().get(0));
+        assertPoint(20, 1, group2.getDrills().get(0));
+        assertPoint(0, 1, end);
+        assertEquals(20.0, group2.calculatePathLenght(), 0.000001);
+    }
+
+    @Test
+    public void polygonsAreChainedFromStartPoint() {
+        Polygon square1 = square(0, 0);
+        Polygon square2 = square(20, 0);
+        List<Polygon> polygons = new ArrayList<>(Arrays.asList(square1, square2));
+
+        Point end = new PathSequencer(config).sequencePolygons(polygons, new Point(11, 0));
+
+        assertPoint(10, 0, square1.getFirst());
+        assertPoint(20, 0, square2.getFirst());
+        assertPoint(20, 0, end);
+        assertTrue(square1.isClosed());
+        assertTrue(square2.isClosed());
+    }
+
+    @Test
+    public void polygonsWithTabsKeepStartPoint() {
+        Polygon square = square(0, 0);
+        square.setRetract(1, true);
+        List<Polygon> polygons = new ArrayList<>(Arrays.asList(square));
+
+        new PathSequencer(config).sequencePolygons(polygons, new Point(10, 10));
+
+        assertPoint(0, 0, square.getFirst());
+    }
+
+    @Test
+    public void innerPolygonsAreCutFirstWhenReorderIsEnabled() {
+        config.put(new NamedVar<Boolean>(OutputConfig.OPTIMIZATION_SEQUENCE_REORDER, true));
+        Polygon outer = square(0, 0);
+        Polygon far = new Circle(new Point(8, 8), 1);
+        Polygon near = new Circle(new Point(2, 2), 1);
+        List<Polygon> polygons = new ArrayList<>(Arrays.asList(outer, far, near));
+
+        new PathSequencer(config).sequencePolygons(polygons, new Point(0, 0));
+
+        assertEquals(Arrays.asList(near, far, outer), polygons);
+    }
+
+    @Test
+    public void drillGroupsAreReorderedWhenReorderIsEnabled() {
+        config.put(new NamedVar<Boolean>(OutputConfig.OPTIMIZATION_SEQUENCE_REORDER, true));
+        DrillGroup far = new DrillGroup("T01", 0.5, Arrays.asList(new Point(50, 50), new Point(60, 50)));
+        DrillGroup near = new DrillGroup("T02", 0.8, Arrays.asList(new Point(1, 0), new Point(2, 0)));
+        List<DrillGroup> drills = new ArrayList<>(Arrays.asList(far, near));
+
+        new PathSequencer(config).sequenceDrills(drills, new Point(0, 0));
+
+        assertEquals(Arrays.asList(near, far), drills);
+    }
+
+    @Test
+    public void sequencingNeverIncreasesLinkLength() {
+        DrillGroup group1 = new DrillGroup("T01", 0.5, Arrays.asList(new Point(5, 5), new Point(30, 5), new Point(30, 30)));
+        DrillGroup group2 = new DrillGroup("T02", 0.8, Arrays.asList(new Point(0, 0), new Point(15, 15), new Point(31, 31)));
+        List<Polygon> polygons = new ArrayList<>(Arrays.asList(square(0, 0), square(20, 20)));
+        List<DrillGroup> drills = new ArrayList<>(Arrays.asList(group1, group2));
+        Point start = new Point(15, 15);
+
+        double before = PathSequencer.linkLength(polygons, drills, start);
+        new PathSequencer(config).sequence(polygons, drills, start);
+
+        assertTrue(PathSequencer.linkLength(polygons, drills, start) <= before);
+    }
+
+    @Test
+    public void nothingIsChangedWhenSequencingIsDisabled() {
+        config.put(new NamedVar<Boolean>(OutputConfig.OPTIMIZATION_SEQUENCE, false));
+        DrillGroup group = new DrillGroup("T01", 0.5, Arrays.asList(new Point(0, 0), new Point(10, 0)));
+        List<DrillGroup> drills = new ArrayList<>(Arrays.asList(group));
+
+        new PathSequencer(config).sequence(new ArrayList<>(), drills, new Point(10, 0));
+
+        assertPoint(0, 0, group.getDrills().get(0));
+    }
+
+    private static Polygon square(double x, double y) {
+        return new Polygon(new ArrayList<>(Arrays.asList(new Point(x, y), new Point(x, y + 10), new Point(x + 10, y + 10),
+                                                         new Point(x + 10, y), new Point(x, y))));
+    }
+
+    private static void assertPoint(double x, double y, Point point) {
+        assertEquals(x, point.getX(), 0.000001);
+        assertEquals(y, point.getY(), 0.000001);
+    }
+}
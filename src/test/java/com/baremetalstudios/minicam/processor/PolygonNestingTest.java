@@ -0,0 +1,102 @@
+package com.baremetalstudios.minicam.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+public class PolygonNestingTest {
+
+    @Test
+    public void nestedPolygonsGetDepth() {
+        Polygon board = rectangle(0, 0, 100, 100);
+        Polygon cutout = rectangle(10, 10, 50, 50);
+        Polygon island = rectangle(20, 20, 10, 10);
+        Polygon slot = rectangle(70, 70, 5, 20);
+        List<Polygon> polygons = List.of(island, slot, cutout, board);
+
+        PolygonNesting.classify(polygons);
+
+        assertEquals(0, board.getDepth());
+        assertEquals(1, cutout.getDepth());
+        assertEquals(2, island.getDepth());
+        assertEquals(1, slot.getDepth());
+        assertFalse(board.isInner());
+        assertTrue(cutout.isInner());
+        assertTrue(island.isInner());
+        assertTrue(slot.isInner());
+    }
+
+    @Test
+    public void neighbourInsideBoundingBoxOfConcaveBoardIsOuter() {
+        // L-shaped board, second board sits in the empty corner of its bounding box
+        Polygon board = polygon(0, 0, 0, 100, 40, 100, 40, 40, 100, 40, 100, 0, 0, 0);
+        Polygon neighbour = rectangle(50, 50, 40, 40);
+
+        PolygonNesting.classify(List.of(board, neighbour));
+
+        assertFalse(board.isInner());
+        assertFalse(neighbour.isInner());
+        assertEquals(0, neighbour.getDepth());
+    }
+
+    @Test
+    public void polygonTouchingBoundaryIsCheckedByInnerVertex() {
+        Polygon board = rectangle(0, 0, 100, 100);
+        Polygon notch = polygon(0, 40, 10, 40, 10, 60, 0, 60, 0, 40);
+
+        PolygonNesting.classify(List.of(board, notch));
+
+        assertTrue(notch.isInner());
+        assertEquals(1, notch.getDepth());
+    }
+
+    @Test
+    public void manyCutoutsAreClassified() {
+        List<Polygon> polygons = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            polygons.add(rectangle(i * 110, 0, 100, 100));
+            for (int j = 0; j < 200; j++) {
+                polygons.add(rectangle(i * 110 + 5 + (j % 20) * 4.5, 5 + (j / 20) * 9, 2, 6));
+            }
+        }
+
+        PolygonNesting.classify(polygons);
+
+        assertEquals(10, polygons.stream().filter(polygon -> !polygon.isInner()).count());
+        assertTrue(polygons.stream().allMatch(polygon -> polygon.getDepth() <= 1));
+    }
+
+    @Test
+    public void cutoutsOfStackedBoardsAreClassified() {
+        List<Polygon> polygons = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            polygons.add(rectangle(0, i * 60, 100, 50));
+            polygons.add(rectangle(10, i * 60 + 10, 30, 30));
+            polygons.add(rectangle(15, i * 60 + 15, 5, 5));
+        }
+
+        PolygonNesting.classify(polygons);
+
+        for (int i = 0; i < polygons.size(); i++) {
+            assertEquals(i % 3, polygons.get(i).getDepth());
+        }
+    }
+
+    private static Polygon rectangle(double x, double y, double width, double height) {
+        return polygon(x, y, x, y + height, x + width, y + height, x + width, y, x, y);
+    }
+
+    private static Polygon polygon(double... coordinates) {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            points.add(new Point(coordinates[i], coordinates[i + 1]));
+        }
+        return new Polygon(points);
+    }
+}
@@ -0,0 +1,148 @@
+package com.baremetalstudios.minicam.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+public class PolygonOffsetTest {
+    private final PolygonOffset miter = new PolygonOffset(PolygonOffset.Join.MITER);
+
+    @Test
+    public void notchNarrowerThanCutterIsBridged() {
+        // clockwise board with 0.5mm wide notch in the top edge, offset outwards by 1mm
+        Polygon board = polygon(0, 0, 0, 10, 9.75, 10, 9.75, 5, 10.25, 5, 10.25, 10, 20, 10, 20, 0, 0, 0);
+
+        List<Polygon> result = miter.offset(board, -1).toPolygons(board, 0);
+
+        assertEquals(1, result.size());
+        Polygon outline = result.get(0);
+        assertEquals(-1, outline.getMinX(), 0.000001);
+        assertEquals(-1, outline.getMinY(), 0.000001);
+        assertEquals(21, outline.getMaxX(), 0.000001);
+        assertEquals(11, outline.getMaxY(), 0.000001);
+        assertEquals(5, outline.count());
+    }
+
+    @Test
+    public void narrowNeckSplitsInsetIntoTwoLoops() {
+        Polygon dumbbell = polygon(0, 0, 0, 10, 10, 10, 10, 5.25, 12, 5.25, 12, 10, 22, 10, 22, 0, 12, 0,
+                                   12, 4.75, 10, 4.75, 10, 0, 0, 0);
+
+        List<Polygon> result = miter.offset(dumbbell, 1).toPolygons(dumbbell, 0);
+
+        assertEquals(2, result.size());
+        for (Polygon loop : result) {
+            assertTrue(loop.isClosed());
+            assertEquals(8, loop.getSizeX(), 0.000001);
+            assertEquals(8, loop.getSizeY(), 0.000001);
+        }
+        assertEquals(1, result.get(0).getMinX(), 0.000001);
+        assertEquals(13, result.get(1).getMinX(), 0.000001);
+    }
+
+    @Test
+    public void insetLargerThanPolygonGivesNothing() {
+        Polygon square = polygon(0, 0, 0, 1, 1, 1, 1, 0, 0, 0);
+
+        assertNull(miter.offset(square, 0.8));
+        assertNull(PolygonProcessor.insetPolygon(square, 0.8));
+    }
+
+    @Test
+    public void collinearVertexesAreSkipped() {
+        Polygon square = polygon(0, 0, 0, 5, 0, 10, 10, 10, 10, 0, 0, 0);
+
+        Polygon result = PolygonProcessor.insetPolygon(square, 1);
+
+        assertNotNull(result);
+        assertEquals(5, result.count());
+        assertEquals(1, result.getFirst().getX(), 0.000001);
+        assertEquals(1, result.getFirst().getY(), 0.000001);
+    }
+
+    @Test
+    public void roundJoinKeepsOffsetDistanceAtCorners() {
+        Polygon square = polygon(0, 0, 0, 10, 10, 10, 10, 0, 0, 0);
+
+        Polygon result = new PolygonOffset(PolygonOffset.Join.ROUND).offset(square, -1).toPolygons(square, 0).get(0);
+
+        assertTrue(result.count() > 20);
+        assertEquals(-1, result.getMinX(), 0.000001);
+        assertEquals(11, result.getMaxY(), 0.000001);
+        for (Point point : result.getPoints()) {
+            double dx = Math.max(Math.max(-point.getX(), point.getX() - 10), 0);
+            double dy = Math.max(Math.max(-point.getY(), point.getY() - 10), 0);
+            assertEquals(1, Math.hypot(dx, dy), 0.000001);
+        }
+    }
+
+    @Test
+    public void sharpCornerIsSquared() {
+        // thin triangle, miter at the sharp corner would go far away from the polygon
+        Polygon triangle = polygon(0, 0, 0, 1, 20, 0, 0, 0);
+
+        Polygon result = miter.offset(triangle, -1).toPolygons(triangle, 0).get(0);
+
+        // miter would end about 40mm away, squared corner stays within 2 offsets from the vertex
+        assertTrue(result.getMaxX() < 22.1);
+        assertEquals(5, result.count());
+    }
+
+    @Test
+    public void loopsStartAtRequestedVertex() {
+        Polygon square = polygon(0, 0, 0, 10, 10, 10, 10, 0, 0, 0);
+
+        Polygon result = miter.offset(square, 1).toPolygons(square, 2).get(0);
+
+        assertEquals(9, result.getFirst().getX(), 0.000001);
+        assertEquals(9, result.getFirst().getY(), 0.000001);
+    }
+
+    @Test
+    public void jaggedOutlineGivesSingleLoop() {
+        // teeth are much smaller than offset, so raw offset path crosses itself many times
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            double angle = 2 * Math.PI * i / 400;
+            double radius = 20 + (i % 2 == 0 ? 0 : 0.3);
+            points.add(new Point(radius * Math.cos(angle), -radius * Math.sin(angle)));
+        }
+        points.add(new Point(points.get(0)));
+        Polygon jagged = new Polygon(points);
+
+        for (PolygonOffset.Join join : PolygonOffset.Join.values()) {
+            PolygonOffset offset = new PolygonOffset(join);
+            Polygon outer = offset.offset(jagged, -1).toPolygons(jagged, 0).get(0);
+            Polygon inner = offset.offset(jagged, 1).toPolygons(jagged, 0).get(0);
+
+            assertEquals(1, offset.offset(jagged, -1).size());
+            assertEquals(1, offset.offset(jagged, 1).size());
+            // tips of the teeth are at 20.3 and notches at 20, corners stay within miter limit
+            assertTrue(outer.getMaxX() > 21.29 && outer.getMaxX() < 22.3);
+            assertTrue(inner.getMaxX() > 18.9 && inner.getMaxX() < 19.1);
+        }
+    }
+
+    @Test
+    public void productsAreComparedWithoutOverflow() {
+        long big = 3_000_000_000_000L;
+
+        assertEquals(1, PolygonOffset.compareProducts(big, big + 1, big, big));
+        assertEquals(-1, PolygonOffset.compareProducts(-big, big, big, big));
+        assertEquals(0, PolygonOffset.compareProducts(big, -big, -big, big));
+    }
+
+    private static Polygon polygon(double... coordinates) {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            points.add(new Point(coordinates[i], coordinates[i + 1]));
+        }
+        return new Polygon(points);
+    }
+}
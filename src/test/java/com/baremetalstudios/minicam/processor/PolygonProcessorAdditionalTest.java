@@ -2,6 +2,8 @@ package com.baremetalstudios.minicam.processor;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -83,6 +85,29 @@ public class PolygonProcessorAdditionalTest {
         assertNull(result);
     }
 
+    @Test
+    public void insetPolygonReturnsNullForDegeneratePolygon() {
+        // line drawn there and back, has no inside
+        Polygon polygon = new Polygon(Arrays.asList(new Point(0, 0), new Point(0, 10), new Point(0, 0)));
+
+        assertNull(PolygonProcessor.insetPolygon(polygon, 0.8));
+    }
+
+    @Test
+    public void skippedPolygonIsReported() {
+        Polygon polygon = new Polygon(Arrays.asList(new Point(0, 0), new Point(0, 10), new Point(0, 0)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+
+        System.setOut(new PrintStream(output));
+        try {
+            assertNull(PolygonProcessor.insetPolygon(polygon, 0.8));
+        } finally {
+            System.setOut(originalOut);
+        }
+        assertTrue(output.toString().startsWith("WARNING: unable to calculate inset"));
+    }
+
     @Test
     public void insetCornerReturnsPointForValidInputs() {
         // Right angle corner
@@ -0,0 +1,150 @@
+package com.baremetalstudios.minicam.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+public class PolygonStitcherTest {
+
+    @Test
+    public void shuffledSegmentsAreJoinedIntoSingleClosedPolygon() {
+        List<Polygon> segments = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            segments.add(segment(i, 0, i + 1, 0));
+            segments.add(segment(1000 - i, 10, 999 - i, 10));
+        }
+        segments.add(segment(1000, 0, 1000, 10));
+        segments.add(segment(0, 10, 0, 0));
+        Collections.shuffle(segments, new java.util.Random(1));
+
+        List<Polygon> result = new PolygonStitcher(0).stitch(segments);
+
+        assertEquals(1, result.size());
+        assertTrue(result.get(0).isClosed());
+        // joint points are not duplicated
+        assertEquals(2003, result.get(0).count());
+    }
+
+    @Test
+    public void reversedSegmentsAreJoined() {
+        List<Polygon> segments = new ArrayList<>();
+        segments.add(segment(0, 0, 10, 0));
+        segments.add(segment(10, 10, 10, 0));
+        segments.add(segment(10, 10, 0, 10));
+        segments.add(segment(0, 0, 0, 10));
+
+        List<Polygon> result = new PolygonStitcher(0).stitch(segments);
+
+        assertEquals(1, result.size());
+        assertTrue(result.get(0).isClosed());
+        assertEquals(5, result.get(0).count());
+        assertEquals(100.0, result.get(0).getSizeX() * result.get(0).getSizeY(), 0.0000001);
+    }
+
+    @Test
+    public void smallGapsAreBridged() {
+        List<Polygon> segments = new ArrayList<>();
+        segments.add(polygon(0, 0, 10, 0, 10, 10));
+        segments.add(polygon(10.02, 10, 0, 10, 0, 0.03));
+
+        assertEquals(2, new PolygonStitcher(0).stitch(segments).size());
+
+        List<Polygon> result = new PolygonStitcher(0.05).stitch(segments);
+
+        assertEquals(1, result.size());
+        assertTrue(result.get(0).isClosed());
+        assertEquals(7, result.get(0).count());
+    }
+
+    @Test
+    public void segmentsWithDifferentTranslationsAreNotJoined() {
+        Polygon first = segment(0, 0, 10, 0);
+        Polygon second = segment(10, 0, 0, 5);
+        second.setTranslations(List.of(new Point(0, 0), new Point(20, 0)));
+
+        List<Polygon> result = new PolygonStitcher(0.05).stitch(List.of(first, second));
+
+        assertEquals(2, result.size());
+        assertFalse(result.get(1).hasSameTranslations(result.get(0)));
+    }
+
+    @Test
+    public void cycleIsReturnedOnceItsLastSegmentIsAdded() {
+        PolygonStitcher stitcher = new PolygonStitcher(0);
+
+        assertNull(stitcher.add(segment(0, 0, 10, 0)));
+        assertNull(stitcher.add(segment(10, 10, 0, 10)));
+        assertNull(stitcher.add(segment(10, 0, 10, 10)));
+        Polygon cycle = stitcher.add(segment(0, 10, 0, 0));
+
+        assertNotNull(cycle);
+        assertTrue(cycle.isClosed());
+        assertEquals(5, cycle.count());
+        assertEquals(List.of(cycle), stitcher.finish());
+    }
+
+    @Test
+    public void incrementalStitchingGivesSameResultAsBatch() {
+        List<Polygon> segments = new ArrayList<>();
+        // square split into shuffled segments
+        for (int i = 0; i < 100; i++) {
+            segments.add(segment(i, 0, i + 1, 0));
+            segments.add(segment(100 - i, 10, 99 - i, 10));
+        }
+        segments.add(segment(100, 0, 100, 10));
+        segments.add(segment(0, 10, 0, 0));
+        // reversed segment and bridged gap
+        segments.add(segment(200, 0, 210, 0));
+        segments.add(polygon(200, 0.03, 200, 10, 210, 10));
+        segments.add(segment(210, 0, 210, 10));
+        // dangling segment
+        segments.add(segment(300, 0, 310, 5));
+        Collections.shuffle(segments, new java.util.Random(3));
+
+        assertSameAsBatch(segments, 0.05);
+    }
+
+    @Test
+    public void ambiguousJointsAreStitchedAsBatch() {
+        List<Polygon> segments = new ArrayList<>();
+        segments.add(segment(0, 0, 10, 0));
+        segments.add(segment(10, 0, 10, 10));
+        segments.add(segment(10, 10, 0, 0));
+        // third end at the same joint
+        segments.add(segment(10, 0, 20, 0));
+        segments.add(segment(20, 0, 10, 0));
+
+        assertSameAsBatch(segments, 0);
+    }
+
+    private static void assertSameAsBatch(List<Polygon> segments, double gap) {
+        List<Polygon> expected = new PolygonStitcher(gap).stitch(segments);
+        PolygonStitcher stitcher = new PolygonStitcher(gap);
+        segments.forEach(stitcher::add);
+        List<Polygon> actual = stitcher.finish();
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getPoints().toString(), actual.get(i).getPoints().toString());
+        }
+    }
+
+    private static Polygon segment(double x1, double y1, double x2, double y2) {
+        return polygon(x1, y1, x2, y2);
+    }
+
+    private static Polygon polygon(double... coordinates) {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            points.add(new Point(coordinates[i], coordinates[i + 1]));
+        }
+        return new Polygon(points);
+    }
+}
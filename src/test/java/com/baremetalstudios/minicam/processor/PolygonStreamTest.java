@@ -0,0 +1,116 @@
+package com.baremetalstudios.minicam.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.baremetalstudios.minicam.config.OutputConfig;
+import com.baremetalstudios.minicam.geometry.DrillGroup;
+import com.baremetalstudios.minicam.geometry.Panel;
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+import com.baremetalstudios.minicam.parser.GerberParser;
+import com.baremetalstudios.minicam.simulator.OutlinePlotter;
+
+public class PolygonStreamTest {
+
+    @Test
+    public void openSegmentsAreStitchedAndNestedPolygonIsMarkedInner() {
+        PolygonStream stream = new PolygonStream(new PolygonProcessor(new OutputConfig()));
+        segments().forEach(stream);
+
+        List<Polygon> polygons = stream.getPolygons();
+        assertEquals(2, polygons.size());
+        assertTrue(polygons.get(0).isInner());
+        assertFalse(polygons.get(1).isInner());
+        assertTrue(polygons.get(1).isClosed());
+    }
+
+    @Test
+    public void streamProducesSameResultAsPolygonProcessor() {
+        OutputConfig config = new OutputConfig();
+        Point center = Point.at(25, 20);
+
+        List<DrillGroup> expectedDrills = new ArrayList<>();
+        List<Polygon> expected = new PolygonProcessor(config).process(polygons(), expectedDrills, center);
+
+        List<DrillGroup> actualDrills = new ArrayList<>();
+        PolygonStream stream = new PolygonStream(new PolygonProcessor(config));
+        polygons().forEach(stream);
+        List<Polygon> actual = stream.process(actualDrills, center);
+
+        assertEquals(3, expected.size());
+        assertSame(expected, actual);
+        assertEquals(expectedDrills.size(), actualDrills.size());
+        for (int i = 0; i < expectedDrills.size(); i++) {
+            assertEquals(expectedDrills.get(i).getDrills().toString(), actualDrills.get(i).getDrills().toString());
+        }
+    }
+
+    @Test
+    public void streamedBoardOutlineIsSameAsProcessedOne() throws IOException {
+        OutputConfig config = new OutputConfig();
+        byte[] data = Files.readAllBytes(Paths.get("src/test/resources/merge2.bor"));
+
+        OutlinePlotter plotter = new OutlinePlotter();
+        parse(data, plotter);
+        Panel panel = new Panel(plotter.getPolygons(), new ArrayList<>());
+        List<Polygon> expected = new PolygonProcessor(config).process(plotter.getPolygons(), new ArrayList<>(), panel.getCenter());
+
+        PolygonStream stream = new PolygonStream(new PolygonProcessor(config));
+        parse(data, new OutlinePlotter(stream));
+        Panel streamedPanel = new Panel(stream.getPolygons(), new ArrayList<>());
+        List<Polygon> actual = stream.process(new ArrayList<>(), streamedPanel.getCenter());
+
+        assertSame(expected, actual);
+    }
+
+    private static void parse(byte[] data, OutlinePlotter plotter) {
+        GerberParser parser = new GerberParser(data);
+        parser.setSimulator(plotter);
+        parser.parse();
+    }
+
+    // small cutout goes first, so it becomes inner only once board outline is stitched
+    private static List<Polygon> segments() {
+        return new ArrayList<>(Arrays.asList(
+            polygon(10, 10, 20, 10, 20, 20, 10, 20, 10, 10),
+            polygon(50, 20, 50, 40, 25, 40),
+            polygon(0, 20, 0, 0, 25, 0),
+            polygon(25, 0, 50, 0, 50, 20),
+            polygon(25, 40, 0, 40, 0, 20)));
+    }
+
+    // first cutout is received before board outline, second one after it
+    private static List<Polygon> polygons() {
+        return new ArrayList<>(Arrays.asList(
+            polygon(10, 10, 20, 10, 20, 20, 10, 20, 10, 10),
+            polygon(0, 0, 50, 0, 50, 40, 0, 40, 0, 0),
+            polygon(30, 10, 40, 10, 35, 30, 30, 10)));
+    }
+
+    private static Polygon polygon(double... coordinates) {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < coordinates.length; i += 2) {
+            points.add(Point.at(coordinates[i], coordinates[i + 1]));
+        }
+        return new Polygon(points);
+    }
+
+    private static void assertSame(List<Polygon> expected, List<Polygon> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+            assertEquals(expected.get(i).getPoints().toString(), actual.get(i).getPoints().toString());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.baremetalstudios.minicam.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.baremetalstudios.minicam.geometry.Point;
+import com.baremetalstudios.minicam.geometry.Polygon;
+
+public class RepeatDetectorTest {
+
+    @Test
+    public void translatedCopiesAreCollapsedIntoFirstOne() {
+        List<Polygon> polygons = new ArrayList<>();
+        polygons.add(rectangle(0, 0, 10, 5));
+        polygons.add(rectangle(1, 1, 2, 2));
+        polygons.add(rectangle(20, 0.002, 10, 5));
+        polygons.add(rectangle(0, 30, 10, 5));
+
+        List<Polygon> result = RepeatDetector.collapse(polygons);
+
+        assertEquals(2, result.size());
+        assertSame(polygons.get(0), result.get(0));
+        assertSame(polygons.get(1), result.get(1));
+
+        List<Point> translations = result.get(0).getTranslations();
+        assertEquals(3, translations.size());
+        assertEquals(0.0, translations.get(0).getX(), 0.000001);
+        assertEquals(20.0, translations.get(1).getX(), 0.000001);
+        assertEquals(30.0, translations.get(2).getY(), 0.000001);
+        assertFalse(result.get(1).isInstanced());
+    }
+
+    @Test
+    public void copiesWithDifferentNestingAreNotCollapsed() {
+        Polygon outer = rectangle(0, 0, 10, 5);
+        Polygon inner = rectangle(20, 0, 10, 5);
+        inner.setInner(true);
+
+        assertEquals(2, RepeatDetector.collapse(List.of(outer, inner)).size());
+    }
+
+    @Test
+    public void rotatedCopiesAreKeptAsSeparatePolygons() {
+        Polygon board = rectangle(0, 0, 10, 5);
+        Polygon rotated = rectangle(20, 0, 5, 10);
+
+        List<Polygon> result = RepeatDetector.collapse(List.of(board, rotated));
+
+        assertEquals(2, result.size());
+        assertFalse(result.get(0).isInstanced());
+        assertFalse(result.get(1).isInstanced());
+    }
+
+    @Test
+    public void repeatedBoardIsOuterPolygonWithMostCopies() {
+        Polygon board = rectangle(0, 0, 10, 5);
+        board.setTranslations(List.of(new Point(0, 0), new Point(20, 0)));
+        Polygon hole = rectangle(1, 1, 1, 1);
+        hole.setInner(true);
+        hole.setTranslations(List.of(new Point(0, 0), new Point(20, 0), new Point(2, 0)));
+
+        assertSame(board, RepeatDetector.findRepeatedBoard(List.of(hole, board, rectangle(0, 0, 50, 50))));
+        assertNull(RepeatDetector.findRepeatedBoard(List.of(rectangle(0, 0, 50, 50))));
+    }
+
+    private static Polygon rectangle(double x, double y, double width, double height) {
+        return new Polygon(List.of(new Point(x, y), new Point(x, y + height), new Point(x + width, y + height),
+                                   new Point(x + width, y), new Point(x, y)));
+    }
+}
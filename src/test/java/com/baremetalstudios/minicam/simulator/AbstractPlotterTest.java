@@ -238,4 +238,16 @@ public class AbstractPlotterTest {
     void stepAndRepeatDoesNotThrow() {
         assertDoesNotThrow(() -> plotter.stepAndRepeat("1", "2", "3", "4"));
     }
+
+    @Test
+    void setApertureSelectsDefinedAperture() {
+        SimpleAperture aperture = new SimpleAperture(ApertureType.CIRCLE, 10, Collections.singletonList(0.5));
+        plotter.addAperture(aperture);
+
+        plotter.setAperture(10);
+        assertSame(aperture, plotter.getAperture());
+
+        plotter.setAperture(11);
+        assertNull(plotter.getAperture());
+    }
 }
@@ -0,0 +1,145 @@
+package com.baremetalstudios.minicam.simulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.baremetalstudios.minicam.geometry.Polygon;
+import com.baremetalstudios.minicam.parser.GerberParser;
+
+public class CompiledMacroTest {
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void expressionsAreEvaluatedWithModifiers() {
+        // 21,1,$1+1,$2/2,$3x2,0,0 - center line
+        ApertureMacro macro = macro(primitive(MacroPrimitiveType.LINE_CENTER,
+            constant(1),
+            new MacroBinOp(BinaryOperation.ADD, variable(1), constant(1)),
+            new MacroBinOp(BinaryOperation.DIVIDE, variable(2), constant(2)),
+            new MacroBinOp(BinaryOperation.MULTIPLY, variable(3), constant(2)),
+            constant(0),
+            constant(0)));
+
+        List<MacroShape> shapes = macro.compile().evaluate(Arrays.asList(1.0, 4.0, 0.5));
+
+        assertEquals(1, shapes.size());
+        Polygon outline = shapes.get(0).getOutline();
+        assertTrue(shapes.get(0).isDark());
+        assertEquals(2.0, outline.getSizeX(), EPSILON);
+        assertEquals(2.0, outline.getSizeY(), EPSILON);
+        assertEquals(5, outline.count());
+    }
+
+    @Test
+    public void missingModifiersAreZero() {
+        ApertureMacro macro = macro(primitive(MacroPrimitiveType.LINE_CENTER,
+            constant(1), constant(2), new MacroBinOp(BinaryOperation.ADD, variable(5), constant(1)), constant(0), constant(0)));
+
+        Polygon outline = macro.compile().evaluate(Collections.emptyList()).get(0).getOutline();
+
+        assertEquals(2.0, outline.getSizeX(), EPSILON);
+        assertEquals(1.0, outline.getSizeY(), EPSILON);
+    }
+
+    @Test
+    public void constantExpressionsAreFolded() {
+        CompiledMacro folded = new CompiledMacro(Arrays.asList(primitive(MacroPrimitiveType.CIRCLE,
+            constant(1), new MacroBinOp(BinaryOperation.SUBTRACT, constant(3), constant(1)), constant(0), constant(0))));
+
+        // one constant and one store per argument
+        assertEquals(8, folded.getCodeSize());
+    }
+
+    @Test
+    public void rotationIsAppliedAroundMacroOrigin() {
+        // square outline from (1,0) to (2,1), rotated by 90 degrees
+        ApertureMacro macro = macro(primitive(MacroPrimitiveType.OUTLINE,
+            constant(0), constant(4),
+            constant(1), constant(0), constant(2), constant(0), constant(2), constant(1), constant(1), constant(1), constant(1), constant(0),
+            constant(90)));
+
+        MacroShape shape = macro.compile().evaluate(Collections.emptyList()).get(0);
+        Polygon outline = shape.getOutline();
+
+        assertFalse(shape.isDark());
+        assertEquals(5, outline.count());
+        assertEquals(-1.0, outline.getMinX(), EPSILON);
+        assertEquals(0.0, outline.getMaxX(), EPSILON);
+        assertEquals(1.0, outline.getMinY(), EPSILON);
+        assertEquals(2.0, outline.getMaxY(), EPSILON);
+    }
+
+    @Test
+    public void thermalIsOuterCircleWithClearedCenterAndGaps() {
+        ApertureMacro macro = macro(primitive(MacroPrimitiveType.THERMAL,
+            constant(0), constant(0), constant(1), constant(0.6), constant(0.1), constant(0)));
+
+        List<MacroShape> shapes = macro.compile().evaluate(Collections.emptyList());
+
+        assertEquals(4, shapes.size());
+        assertTrue(shapes.get(0).isDark());
+        assertEquals(1.0, shapes.get(0).getOutline().getSizeX(), 1e-6);
+        assertFalse(shapes.get(1).isDark());
+        assertFalse(shapes.get(2).isDark());
+        assertFalse(shapes.get(3).isDark());
+    }
+
+    @Test
+    public void geometryIsEvaluatedOncePerAperture() {
+        ApertureMacro macro = macro(primitive(MacroPrimitiveType.CIRCLE, constant(1), variable(1), constant(0), constant(0)));
+        MacroAperture aperture = new MacroAperture(10, macro, Arrays.asList(0.5));
+
+        List<MacroShape> geometry = aperture.getGeometry();
+
+        assertSame(geometry, aperture.getGeometry());
+        assertSame(macro.compile(), macro.compile());
+        assertEquals(0.5, geometry.get(0).getOutline().getSizeX(), 1e-6);
+    }
+
+    @Test
+    public void parsedMacroApertureIsEvaluated() {
+        OutlinePlotter plotter = new OutlinePlotter();
+        GerberParser parser = new GerberParser("%AMOC8*5,1,8,0,0,1.08239X$1,22.5*%\n%ADD12OC8,0.08*%\nD12*\nM02*\n"
+            .getBytes(StandardCharsets.US_ASCII));
+        parser.setSimulator(plotter);
+        parser.parse();
+
+        List<MacroShape> shapes = ((MacroAperture) plotter.getAperture()).getGeometry();
+
+        assertEquals(1, shapes.size());
+        assertEquals(MacroPrimitiveType.POLYGON, shapes.get(0).getType());
+        assertEquals(9, shapes.get(0).getOutline().count());
+        // rotated by 22.5 degrees, so octagon is 0.08 across flats
+        assertEquals(0.08, shapes.get(0).getOutline().getSizeX(), 1e-6);
+    }
+
+    @Test
+    public void apertureWithoutMacroHasNoGeometry() {
+        assertTrue(new MacroAperture(10, null, Arrays.asList(0.5)).getGeometry().isEmpty());
+    }
+
+    private static ApertureMacro macro(MacroPrimitive... primitives) {
+        return new ApertureMacro("TEST", Arrays.asList(primitives));
+    }
+
+    private static SimpleMacroPrimitive primitive(MacroPrimitiveType type, MacroPrimitive... exprs) {
+        return new SimpleMacroPrimitive(type, Arrays.asList(exprs));
+    }
+
+    private static MacroConstant constant(double value) {
+        return new MacroConstant(value);
+    }
+
+    private static MacroVariable variable(int variable) {
+        return new MacroVariable(variable);
+    }
+}
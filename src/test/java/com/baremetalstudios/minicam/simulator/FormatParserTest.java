@@ -32,4 +32,22 @@ public class FormatParserTest {
 
         assertThrows(ParseException.class, () -> parser.parse("1235689"));
     }
+
+    @Test
+    public void formatUnitsAreScaledProperly() throws Exception {
+        parser.setFormat(2, 4);
+        parser.setModeMetric();
+
+        assertEquals(1.7606, parser.parse(17606L), 0.00000000001);
+        assertEquals(-0.0005, parser.parse(-5L), 0.00000000001);
+    }
+
+    @Test
+    public void signedTextIsConvertedToUnits() throws Exception {
+        parser.setFormat(2, 4);
+
+        assertEquals(17606L, parser.units("017606"));
+        assertEquals(-1760L, parser.units("-01760"));
+        assertThrows(ParseException.class, () -> parser.units("01x606"));
+    }
 }
@@ -2,9 +2,12 @@ package com.baremetalstudios.minicam.simulator;
 
 import com.baremetalstudios.minicam.geometry.Point;
 import com.baremetalstudios.minicam.geometry.Polygon;
+import com.baremetalstudios.minicam.parser.GerberParser;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -105,6 +108,31 @@ public class OutlinePlotterTest {
         assertEquals(2, plotter.getPolygons().size());
     }
 
+    @Test
+    void consumerReceivesPolygonWhenNextOneIsCompleted() {
+        List<Polygon> received = new ArrayList<>();
+        OutlinePlotter streaming = new OutlinePlotter(received::add);
+        streaming.setFormatX(2, 4);
+        streaming.setFormatY(2, 4);
+        streaming.setMode(PlotterMode.METRIC);
+
+        streaming.setPosition("010000", "010000");
+        streaming.setExposure(ExposureMode.OPEN);
+        streaming.setPosition("020000", "010000");
+        streaming.setExposure(ExposureMode.CLOSED);
+        assertTrue(received.isEmpty());
+
+        streaming.setPosition("030000", "030000");
+        streaming.setExposure(ExposureMode.OPEN);
+        streaming.setPosition("040000", "030000");
+        streaming.setExposure(ExposureMode.CLOSED);
+        assertEquals(1, received.size());
+
+        streaming.done();
+        assertEquals(2, received.size());
+        assertTrue(streaming.getPolygons().isEmpty());
+    }
+
     @Test
     void setModeDelegatesToSuper() {
         plotter.setMode(PlotterMode.POLYGON);
@@ -218,14 +246,86 @@ public class OutlinePlotterTest {
         assertEquals(3.0, first.getY(), 0.0001);
     }
 
+    @Test
+    void missingCoordinateKeepsPreviousValue() {
+        plotter.setPosition(10000L, 6, 20000L, 6, Plotter.AXIS_X | Plotter.AXIS_Y);
+        plotter.setExposure(ExposureMode.OPEN);
+        plotter.setPosition(0L, 0, 50000L, 6, Plotter.AXIS_Y);
+        plotter.setExposure(ExposureMode.OPEN);
+        plotter.done();
+
+        List<Point> points = plotter.getPolygons().get(0).getPoints();
+        assertEquals(1.0, points.get(1).getX(), 0.0001);
+        assertEquals(5.0, points.get(1).getY(), 0.0001);
+    }
+
     @Test
     void setCenterDoesNotAffectPolygons() {
         plotter.setCenter("010000", "020000");
         assertTrue(plotter.getPolygons().isEmpty());
     }
 
+    @Test
+    void stepAndRepeatAssignsTranslationsToPolygonsInsideBlock() {
+        plotter.stepAndRepeat("X2", "Y3", "I1.5", "J2.0");
+        plotter.setPosition("010000", "010000");
+        plotter.setExposure(ExposureMode.OPEN);
+        plotter.setPosition("020000", "010000");
+        plotter.setExposure(ExposureMode.CLOSED);
+        plotter.stepAndRepeat("", "", "", "");
+        plotter.setPosition("030000", "010000");
+        plotter.setExposure(ExposureMode.OPEN);
+        plotter.setPosition("040000", "010000");
+        plotter.done();
+
+        List<Polygon> polygons = plotter.getPolygons();
+        assertEquals(2, polygons.size());
+
+        List<Point> translations = polygons.get(0).getTranslations();
+        assertEquals(6, translations.size());
+        assertEquals(0.0, translations.get(0).getX(), 0.0001);
+        assertEquals(1.5, translations.get(1).getX(), 0.0001);
+        assertEquals(1.5, translations.get(5).getX(), 0.0001);
+        assertEquals(4.0, translations.get(5).getY(), 0.0001);
+
+        assertFalse(polygons.get(1).isInstanced());
+    }
+
+    @Test
+    void stepAndRepeatStepsAreScaledToMillimeters() {
+        plotter.setMode(PlotterMode.IMPERIAL);
+        plotter.stepAndRepeat("X2", "", "I1.0", "");
+        plotter.setPosition("010000", "010000");
+        plotter.setExposure(ExposureMode.OPEN);
+        plotter.setPosition("020000", "010000");
+        plotter.done();
+
+        List<Point> translations = plotter.getPolygons().get(0).getTranslations();
+        assertEquals(2, translations.size());
+        assertEquals(25.4, translations.get(1).getX(), 0.0001);
+    }
+
     @Test
     void askContinueReturnsFalse() {
         assertFalse(plotter.askContinue(0, 0));
     }
+
+    @Test
+    void flashOfMacroApertureAddsItsDarkShapes() throws Exception {
+        // 2mm x 1mm rectangle with 0.5mm clear circle in the center, flashed at (10, 5)
+        String text = "%FSLAX24Y24*%\n%MOMM*%\n%AMBOX*21,1,$1,$2,0,0,0*1,0,0.5,0,0*%\n%ADD10BOX,2X1*%\n"
+                      + "D10*\nX100000Y050000D03*\nM02*\n";
+        OutlinePlotter outline = new OutlinePlotter();
+        GerberParser parser = new GerberParser(text.getBytes(StandardCharsets.US_ASCII));
+        parser.setSimulator(outline);
+        parser.parse();
+
+        assertEquals(1, outline.getPolygons().size());
+        Polygon box = outline.getPolygons().get(0);
+        assertTrue(box.isClosed());
+        assertEquals(9.0, box.getMinX(), 0.000001);
+        assertEquals(4.5, box.getMinY(), 0.000001);
+        assertEquals(11.0, box.getMaxX(), 0.000001);
+        assertEquals(5.5, box.getMaxY(), 0.000001);
+    }
 }